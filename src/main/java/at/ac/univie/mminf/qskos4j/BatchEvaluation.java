@@ -0,0 +1,282 @@
+package at.ac.univie.mminf.qskos4j;
+
+import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.report.Report;
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates a number of vocabularies in one JVM. At most as many vocabularies as set by the parallelism are
+ * evaluated at the same time, each one in its own repository and with its own {@link QSkos} instance (and thus
+ * its own issue instances). Immutable data such as the SKOS vocabulary model is shared.
+ *
+ * The results of each vocabulary are turned into a {@link VocabularyReport} as soon as the vocabulary has been
+ * evaluated, then its repository is shut down. Memory usage is thus bounded by the vocabularies being evaluated
+ * concurrently.
+ */
+public class BatchEvaluation {
+
+    private final Logger logger = LoggerFactory.getLogger(BatchEvaluation.class);
+
+    /**
+     * Creates the repositories and selects the issues to evaluate. Methods are called concurrently by the worker
+     * threads.
+     */
+    public interface Setup {
+
+        Repository createRepository(File vocabFile) throws OpenRDFException;
+
+        /**
+         * Configures the passed instance, whose repository connection has already been set, and selects the
+         * issues to evaluate.
+         */
+        Collection<Issue> configure(QSkos qskos) throws OpenRDFException;
+    }
+
+    private final Setup setup;
+    private final int parallelism;
+    private boolean extensiveReports = false;
+
+    /**
+     * @param parallelism the number of vocabularies evaluated at the same time
+     */
+    public BatchEvaluation(Setup setup, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.setup = setup;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * If set, the reports also contain the extensive text report of each issue.
+     */
+    public void setExtensiveReports(boolean extensiveReports) {
+        this.extensiveReports = extensiveReports;
+    }
+
+    /**
+     * Starts evaluating the passed vocabularies and returns without waiting for them.
+     *
+     * @return a future for the report of each vocabulary, in the order of the passed files. Failures to load or
+     * evaluate a vocabulary are contained in the report, so the futures fail only if evaluation is interrupted.
+     */
+    public List<Future<VocabularyReport>> submit(List<File> vocabFiles) {
+        final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(parallelism, vocabFiles.size())),
+            new DaemonThreadFactory("qskos-batch"));
+
+        List<Future<VocabularyReport>> reports = new ArrayList<Future<VocabularyReport>>();
+        for (final File vocabFile : vocabFiles) {
+            reports.add(executor.submit(new Callable<VocabularyReport>() {
+                @Override
+                public VocabularyReport call() {
+                    return evaluate(vocabFile);
+                }
+            }));
+        }
+
+        // no further tasks, the worker threads terminate when all vocabularies have been evaluated
+        executor.shutdown();
+        return reports;
+    }
+
+    /**
+     * Evaluates the passed vocabularies and waits until all of them have been evaluated.
+     *
+     * @return the reports in the order of the passed files
+     */
+    public List<VocabularyReport> evaluate(List<File> vocabFiles) throws InterruptedException {
+        List<VocabularyReport> reports = new ArrayList<VocabularyReport>();
+        for (Future<VocabularyReport> report : submit(vocabFiles)) {
+            try {
+                reports.add(report.get());
+            }
+            catch (ExecutionException e) {
+                // evaluate(File) catches all exceptions
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return reports;
+    }
+
+    private VocabularyReport evaluate(File vocabFile) {
+        long startTime = System.currentTimeMillis();
+        logger.info("Evaluating " +vocabFile);
+
+        try {
+            Repository repository = setup.createRepository(vocabFile);
+            try {
+                RepositoryConnection repCon = repository.getConnection();
+                try {
+                    QSkos qskos = new QSkos();
+                    qskos.setRepositoryConnection(repCon);
+                    Collection<Issue> issues = setup.configure(qskos);
+
+                    List<IssueReport> issueReports = createIssueReports(qskos.evaluate(issues));
+                    return new VocabularyReport(vocabFile, issueReports, null, System.currentTimeMillis() - startTime);
+                }
+                finally {
+                    repCon.close();
+                }
+            }
+            finally {
+                repository.shutDown();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new VocabularyReport(
+                vocabFile,
+                Collections.<IssueReport>emptyList(),
+                e,
+                System.currentTimeMillis() - startTime);
+        }
+        catch (Exception e) {
+            logger.error("Error evaluating " +vocabFile, e);
+            return new VocabularyReport(
+                vocabFile,
+                Collections.<IssueReport>emptyList(),
+                e,
+                System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private List<IssueReport> createIssueReports(Map<Issue, Future<?>> evaluations) throws InterruptedException {
+        List<IssueReport> issueReports = new ArrayList<IssueReport>();
+
+        for (Map.Entry<Issue, Future<?>> evaluation : evaluations.entrySet()) {
+            Issue issue = evaluation.getKey();
+            try {
+                evaluation.getValue().get();
+                issueReports.add(new IssueReport(
+                    issue,
+                    generateTextReport(issue, Report.ReportStyle.SHORT),
+                    extensiveReports ? generateTextReport(issue, Report.ReportStyle.EXTENSIVE) : null,
+                    null));
+            }
+            catch (ExecutionException e) {
+                issueReports.add(new IssueReport(issue, null, null, e.getCause()));
+            }
+            catch (OpenRDFException e) {
+                issueReports.add(new IssueReport(issue, null, null, e));
+            }
+            catch (IOException e) {
+                issueReports.add(new IssueReport(issue, null, null, e));
+            }
+        }
+
+        return issueReports;
+    }
+
+    private String generateTextReport(Issue issue, Report.ReportStyle style) throws OpenRDFException, IOException {
+        StringWriter stringWriter = new StringWriter();
+        BufferedWriter reportWriter = new BufferedWriter(stringWriter);
+        issue.getReport().generateReport(reportWriter, Report.ReportFormat.TXT, style);
+        reportWriter.close();
+        return stringWriter.toString();
+    }
+
+    /**
+     * The text reports of all issues evaluated for a vocabulary.
+     */
+    public static class VocabularyReport {
+
+        private final File vocabFile;
+        private final List<IssueReport> issueReports;
+        private final Exception error;
+        private final long evaluationMillis;
+
+        VocabularyReport(File vocabFile, List<IssueReport> issueReports, Exception error, long evaluationMillis) {
+            this.vocabFile = vocabFile;
+            this.issueReports = Collections.unmodifiableList(issueReports);
+            this.error = error;
+            this.evaluationMillis = evaluationMillis;
+        }
+
+        public File getVocabFile() {
+            return vocabFile;
+        }
+
+        public List<IssueReport> getIssueReports() {
+            return issueReports;
+        }
+
+        /**
+         * @return the exception that prevented loading or evaluating the vocabulary, or null if evaluation
+         * succeeded. Failures of single issues are reported by {@link IssueReport#getError()}.
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public long getEvaluationMillis() {
+            return evaluationMillis;
+        }
+    }
+
+    /**
+     * The text reports of an issue evaluated for a vocabulary.
+     */
+    public static class IssueReport {
+
+        private final String issueId, issueName;
+        private final String shortReport, extensiveReport;
+        private final Throwable error;
+
+        IssueReport(Issue issue, String shortReport, String extensiveReport, Throwable error) {
+            this.issueId = issue.getId();
+            this.issueName = issue.getName();
+            this.shortReport = shortReport;
+            this.extensiveReport = extensiveReport;
+            this.error = error;
+        }
+
+        public String getIssueId() {
+            return issueId;
+        }
+
+        public String getIssueName() {
+            return issueName;
+        }
+
+        /**
+         * @return the short text report or null if the issue could not be evaluated
+         */
+        public String getShortReport() {
+            return shortReport;
+        }
+
+        /**
+         * @return the extensive text report or null if extensive reports have not been requested or the issue
+         * could not be evaluated
+         */
+        public String getExtensiveReport() {
+            return extensiveReport;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+}
@@ -2,6 +2,8 @@ package at.ac.univie.mminf.qskos4j;
 
 import at.ac.univie.mminf.qskos4j.issues.HierarchyGraphBuilder;
 import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.issues.IssueScheduler;
+import at.ac.univie.mminf.qskos4j.issues.StatementScanIssue;
 import at.ac.univie.mminf.qskos4j.issues.clusters.DisconnectedConceptClusters;
 import at.ac.univie.mminf.qskos4j.issues.concepts.AuthoritativeConcepts;
 import at.ac.univie.mminf.qskos4j.issues.concepts.InvolvedConcepts;
@@ -13,6 +15,7 @@ import at.ac.univie.mminf.qskos4j.issues.conceptscheme.TopConceptsHavingBroaderC
 import at.ac.univie.mminf.qskos4j.issues.count.AggregationRelations;
 import at.ac.univie.mminf.qskos4j.issues.count.SemanticRelations;
 import at.ac.univie.mminf.qskos4j.issues.cycles.HierarchicalCycles;
+import at.ac.univie.mminf.qskos4j.issues.inlinks.InLinkCache;
 import at.ac.univie.mminf.qskos4j.issues.inlinks.MissingInLinks;
 import at.ac.univie.mminf.qskos4j.issues.labels.DisjointLabelsViolations;
 import at.ac.univie.mminf.qskos4j.issues.labels.InconsistentPrefLabels;
@@ -31,9 +34,12 @@ import at.ac.univie.mminf.qskos4j.issues.relations.ValuelessAssociativeRelations
 import at.ac.univie.mminf.qskos4j.issues.skosintegrity.MappingClashes;
 import at.ac.univie.mminf.qskos4j.issues.skosintegrity.RelationClashes;
 import at.ac.univie.mminf.qskos4j.issues.skosintegrity.UndefinedSkosResources;
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
 import at.ac.univie.mminf.qskos4j.util.progress.IProgressMonitor;
 import at.ac.univie.mminf.qskos4j.util.progress.StubProgressMonitor;
+import at.ac.univie.mminf.qskos4j.util.url.LinkCache;
 import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import at.ac.univie.mminf.qskos4j.util.vocab.VocabularyDelta;
 import org.openrdf.OpenRDFException;
 import org.openrdf.repository.Repository;
 import org.openrdf.repository.RepositoryConnection;
@@ -41,6 +47,7 @@ import org.openrdf.repository.RepositoryException;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Future;
 
 /**
  * Main class intended for easy interaction with qSKOS. On instantiation an in-memory ("local") repository 
@@ -58,6 +65,7 @@ public class QSkos {
     private final static int EXT_ACCESS_MILLIS = 1500;
 
 	private String baseURI;
+    private int parallelism = 1;
 
     private BrokenLinks brokenLinks;
     private InvolvedConcepts involvedConcepts;
@@ -67,6 +75,7 @@ public class QSkos {
     private HttpURIs httpURIs;
 
     private List<Issue> registeredIssues = new ArrayList<Issue>();
+    private RepositoryConnection repCon;
 
     public QSkos(File file) throws RepositoryException {
         this();
@@ -179,11 +188,92 @@ public class QSkos {
     }
 
     public void setRepositoryConnection(RepositoryConnection repCon) {
+        if (repCon != null) {
+            SkosIndex.invalidate(repCon.getRepository());
+        }
+
+        this.repCon = repCon;
         for (Issue issue : registeredIssues) {
             issue.setRepositoryConnection(repCon);
         }
     }
 
+    /**
+     * Switches to a new version of the vocabulary. Results that have been computed for the current version are
+     * updated incrementally on the next evaluation by issues supporting this (see
+     * {@link at.ac.univie.mminf.qskos4j.issues.IncrementalIssue}), all other issues are re-evaluated. The previous
+     * connection is not closed.
+     *
+     * @return the changes between the current and the new version
+     */
+    public VocabularyDelta updateRepositoryConnection(RepositoryConnection newRepCon) throws RepositoryException {
+        if (repCon == null) {
+            throw new IllegalStateException("No previous vocabulary version, use setRepositoryConnection() instead");
+        }
+
+        VocabularyDelta delta = VocabularyDelta.compute(repCon, newRepCon);
+        setRepositoryConnection(newRepCon, delta);
+        return delta;
+    }
+
+    /**
+     * Like {@link #updateRepositoryConnection(RepositoryConnection)}, but using an already known delta between the
+     * current and the new version.
+     */
+    public void setRepositoryConnection(RepositoryConnection newRepCon, VocabularyDelta delta) {
+        SkosIndex.invalidate(newRepCon.getRepository());
+
+        repCon = newRepCon;
+        for (Issue issue : registeredIssues) {
+            issue.setRepositoryConnection(newRepCon, delta);
+        }
+    }
+
+    /**
+     * Starts the evaluation of the passed issues. Issues that do not depend on each other are evaluated concurrently,
+     * using as many worker threads as set by {@link #setParallelism(int)}. Issues that are computed from a scan over
+     * all statements share a single scan.
+     *
+     * @param issues the issues to evaluate
+     * @return a future for each passed issue (in iteration order of the passed collection) that completes as soon as
+     * the issue's result is available
+     */
+    public Map<Issue, Future<?>> evaluate(Collection<Issue> issues) {
+        StatementScanIssue.fuse(findPendingStatementScanIssues(issues));
+        return new IssueScheduler(parallelism).schedule(issues);
+    }
+
+    private Collection<StatementScanIssue<?>> findPendingStatementScanIssues(Collection<Issue> issues) {
+        Set<StatementScanIssue<?>> scanIssues = new LinkedHashSet<StatementScanIssue<?>>();
+
+        for (Issue issue : issues) {
+            for (Issue dependency = issue; dependency != null; dependency = dependency.getDependentIssue()) {
+                if (dependency instanceof StatementScanIssue && !dependency.hasResult()) {
+                    scanIssues.add((StatementScanIssue<?>) dependency);
+                }
+            }
+        }
+
+        return scanIssues;
+    }
+
+    /**
+     * Sets the number of worker threads used by {@link #evaluate(java.util.Collection)}. Issues that can split their
+     * own computation on large vocabularies (e.g., {@link DisconnectedConceptClusters}) use up to the same number of
+     * threads.
+     *
+     * @param parallelism maximum number of issues that are evaluated at the same time
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        ((DisconnectedConceptClusters) getIssueInstanceByClassName(DisconnectedConceptClusters.class.getName()))
+            .setParallelism(parallelism);
+        ((RelationClashes) getIssueInstanceByClassName(RelationClashes.class.getName())).setParallelism(parallelism);
+    }
+
 	/**
 	 * Set an IProgressMonitor that is notified on changes in the evaluation progress for every managed issues.
 	 * @param progressMonitor monitor instance to be notified
@@ -205,6 +295,52 @@ public class QSkos {
         missingInLinks.setQueryDelayMillis(delayMillis);
         brokenLinks.setExtAccessDelayMillis(delayMillis);
 	}
+
+    /**
+     * Sets the number of links that are checked at the same time when finding broken links. Links on the same host
+     * are never checked concurrently, the delay set by {@link #setExtAccessDelayMillis(int)} applies per host.
+     *
+     * @param maxConcurrentRequests maximum number of concurrent HTTP requests
+     */
+    public void setMaxConcurrentLinkChecks(int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        brokenLinks.setMaxConcurrentRequests(maxConcurrentRequests);
+    }
+
+    /**
+     * Sets the number of pooled connections to a single host that are kept when finding broken links. Links on the
+     * same host are still checked one after another.
+     *
+     * @param maxConnectionsPerHost maximum number of connections to a single host
+     */
+    public void setMaxLinkCheckConnectionsPerHost(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be at least 1");
+        }
+        brokenLinks.setMaxConnectionsPerHost(maxConnectionsPerHost);
+    }
+
+    /**
+     * Sets a cache of link check results that is used when finding broken links. Links whose cached result is
+     * younger than the cache's TTL are not dereferenced, older results are revalidated with conditional requests.
+     *
+     * @param linkCache loaded cache, saved after the links have been checked
+     */
+    public void setLinkCache(LinkCache linkCache) {
+        brokenLinks.setLinkCache(linkCache);
+    }
+
+    /**
+     * Sets a cache of in-link counts that is used when finding missing in-links. Concepts whose cached count
+     * is younger than the cache's TTL are not queried at the SPARQL endpoints again.
+     *
+     * @param inLinkCache loaded cache, saved after the in-links have been found
+     */
+    public void setInLinkCache(InLinkCache inLinkCache) {
+        missingInLinks.setInLinkCache(inLinkCache);
+    }
 	
 	/**
 	 * Some methods in this class support investigating only a subset of the vocabulary and extrapolate the results
@@ -0,0 +1,402 @@
+package at.ac.univie.mminf.qskos4j.cmd;
+
+import at.ac.univie.mminf.qskos4j.BatchEvaluation;
+import at.ac.univie.mminf.qskos4j.QSkos;
+import at.ac.univie.mminf.qskos4j.UnknownIssueIdException;
+import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.report.Report;
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serves reports of registered vocabularies over HTTP on the loopback interface. Repositories and issue results
+ * are kept between requests, so only the first report of a vocabulary has to wait for the evaluation. Requests:
+ *
+ * <ul>
+ *     <li><tt>GET /vocabularies</tt> lists the registered vocabularies</li>
+ *     <li><tt>PUT /vocabularies/{name}</tt> registers the vocabulary contained in the request body, or the local
+ *     file given by the <tt>file</tt> query parameter. The format is derived from the name's extension. If the
+ *     vocabulary is already registered, its results are updated incrementally where possible.</li>
+ *     <li><tt>GET /vocabularies/{name}/report</tt> returns the text report, optionally restricted to the issue IDs
+ *     given by the <tt>issues</tt> query parameter. <tt>style=extensive</tt> adds the extensive reports.</li>
+ *     <li><tt>DELETE /vocabularies/{name}</tt> removes the vocabulary</li>
+ * </ul>
+ *
+ * Reports of a vocabulary are generated concurrently. Registering a new version waits until these reports are
+ * finished, and reports of the new version wait until it has been loaded.
+ */
+class AnalysisDaemon {
+
+    private final static String CONTEXT_PATH = "/vocabularies";
+    private final static String REPORT_PATH = "/report";
+
+    private final Logger logger = LoggerFactory.getLogger(AnalysisDaemon.class);
+
+    private final BatchEvaluation.Setup setup;
+    private final File uploadDir;
+    private final Map<String, WarmVocabulary> vocabularies = new ConcurrentHashMap<String, WarmVocabulary>();
+    private HttpServer server;
+
+    AnalysisDaemon(BatchEvaluation.Setup setup, File uploadDir) {
+        this.setup = setup;
+        this.uploadDir = uploadDir;
+    }
+
+    void start(int port, int threads) throws IOException {
+        if (!uploadDir.isDirectory() && !uploadDir.mkdirs()) {
+            throw new IOException("Could not create upload directory " +uploadDir);
+        }
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("localhost"), port), 0);
+        server.createContext(CONTEXT_PATH, new VocabularyHandler());
+        server.setExecutor(Executors.newFixedThreadPool(threads, new DaemonThreadFactory("qskos-daemon")));
+        server.start();
+
+        logger.info("Listening on port " +server.getAddress().getPort());
+    }
+
+    void stop() {
+        server.stop(0);
+        for (String name : vocabularies.keySet()) {
+            unregister(name);
+        }
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Registers the vocabulary contained in the passed file, or loads a new version if a vocabulary of that
+     * name is already registered.
+     */
+    void register(String name, File vocabFile) throws OpenRDFException {
+        WarmVocabulary vocabulary = vocabularies.get(name);
+        if (vocabulary != null) {
+            vocabulary.load(vocabFile);
+            return;
+        }
+
+        // only loaded vocabularies are visible to reports
+        vocabulary = new WarmVocabulary();
+        vocabulary.load(vocabFile);
+        WarmVocabulary replacedVocabulary = vocabularies.put(name, vocabulary);
+        if (replacedVocabulary != null) {
+            replacedVocabulary.close();
+        }
+    }
+
+    boolean unregister(String name) {
+        WarmVocabulary vocabulary = vocabularies.remove(name);
+        if (vocabulary == null) return false;
+
+        vocabulary.close();
+        return true;
+    }
+
+    private class WarmVocabulary {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private QSkos qskos;
+        private Repository repository;
+        private RepositoryConnection repCon;
+        private Collection<Issue> defaultIssues;
+
+        void load(File vocabFile) throws OpenRDFException {
+            Repository newRepository = setup.createRepository(vocabFile);
+            RepositoryConnection newRepCon = newRepository.getConnection();
+
+            lock.writeLock().lock();
+            try {
+                if (qskos == null) {
+                    QSkos newQSkos = new QSkos();
+                    newQSkos.setRepositoryConnection(newRepCon);
+                    defaultIssues = setup.configure(newQSkos);
+                    qskos = newQSkos;
+                }
+                else {
+                    logger.info("Updating results, " +qskos.updateRepositoryConnection(newRepCon));
+                    closeRepository();
+                }
+
+                repository = newRepository;
+                repCon = newRepCon;
+            }
+            catch (OpenRDFException e) {
+                newRepCon.close();
+                newRepository.shutDown();
+                throw e;
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        String generateReport(String issueIds, boolean extensive)
+            throws OpenRDFException, IOException, InterruptedException, ExecutionException
+        {
+            Collection<Issue> issues;
+            lock.readLock().lock();
+            try {
+                issues = selectIssues(issueIds);
+                if (hasResults(issues)) {
+                    return generateTextReport(issues, extensive);
+                }
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+
+            // evaluation is exclusive, concurrent evaluations would fuse the same statement scans
+            lock.writeLock().lock();
+            try {
+                for (Future<?> evaluation : qskos.evaluate(issues).values()) {
+                    evaluation.get();
+                }
+
+                // downgrade, other reports can be generated as soon as the results are available
+                lock.readLock().lock();
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                return generateTextReport(issues, extensive);
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private Collection<Issue> selectIssues(String issueIds) {
+            if (issueIds == null || issueIds.isEmpty()) {
+                return defaultIssues;
+            }
+            return qskos.getIssues(issueIds);
+        }
+
+        private boolean hasResults(Collection<Issue> issues) {
+            for (Issue issue : issues) {
+                if (!issue.hasResult()) return false;
+            }
+            return true;
+        }
+
+        private String generateTextReport(Collection<Issue> issues, boolean extensive) throws IOException {
+            StringWriter stringWriter = new StringWriter();
+            BufferedWriter reportWriter = new BufferedWriter(stringWriter);
+
+            for (Issue issue : issues) {
+                reportWriter.write("--- " +issue.getName());
+                reportWriter.newLine();
+                try {
+                    issue.getResult();
+                    issue.getReport().generateReport(reportWriter, Report.ReportFormat.TXT, Report.ReportStyle.SHORT);
+                    if (extensive) {
+                        reportWriter.newLine();
+                        issue.getReport().generateReport(reportWriter, Report.ReportFormat.TXT, Report.ReportStyle.EXTENSIVE);
+                    }
+                }
+                catch (OpenRDFException e) {
+                    reportWriter.write("Error evaluating issue: " +e.getMessage());
+                }
+                reportWriter.newLine();
+            }
+
+            reportWriter.close();
+            return stringWriter.toString();
+        }
+
+        void close() {
+            lock.writeLock().lock();
+            try {
+                closeRepository();
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void closeRepository() {
+            if (repository == null) return;
+
+            try {
+                repCon.close();
+                repository.shutDown();
+            }
+            catch (OpenRDFException e) {
+                logger.warn("Error closing repository: " +e.getMessage());
+            }
+            repository = null;
+            repCon = null;
+        }
+    }
+
+    private class VocabularyHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String path = exchange.getRequestURI().getPath().substring(CONTEXT_PATH.length());
+                String method = exchange.getRequestMethod();
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+                // the context also receives paths that merely start with its name
+                if (!path.isEmpty() && !path.startsWith("/")) {
+                    respond(exchange, 404, "Not found");
+                }
+                else if (path.isEmpty() || path.equals("/")) {
+                    if (method.equals("GET")) {
+                        respond(exchange, 200, listVocabularies());
+                    }
+                    else {
+                        respond(exchange, 405, "Method not allowed");
+                    }
+                }
+                else if (path.endsWith(REPORT_PATH) && method.equals("GET")) {
+                    handleReport(exchange, path.substring(1, path.length() - REPORT_PATH.length()), params);
+                }
+                else if (method.equals("PUT")) {
+                    handleRegister(exchange, path.substring(1), params);
+                }
+                else if (method.equals("DELETE")) {
+                    if (unregister(path.substring(1))) {
+                        respond(exchange, 200, "Removed");
+                    }
+                    else {
+                        respond(exchange, 404, "Unknown vocabulary");
+                    }
+                }
+                else {
+                    respond(exchange, 405, "Method not allowed");
+                }
+            }
+            catch (Exception e) {
+                // also covers errors evaluating issues or loading vocabularies
+                logger.error("Error handling request " +exchange.getRequestURI(), e);
+                respond(exchange, 500, "Error: " +e.getMessage());
+            }
+            finally {
+                exchange.close();
+            }
+        }
+
+        private String listVocabularies() {
+            StringBuilder list = new StringBuilder();
+            for (String name : new TreeSet<String>(vocabularies.keySet())) {
+                list.append(name).append("\n");
+            }
+            return list.toString();
+        }
+
+        private void handleReport(HttpExchange exchange, String name, Map<String, String> params)
+            throws OpenRDFException, IOException, InterruptedException
+        {
+            WarmVocabulary vocabulary = vocabularies.get(name);
+            if (vocabulary == null) {
+                respond(exchange, 404, "Unknown vocabulary");
+                return;
+            }
+
+            try {
+                respond(exchange, 200, vocabulary.generateReport(
+                    params.get("issues"),
+                    "extensive".equals(params.get("style"))));
+            }
+            catch (UnknownIssueIdException e) {
+                respond(exchange, 400, e.getMessage());
+            }
+            catch (ExecutionException e) {
+                throw new IOException("Error evaluating issues", e.getCause());
+            }
+        }
+
+        private void handleRegister(HttpExchange exchange, String name, Map<String, String> params)
+            throws IOException, OpenRDFException
+        {
+            if (name.isEmpty() || name.contains("/")) {
+                respond(exchange, 400, "Invalid vocabulary name");
+                return;
+            }
+
+            long startTime = System.currentTimeMillis();
+            if (params.containsKey("file")) {
+                register(name, new File(params.get("file")));
+            }
+            else {
+                // keeps the name's extension, which determines the format
+                File uploadedFile = File.createTempFile("upload", "-" +name, uploadDir);
+                try {
+                    copy(exchange.getRequestBody(), uploadedFile);
+                    register(name, uploadedFile);
+                }
+                finally {
+                    uploadedFile.delete();
+                }
+            }
+            respond(exchange, 200, "Loaded in " +(System.currentTimeMillis() - startTime)+ " ms");
+        }
+
+        private void copy(InputStream in, File file) throws IOException {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+            }
+            finally {
+                out.close();
+            }
+        }
+
+        private Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+            Map<String, String> params = new HashMap<String, String>();
+            if (query == null) return params;
+
+            for (String param : query.split("&")) {
+                int separatorPos = param.indexOf('=');
+                if (separatorPos == -1) {
+                    params.put(URLDecoder.decode(param, "UTF-8"), "");
+                }
+                else {
+                    params.put(
+                        URLDecoder.decode(param.substring(0, separatorPos), "UTF-8"),
+                        URLDecoder.decode(param.substring(separatorPos + 1), "UTF-8"));
+                }
+            }
+            return params;
+        }
+
+        private void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package at.ac.univie.mminf.qskos4j.cmd;
+
+import at.ac.univie.mminf.qskos4j.BatchEvaluation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+class BatchReportCollector {
+
+    private Logger logger = LoggerFactory.getLogger(BatchReportCollector.class);
+
+    /**
+     * Outputs the report of each vocabulary as soon as it is available, in the order the vocabularies have been
+     * passed, followed by a summary table with one row per vocabulary.
+     */
+    void outputReports(List<Future<BatchEvaluation.VocabularyReport>> evaluations) {
+        List<BatchEvaluation.VocabularyReport> vocabularyReports = new ArrayList<BatchEvaluation.VocabularyReport>();
+
+        for (Future<BatchEvaluation.VocabularyReport> evaluation : evaluations) {
+            try {
+                BatchEvaluation.VocabularyReport vocabularyReport = evaluation.get();
+                outputVocabularyReport(vocabularyReport);
+                vocabularyReports.add(vocabularyReport);
+            }
+            catch (ExecutionException execEx) {
+                logger.error("Error getting vocabulary report", execEx.getCause());
+            }
+            catch (InterruptedException interruptedEx) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while waiting for vocabulary evaluation");
+                return;
+            }
+        }
+
+        outputSummaryTable(vocabularyReports);
+    }
+
+    private void outputVocabularyReport(BatchEvaluation.VocabularyReport vocabularyReport) {
+        System.out.println("=== " +vocabularyReport.getVocabFile());
+
+        if (vocabularyReport.getError() != null) {
+            System.out.println("Error evaluating vocabulary: " +vocabularyReport.getError().getMessage());
+            System.out.println();
+            return;
+        }
+
+        for (BatchEvaluation.IssueReport issueReport : vocabularyReport.getIssueReports()) {
+            System.out.println("--- " +issueReport.getIssueName());
+
+            if (issueReport.getError() != null) {
+                System.out.println("Error evaluating issue: " +issueReport.getError().getMessage());
+                continue;
+            }
+
+            System.out.println(issueReport.getShortReport());
+            if (issueReport.getExtensiveReport() != null) {
+                System.out.println(issueReport.getExtensiveReport());
+            }
+        }
+        System.out.println();
+    }
+
+    private void outputSummaryTable(List<BatchEvaluation.VocabularyReport> vocabularyReports) {
+        Set<String> issueIds = new LinkedHashSet<String>();
+        for (BatchEvaluation.VocabularyReport vocabularyReport : vocabularyReports) {
+            for (BatchEvaluation.IssueReport issueReport : vocabularyReport.getIssueReports()) {
+                issueIds.add(issueReport.getIssueId());
+            }
+        }
+
+        System.out.print("Vocabulary;");
+        for (String issueId : issueIds) {
+            System.out.print(issueId + ";");
+        }
+        System.out.println("Time (ms)");
+
+        for (BatchEvaluation.VocabularyReport vocabularyReport : vocabularyReports) {
+            System.out.print(vocabularyReport.getVocabFile() + ";");
+            for (String issueId : issueIds) {
+                System.out.print(getSummaryCell(vocabularyReport, issueId) + ";");
+            }
+            System.out.println(vocabularyReport.getError() != null ? "error" : vocabularyReport.getEvaluationMillis());
+        }
+    }
+
+    private String getSummaryCell(BatchEvaluation.VocabularyReport vocabularyReport, String issueId) {
+        for (BatchEvaluation.IssueReport issueReport : vocabularyReport.getIssueReports()) {
+            if (issueReport.getIssueId().equals(issueId)) {
+                if (issueReport.getError() != null) {
+                    return "error";
+                }
+                return issueReport.getShortReport().trim().replaceAll("\\s*\\n\\s*", ", ").replace(';', ',');
+            }
+        }
+        return "";
+    }
+
+}
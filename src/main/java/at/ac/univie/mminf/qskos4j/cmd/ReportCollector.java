@@ -12,6 +12,8 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 class ReportCollector {
 
@@ -115,12 +117,17 @@ class ReportCollector {
         return report.substring(sizeDescPos + WCC_SIZE_DESC.length(), newLinePos);
     }
 
-    void outputIssuesReport(boolean outputExtendedReport, boolean shouldWriteGraphs)
+    void outputIssuesReport(
+        Map<Issue, Future<?>> evaluations,
+        boolean outputExtendedReport,
+        boolean shouldWriteGraphs)
     {
         for (Issue issue : issues) {
             System.out.println("--- " +issue.getName());
 
             try {
+                waitForEvaluation(evaluations.get(issue));
+
                 StringWriter stringWriter = new StringWriter();
                 BufferedWriter reportStringWriter = new BufferedWriter(stringWriter);
                 issue.getReport().generateReport(reportStringWriter, Report.ReportFormat.TXT, Report.ReportStyle.SHORT);
@@ -145,6 +152,20 @@ class ReportCollector {
             catch (IOException ioEx) {
                 logger.error("Error generating report output", ioEx);
             }
+            catch (ExecutionException execEx) {
+                logger.error("Error getting issue report", execEx.getCause());
+            }
+            catch (InterruptedException interruptedEx) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while waiting for issue evaluation");
+                return;
+            }
+        }
+    }
+
+    private void waitForEvaluation(Future<?> evaluation) throws ExecutionException, InterruptedException {
+        if (evaluation != null) {
+            evaluation.get();
         }
     }
 
@@ -1,8 +1,15 @@
 package at.ac.univie.mminf.qskos4j.cmd;
 
+import at.ac.univie.mminf.qskos4j.BatchEvaluation;
 import at.ac.univie.mminf.qskos4j.QSkos;
 import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.issues.StatementScanIssue;
+import at.ac.univie.mminf.qskos4j.issues.inlinks.InLinkCache;
+import at.ac.univie.mminf.qskos4j.issues.outlinks.BrokenLinks;
+import at.ac.univie.mminf.qskos4j.util.url.LinkCache;
+import at.ac.univie.mminf.qskos4j.util.url.UrlDereferencer;
 import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import at.ac.univie.mminf.qskos4j.util.vocab.SnapshotCache;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
@@ -25,6 +32,8 @@ public class VocEvaluate {
 	private CommandSummarize parsedCommand;
     private QSkos qskos;
     private ReportCollector reportCollector;
+    private LinkCache linkCache;
+    private InLinkCache inLinkCache;
 	
 	@Parameter(names = {"-v", "--version"}, description = "Outputs version of the tool")
 	private boolean outputVersion = false;
@@ -33,7 +42,7 @@ public class VocEvaluate {
 	private class CommandSummarize {
 
         @SuppressWarnings("unused")
-		@Parameter(description = "vocabularyfile")
+		@Parameter(description = "vocabularyfile [vocabularyfile ...]")
 		private List<String> vocabFilenames;
 
         @SuppressWarnings("unused")
@@ -58,6 +67,36 @@ public class VocEvaluate {
         @Parameter(names = {"-d", "--debug"}, description = "Enable additional informative/debug output")
         private boolean debug;
 
+        @Parameter(names = {"-p", "--parallelism"}, description = "Number of issues that are evaluated concurrently, also used for parsing N-Triples files")
+        private int parallelism = 1;
+
+        @Parameter(names = {"-inf", "--inferencer"}, description = "Inferencing applied to the vocabulary: rdfs, skos (only what the checks need) or none")
+        private String inferencer = "rdfs";
+
+        @Parameter(names = {"-s", "--store"}, description = "Where the vocabulary is stored: memory or native[:directory] (disk-based, an existing store directory is reused)")
+        private String store = "memory";
+
+        @Parameter(names = {"-st", "--streaming"}, description = "Evaluates the vocabulary while parsing it, without loading it into a repository. Issues that need a repository are skipped")
+        private boolean streaming = false;
+
+        @Parameter(names = {"-bs", "--batch-size"}, description = "Number of statements committed at once when loading the vocabulary, 0 loads it in a single transaction")
+        private int batchSize = 0;
+
+        @Parameter(names = {"-cd", "--cache-dir"}, description = "Directory for snapshots of loaded vocabularies, subsequent runs on an unchanged vocabulary restore the snapshot instead of parsing it (memory store only)")
+        private String cacheDir;
+
+        @Parameter(names = {"-cme", "--cache-max-entries"}, description = "Number of snapshots kept in the cache directory, the least recently used ones are deleted")
+        private int cacheMaxEntries = SnapshotCache.DEFAULT_MAX_ENTRIES;
+
+        @Parameter(names = {"-vp", "--vocabulary-parallelism"}, description = "Number of vocabularies that are evaluated concurrently if more than one vocabulary file is given")
+        private int vocabularyParallelism = 1;
+
+        @Parameter(names = {"-dp", "--daemon-port"}, description = "Keeps running and serves reports of registered vocabularies over HTTP on the given local port, the given vocabulary files are registered on startup")
+        private Integer daemonPort;
+
+        @Parameter(names = {"-dt", "--daemon-threads"}, description = "Number of requests the daemon serves concurrently")
+        private int daemonThreads = 4;
+
     }
 	
 	@Parameters(commandNames = CMD_NAME_ANALYZE, commandDescription = "Analyzes quality issues of a given vocabulary")
@@ -70,6 +109,29 @@ public class VocEvaluate {
 		@Parameter(names = {"-e", "--extensive"}, description = "Output extensive report")
 		private boolean extensiveReport = false;
 		
+		@Parameter(names = {"-lc", "--link-check-concurrency"}, description = "Number of links checked at the same time when finding broken links, links on the same host are checked one after another")
+		private int linkCheckConcurrency = BrokenLinks.DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+		@Parameter(names = {"-lch", "--link-check-connections-per-host"}, description = "Number of pooled connections to a single host used when finding broken links")
+		private int linkCheckConnectionsPerHost = UrlDereferencer.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+        @SuppressWarnings("unused")
+		@Parameter(names = {"-lcf", "--link-cache-file"}, description = "File that stores the results of link checks, subsequent runs only check new links and links whose result has expired")
+		private String linkCacheFilename;
+
+		@Parameter(names = {"-lct", "--link-cache-ttl"}, description = "Hours after which a cached link check result is revalidated")
+		private long linkCacheTtlHours = LinkCache.DEFAULT_TTL_MILLIS / (60 * 60 * 1000);
+
+		@Parameter(names = {"-lcm", "--link-cache-max-entries"}, description = "Number of link check results kept in the link cache file, the least recently used ones are dropped")
+		private int linkCacheMaxEntries = LinkCache.DEFAULT_MAX_ENTRIES;
+
+        @SuppressWarnings("unused")
+		@Parameter(names = {"-ilcf", "--inlink-cache-file"}, description = "File that stores the in-link counts returned by SPARQL endpoints, subsequent runs only query new concepts and concepts whose count has expired")
+		private String inLinkCacheFilename;
+
+		@Parameter(names = {"-ilct", "--inlink-cache-ttl"}, description = "Hours after which the in-links of a concept are queried again")
+		private long inLinkCacheTtlHours = InLinkCache.DEFAULT_TTL_MILLIS / (60 * 60 * 1000);
+
 		@Parameter(names = {"-wg", "--write-graphs"}, description = "Writes graphs as .dot files to current directory")
 		private boolean writeGraphs = false;
 
@@ -136,7 +198,10 @@ public class VocEvaluate {
 		
 	private void listIssuesOrEvaluate() throws OpenRDFException, IOException
 	{
-		if (parsedCommand.vocabFilenames == null) {
+        if (parsedCommand.daemonPort != null) {
+            runDaemon();
+        }
+		else if (parsedCommand.vocabFilenames == null) {
 			if (parsedCommand instanceof CommandAnalyze) {
 				outputIssueDetails(Issue.IssueType.ANALYTICAL);
 			}
@@ -170,39 +235,193 @@ public class VocEvaluate {
 	
 	private void evaluate() throws OpenRDFException, IOException
 	{
+        if (parsedCommand.vocabFilenames.size() > 1) {
+            evaluateBatch();
+            return;
+        }
+
+        if (parsedCommand.streaming) {
+            evaluateStreaming();
+            return;
+        }
+
 		setup();
 
-        reportCollector = new ReportCollector(extractMeasures());
+        Collection<Issue> issues = extractMeasures(qskos);
+        reportCollector = new ReportCollector(issues);
 
         if (uriTrackingEnabled()) {
             reportCollector.outputURITrackingReport(new File(((CommandAnalyze) parsedCommand).uriTrackFilename));
         }
         else {
-            reportCollector.outputIssuesReport(shouldOutputExtReport(), shouldWriteGraphs());
+            reportCollector.outputIssuesReport(
+                qskos.evaluate(issues),
+                shouldOutputExtReport(),
+                shouldWriteGraphs());
         }
 	}
 	
+    private void evaluateStreaming() throws OpenRDFException, IOException
+    {
+        if (uriTrackingEnabled() || parsedCommand.enableSkosXl) {
+            throw new ParameterException("URI tracking and SKOSXL support are not available in streaming mode");
+        }
+
+        setupLogging();
+        qskos.setParallelism(parallelism());
+
+        List<StatementScanIssue<?>> streamedIssues = new ArrayList<StatementScanIssue<?>>();
+        for (Issue issue : extractMeasures(qskos)) {
+            if (issue instanceof StatementScanIssue && ((StatementScanIssue) issue).isStreamable()) {
+                streamedIssues.add((StatementScanIssue<?>) issue);
+            }
+            else {
+                System.out.println("Skipping issue '" +issue.getId()+ "', it is not supported in streaming mode");
+            }
+        }
+
+        RepositoryBuilder.streamFile(
+            new File(parsedCommand.vocabFilenames.get(0)),
+            null,
+            null,
+            StatementScanIssue.createStreamingHandler(streamedIssues));
+
+        Collection<Issue> issues = new ArrayList<Issue>(streamedIssues);
+        reportCollector = new ReportCollector(issues);
+        reportCollector.outputIssuesReport(qskos.evaluate(issues), shouldOutputExtReport(), shouldWriteGraphs());
+    }
+
+    private void evaluateBatch() throws OpenRDFException, IOException
+    {
+        if (uriTrackingEnabled() || parsedCommand.streaming || shouldWriteGraphs()) {
+            throw new ParameterException("URI tracking, streaming and graph output are only available for a single vocabulary");
+        }
+        if (parsedCommand.store.startsWith("native:")) {
+            throw new ParameterException("A native store directory can only be used for a single vocabulary");
+        }
+        if (parsedCommand.vocabularyParallelism < 1) {
+            throw new ParameterException("Vocabulary parallelism must be at least 1");
+        }
+
+        setupLogging();
+        // fails early on unknown issue IDs
+        extractMeasures(qskos);
+
+        List<File> vocabFiles = new ArrayList<File>();
+        for (String vocabFilename : parsedCommand.vocabFilenames) {
+            vocabFiles.add(new File(vocabFilename));
+        }
+
+        BatchEvaluation batchEvaluation = new BatchEvaluation(createEvaluationSetup(), parsedCommand.vocabularyParallelism);
+        batchEvaluation.setExtensiveReports(shouldOutputExtReport());
+
+        new BatchReportCollector().outputReports(batchEvaluation.submit(vocabFiles));
+    }
+
+    private void runDaemon() throws OpenRDFException, IOException
+    {
+        if (uriTrackingEnabled() || parsedCommand.streaming || shouldWriteGraphs()) {
+            throw new ParameterException("URI tracking, streaming and graph output are not available in daemon mode");
+        }
+        if (parsedCommand.store.startsWith("native:")) {
+            throw new ParameterException("A native store directory can not be used in daemon mode");
+        }
+        if (parsedCommand.daemonThreads < 1) {
+            throw new ParameterException("Daemon threads must be at least 1");
+        }
+
+        setupLogging();
+        // fails early on unknown issue IDs
+        extractMeasures(qskos);
+
+        AnalysisDaemon daemon = new AnalysisDaemon(
+            createEvaluationSetup(),
+            new File(System.getProperty("java.io.tmpdir"), "qskos-daemon"));
+
+        if (parsedCommand.vocabFilenames != null) {
+            for (String vocabFilename : parsedCommand.vocabFilenames) {
+                File vocabFile = new File(vocabFilename);
+                daemon.register(vocabFile.getName(), vocabFile);
+            }
+        }
+
+        // the server's dispatcher thread keeps the JVM running
+        daemon.start(parsedCommand.daemonPort, parsedCommand.daemonThreads);
+        System.out.println("Serving reports on http://localhost:" +daemon.getPort()+ "/vocabularies");
+    }
+
+    private BatchEvaluation.Setup createEvaluationSetup() {
+        return new BatchEvaluation.Setup() {
+            @Override
+            public Repository createRepository(File vocabFile) throws OpenRDFException {
+                return setUpRepository(createRepositoryBuilder(), vocabFile);
+            }
+
+            @Override
+            public Collection<Issue> configure(QSkos qskos) throws OpenRDFException {
+                configureQSkos(qskos);
+                return extractMeasures(qskos);
+            }
+        };
+    }
+
 	private void setup() throws OpenRDFException, IOException {
         setupLogging();
 
-        RepositoryBuilder repositoryBuilder = new RepositoryBuilder();
-        Repository repo = repositoryBuilder.setUpFromFile(new File(parsedCommand.vocabFilenames.get(0)), null, null);
+        Repository repo = setUpRepository(createRepositoryBuilder(), new File(parsedCommand.vocabFilenames.get(0)));
         qskos.setRepositoryConnection(repo.getConnection());
+        configureQSkos(qskos);
+
+        if (!uriTrackingEnabled() && !parsedCommand.noProgressBar && parallelism() == 1) {
+            qskos.setProgressMonitor(new ConsoleProgressMonitor());
+        }
+    }
+
+    private RepositoryBuilder createRepositoryBuilder() {
+        RepositoryBuilder repositoryBuilder = new RepositoryBuilder();
+        repositoryBuilder.setInferencerType(inferencerType());
+        repositoryBuilder.setLoadParallelism(parallelism());
+        repositoryBuilder.setBatchSize(parsedCommand.batchSize);
+        repositoryBuilder.setSkosXlSupport(parsedCommand.enableSkosXl);
+        if (parsedCommand.cacheDir != null) {
+            repositoryBuilder.setSnapshotCache(
+                new SnapshotCache(new File(parsedCommand.cacheDir), parsedCommand.cacheMaxEntries));
+        }
+        return repositoryBuilder;
+    }
+
+    private void configureQSkos(QSkos qskos) throws OpenRDFException {
+        qskos.setParallelism(parallelism());
 		qskos.setAuthResourceIdentifier(parsedCommand.authoritativeResourceIdentifier);
 		qskos.addSparqlEndPoint("http://sparql.sindice.com/sparql");
         qskos.addSparqlEndPoint("http://semantic.ckan.net/sparql");
 
         if (parsedCommand instanceof CommandAnalyze) {
 			qskos.setSubsetSize(((CommandAnalyze) parsedCommand).randomSubsetSize_percent);
+            qskos.setMaxConcurrentLinkChecks(linkCheckConcurrency());
+            qskos.setMaxLinkCheckConnectionsPerHost(linkCheckConnectionsPerHost());
+            qskos.setLinkCache(linkCache());
+            qskos.setInLinkCache(inLinkCache());
 		}
-		
-		if (parsedCommand.enableSkosXl) {
-            repositoryBuilder.enableSkosXlSupport();
-		}
+    }
 
-        if (!uriTrackingEnabled() && !parsedCommand.noProgressBar) {
-            qskos.setProgressMonitor(new ConsoleProgressMonitor());
+    private Repository setUpRepository(RepositoryBuilder repositoryBuilder, File vocabFile) throws OpenRDFException {
+        String store = parsedCommand.store;
+
+        if (store.equals("memory")) {
+            return repositoryBuilder.setUpFromFile(vocabFile, null, null);
+        }
+        if (parsedCommand.cacheDir != null) {
+            throw new ParameterException("The snapshot cache can only be used with the memory store");
         }
+        if (store.equals("native")) {
+            return repositoryBuilder.setUpNative(null, vocabFile, null, null);
+        }
+        if (store.startsWith("native:") && store.length() > "native:".length()) {
+            return repositoryBuilder.setUpNative(new File(store.substring("native:".length())), vocabFile, null, null);
+        }
+
+        throw new ParameterException("Unknown store '" +store+ "'");
     }
 
     private void setupLogging() {
@@ -211,6 +430,71 @@ public class VocEvaluate {
         }
     }
 
+    private int parallelism() {
+        if (parsedCommand.parallelism < 1) {
+            throw new ParameterException("Parallelism must be at least 1");
+        }
+        return parsedCommand.parallelism;
+    }
+
+    private int linkCheckConcurrency() {
+        int linkCheckConcurrency = ((CommandAnalyze) parsedCommand).linkCheckConcurrency;
+        if (linkCheckConcurrency < 1) {
+            throw new ParameterException("Link check concurrency must be at least 1");
+        }
+        return linkCheckConcurrency;
+    }
+
+    private int linkCheckConnectionsPerHost() {
+        int linkCheckConnectionsPerHost = ((CommandAnalyze) parsedCommand).linkCheckConnectionsPerHost;
+        if (linkCheckConnectionsPerHost < 1) {
+            throw new ParameterException("Link check connections per host must be at least 1");
+        }
+        return linkCheckConnectionsPerHost;
+    }
+
+    // shared by all vocabularies of a batch or daemon
+    private synchronized LinkCache linkCache() {
+        CommandAnalyze commandAnalyze = (CommandAnalyze) parsedCommand;
+        if (commandAnalyze.linkCacheFilename == null) return null;
+
+        if (commandAnalyze.linkCacheMaxEntries < 1) {
+            throw new ParameterException("Link cache max entries must be at least 1");
+        }
+        if (linkCache == null) {
+            linkCache = new LinkCache(
+                new File(commandAnalyze.linkCacheFilename),
+                commandAnalyze.linkCacheTtlHours * 60 * 60 * 1000,
+                commandAnalyze.linkCacheMaxEntries);
+            linkCache.load();
+        }
+        return linkCache;
+    }
+
+    // shared by all vocabularies of a batch or daemon
+    private synchronized InLinkCache inLinkCache() {
+        CommandAnalyze commandAnalyze = (CommandAnalyze) parsedCommand;
+        if (commandAnalyze.inLinkCacheFilename == null) return null;
+
+        if (inLinkCache == null) {
+            inLinkCache = new InLinkCache(
+                new File(commandAnalyze.inLinkCacheFilename),
+                commandAnalyze.inLinkCacheTtlHours * 60 * 60 * 1000,
+                InLinkCache.DEFAULT_MAX_ENTRIES);
+            inLinkCache.load();
+        }
+        return inLinkCache;
+    }
+
+    private RepositoryBuilder.InferencerType inferencerType() {
+        try {
+            return RepositoryBuilder.InferencerType.valueOf(parsedCommand.inferencer.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            throw new ParameterException("Unknown inferencer '" +parsedCommand.inferencer+ "'");
+        }
+    }
+
     private boolean uriTrackingEnabled() {
         return parsedCommand instanceof CommandAnalyze && ((CommandAnalyze) parsedCommand).uriTrackFilename != null;
     }
@@ -223,7 +507,7 @@ public class VocEvaluate {
 		return parsedCommand instanceof CommandAnalyze && ((CommandAnalyze) parsedCommand).writeGraphs;
 	}
 	
-	private Collection<Issue> extractMeasures()
+	private Collection<Issue> extractMeasures(QSkos qskos)
 	{
 		Collection<Issue> resultingIssues;
 
@@ -234,17 +518,17 @@ public class VocEvaluate {
 			resultingIssues = selectedIssues;
 		}
 		else if (!excludedIssues.isEmpty()) {
-			resultingIssues = getAllIssuesForCommand();
+			resultingIssues = getAllIssuesForCommand(qskos);
 			resultingIssues.removeAll(excludedIssues);
 		}
 		else {
-			resultingIssues = getAllIssuesForCommand();
+			resultingIssues = getAllIssuesForCommand(qskos);
 		}
 		
 		return resultingIssues;
 	}
 	
-	private Collection<Issue> getAllIssuesForCommand() {
+	private Collection<Issue> getAllIssuesForCommand(QSkos qskos) {
 		List<Issue> issuesForCommand = new ArrayList<Issue>();
 		
 		for (Issue issue : qskos.getAllIssues()) {
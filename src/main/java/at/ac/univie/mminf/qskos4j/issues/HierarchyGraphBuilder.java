@@ -1,101 +1,35 @@
 package at.ac.univie.mminf.qskos4j.issues;
 
-import at.ac.univie.mminf.qskos4j.util.graph.NamedEdge;
-import at.ac.univie.mminf.qskos4j.util.vocab.SkosOntology;
-import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
-import org.jgrapht.graph.DirectedMultigraph;
+import at.ac.univie.mminf.qskos4j.util.graph.HierarchyGraph;
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
 import org.openrdf.OpenRDFException;
-import org.openrdf.model.Resource;
-import org.openrdf.model.URI;
-import org.openrdf.model.Value;
-import org.openrdf.query.BindingSet;
-import org.openrdf.query.QueryEvaluationException;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQueryResult;
 import org.openrdf.repository.RepositoryConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.Iterator;
-
+/**
+ * Provides the {@link HierarchyGraph} of the vocabulary to all hierarchy-based issues. The graph is created only once
+ * per repository connection and can safely be used by several issues at the same time.
+ */
 public class HierarchyGraphBuilder {
 
     private final Logger logger = LoggerFactory.getLogger(HierarchyGraphBuilder.class);
 
-	private DirectedMultigraph<Value, NamedEdge> graph = new DirectedMultigraph<Value, NamedEdge>(NamedEdge.class);
     private RepositoryConnection repCon;
+    private HierarchyGraph graph;
 
-	public DirectedMultigraph<Value, NamedEdge> createGraph() throws OpenRDFException
+	public synchronized HierarchyGraph getGraph() throws OpenRDFException
 	{
-        logger.debug("Creating hierarchy graph");
-
-        addResultsToGraph(findTriples(SkosOntology.SKOS_BROADER_PROPERTIES), false);
-        addResultsToGraph(findTriples(SkosOntology.SKOS_NARROWER_PROPERTIES), true);
-        return graph;
-	}
-	
-	private TupleQueryResult findTriples(URI[] skosHierarchyProperties) throws OpenRDFException
-	{
-		    String query = createHierarchicalGraphQuery(skosHierarchyProperties);
-            return repCon.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate();
-	}
-	
-	private String createHierarchicalGraphQuery(URI[] skosHierarchyProperties) {
-		return SparqlPrefix.SKOS +" "+ SparqlPrefix.RDFS +
-			"SELECT DISTINCT ?resource ?otherResource "+
-			"WHERE {" +
-                "{" +
-                    "?resource ?prop ?otherResource ." +
-                    "?prop rdfs:subPropertyOf ?hierProp" +
-                "}" +
-                "FILTER (?hierProp IN " +createHierarchyPropertyList(skosHierarchyProperties) +")" +
-            "}";
-	}
-
-    private String createHierarchyPropertyList(URI[] skosHierarchyProperties) {
-        String propertyList = "(";
-        Iterator<URI> propIt = Arrays.asList(skosHierarchyProperties).iterator();
-        while (propIt.hasNext()) {
-            propertyList += "<"+ propIt.next().stringValue() +">"+ (propIt.hasNext() ? ", " : ")");
+        if (graph == null) {
+            logger.debug("Creating hierarchy graph");
+            graph = HierarchyGraph.create(SkosIndex.getInstance(repCon));
         }
-        return propertyList;
-    }
-	
-	private void addResultsToGraph(TupleQueryResult result, boolean invertEdges) 
-		throws QueryEvaluationException
-	{	
-		while (result.hasNext()) {
-			BindingSet bindingSet = result.next();
-			
-			addToGraph(
-				bindingSet.getValue("resource"), 
-				bindingSet.getValue("otherResource"), 
-				invertEdges);
-		}
-	}
-	
-	private void addToGraph(
-		Value resource, 
-		Value otherResource,
-		boolean invertEdges) 
-	{
-		Resource resourceNode = (Resource) resource;		
-		graph.addVertex(resourceNode);
-		
-		Resource otherNode = (Resource) otherResource;
-		graph.addVertex(otherNode);
-
-		if (invertEdges) {
-			graph.addEdge(otherNode, resourceNode, new NamedEdge());
-		}
-		else {
-			graph.addEdge(resourceNode, otherNode, new NamedEdge());
-		}
+        return graph;
 	}
 
-    public void setRepositoryConnection(RepositoryConnection repCon) {
+    public synchronized void setRepositoryConnection(RepositoryConnection repCon) {
         this.repCon = repCon;
+        graph = null;
     }
 
 }
@@ -0,0 +1,21 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.util.vocab.VocabularyDelta;
+import org.openrdf.OpenRDFException;
+
+/**
+ * Implemented by issues whose result can be derived from the result for a previous version of the vocabulary by
+ * re-evaluating only the part affected by the changes, see
+ * {@link Issue#setRepositoryConnection(org.openrdf.repository.RepositoryConnection, VocabularyDelta)}. The updated
+ * result must be the same as the one {@link Issue#computeResult()} would return.
+ */
+public interface IncrementalIssue<T> {
+
+    /**
+     * @param previousResult the result for the previous version of the vocabulary
+     * @param delta the changes between the previous and the current version, never a schema change
+     * @return the result for the current version
+     */
+    T updateResult(T previousResult, VocabularyDelta delta) throws OpenRDFException;
+
+}
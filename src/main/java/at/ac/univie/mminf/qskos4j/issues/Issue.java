@@ -1,23 +1,43 @@
 package at.ac.univie.mminf.qskos4j.issues;
 
 import at.ac.univie.mminf.qskos4j.report.Report;
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
 import at.ac.univie.mminf.qskos4j.util.progress.IProgressMonitor;
 import at.ac.univie.mminf.qskos4j.util.progress.StubProgressMonitor;
+import at.ac.univie.mminf.qskos4j.util.vocab.VocabularyDelta;
 import org.openrdf.OpenRDFException;
+import org.openrdf.query.QueryEvaluationException;
 import org.openrdf.repository.RepositoryConnection;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
 public abstract class Issue<T> {
 
     public enum IssueType {STATISTICAL, ANALYTICAL}
 
+    private final static ExecutorService asyncExecutor =
+        Executors.newCachedThreadPool(new DaemonThreadFactory("qskos-result"));
+
     protected RepositoryConnection repCon;
 
     protected IProgressMonitor progressMonitor = new StubProgressMonitor();
 
     private String id, name, description;
     private IssueType type;
-    private T result;
+    private final AtomicReference<ResultTask> resultTask = new AtomicReference<ResultTask>();
     private Issue dependentIssue;
+    private volatile PendingUpdate<T> pendingUpdate;
 
     public Issue(String id, String name, String description, IssueType type) {
         this.id = id;
@@ -35,11 +55,109 @@ public abstract class Issue<T> {
     protected abstract T computeResult() throws OpenRDFException;
     protected abstract Report generateReport(T preparedData);
 
+    /**
+     * Returns the result of this issue. The result is computed only once, concurrent callers wait for the
+     * computation started by the first caller. If the computation fails, the next call starts a new one.
+     */
     public final T getResult() throws OpenRDFException {
-        if (result == null) {
-            result = computeResult();
+        ResultTask task = startResultTask(null);
+
+        try {
+            return task.get();
+        }
+        catch (ExecutionException e) {
+            throw asOpenRDFException(e.getCause());
+        }
+        catch (CancellationException e) {
+            throw new QueryEvaluationException("Evaluation of issue '" +id+ "' has been cancelled");
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryEvaluationException("Interrupted while waiting for result of issue '" +id+ "'", e);
+        }
+    }
+
+    /**
+     * Starts computing the result of this issue on a shared pool of worker threads (if it is not already being
+     * computed) and returns without waiting for it.
+     */
+    public final Future<T> getResultAsync() {
+        return getResultAsync(asyncExecutor);
+    }
+
+    /**
+     * Starts computing the result of this issue using the passed executor (if it is not already being
+     * computed) and returns without waiting for it.
+     */
+    public final Future<T> getResultAsync(Executor executor) {
+        return startResultTask(executor);
+    }
+
+    /**
+     * @return true if the result of this issue has been computed successfully and not been reset since
+     */
+    public final boolean hasResult() {
+        ResultTask task = resultTask.get();
+        return task != null && task.isDone() && !task.isRetryable();
+    }
+
+    private ResultTask startResultTask(Executor executor) {
+        while (true) {
+            ResultTask task = resultTask.get();
+            if (task != null && !task.isRetryable()) {
+                return task;
+            }
+
+            ResultTask newTask = new ResultTask();
+            if (resultTask.compareAndSet(task, newTask)) {
+                if (executor == null) {
+                    newTask.run();
+                }
+                else {
+                    try {
+                        executor.execute(newTask);
+                    }
+                    catch (RejectedExecutionException e) {
+                        // the task would never run and later callers would wait for it forever
+                        resultTask.compareAndSet(newTask, null);
+                        throw e;
+                    }
+                }
+                return newTask;
+            }
+        }
+    }
+
+    /**
+     * Sets a result that has been computed outside of {@link #computeResult()}, e.g., while the vocabulary was
+     * parsed. A computation that is still in progress is cancelled.
+     */
+    final void setResult(final T result) {
+        ResultTask task = new ResultTask(new Callable<T>() {
+            @Override
+            public T call() {
+                return result;
+            }
+        });
+        task.run();
+
+        ResultTask previousTask = resultTask.getAndSet(task);
+        if (previousTask != null) {
+            previousTask.cancel(true);
         }
-        return result;
+    }
+
+    private OpenRDFException asOpenRDFException(Throwable cause) {
+        if (cause instanceof OpenRDFException) {
+            return (OpenRDFException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new QueryEvaluationException(cause);
     }
 
     public final Report getReport() throws OpenRDFException
@@ -47,8 +165,15 @@ public abstract class Issue<T> {
         return generateReport(getResult());
     }
 
+    /**
+     * Discards the result of this issue. A computation that is still in progress is cancelled.
+     */
     protected final void reset() {
-        result = null;
+        ResultTask task = resultTask.getAndSet(null);
+        if (task != null) {
+            task.cancel(true);
+        }
+
         if (progressMonitor != null) {
             progressMonitor.reset();
         }
@@ -64,7 +189,83 @@ public abstract class Issue<T> {
         }
 
         this.repCon = repCon;
+        pendingUpdate = null;
+        repositoryConnectionChanged(repCon);
+        reset();
+    }
+
+    /**
+     * Sets the connection to a new version of the vocabulary. If this issue is an {@link IncrementalIssue} and has a
+     * result for the previous version, its next result is derived from the previous one and the passed delta
+     * instead of being computed from scratch. Other issues, and all issues if the delta changes the schema, are
+     * reset like by {@link #setRepositoryConnection(RepositoryConnection)}.
+     *
+     * @param delta the changes between the vocabulary of the current and the passed connection
+     */
+    public void setRepositoryConnection(RepositoryConnection repCon, VocabularyDelta delta) {
+        if (dependentIssue != null) {
+            dependentIssue.setRepositoryConnection(repCon, delta);
+        }
+
+        // issues may be shared dependencies of several others and thus be passed the same update repeatedly
+        PendingUpdate<T> update = pendingUpdate;
+        if (update != null && update.delta == delta && this.repCon == repCon) return;
+
+        T previousResult = null;
+        if (this instanceof IncrementalIssue && !delta.isSchemaChange()) {
+            previousResult = getAvailableResult();
+        }
+
+        this.repCon = repCon;
+        repositoryConnectionChanged(repCon);
         reset();
+        pendingUpdate = previousResult != null ? new PendingUpdate<T>(previousResult, delta) : null;
+    }
+
+    /**
+     * Called whenever this issue is passed a new connection, incrementally or not. Issues keeping helpers or
+     * intermediate data derived from the vocabulary must pass on the connection or discard that data here.
+     */
+    protected void repositoryConnectionChanged(RepositoryConnection repCon) {
+    }
+
+    private T getAvailableResult() {
+        if (!hasResult()) return null;
+
+        try {
+            return resultTask.get().get();
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T computeOrUpdateResult() throws OpenRDFException {
+        PendingUpdate<T> update = pendingUpdate;
+        if (update == null) {
+            return computeResult();
+        }
+
+        // a failed update is not retried, the next attempt computes the result from scratch
+        pendingUpdate = null;
+        return ((IncrementalIssue<T>) this).updateResult(update.previousResult, update.delta);
+    }
+
+    /**
+     * @return the issue whose result is needed to compute this issue, or null if there is no such dependency
+     */
+    public Issue getDependentIssue() {
+        return dependentIssue;
+    }
+
+    /**
+     * Helper objects (e.g., a {@link at.ac.univie.mminf.qskos4j.issues.labels.util.ResourceLabelsCollector}) that
+     * this issue shares with other issues. Issues sharing a helper are never evaluated concurrently by the
+     * {@link IssueScheduler}.
+     */
+    public Collection<Object> getSharedHelpers() {
+        return Collections.emptySet();
     }
 
     public String getId() {
@@ -92,4 +293,54 @@ public abstract class Issue<T> {
             ", type=" + type +
             '}';
     }
+
+    private static class PendingUpdate<T> {
+
+        private final T previousResult;
+        private final VocabularyDelta delta;
+
+        PendingUpdate(T previousResult, VocabularyDelta delta) {
+            this.previousResult = previousResult;
+            this.delta = delta;
+        }
+    }
+
+    private class ResultTask extends FutureTask<T> {
+
+        private volatile boolean failed = false;
+
+        ResultTask() {
+            this(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return computeOrUpdateResult();
+                }
+            });
+        }
+
+        ResultTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            super.run();
+
+            if (isCancelled()) {
+                // clear the interrupt caused by cancel(true) so that it does not leak into the calling thread
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            failed = true;
+            super.setException(t);
+        }
+
+        boolean isRetryable() {
+            return failed || isCancelled();
+        }
+    }
+
 }
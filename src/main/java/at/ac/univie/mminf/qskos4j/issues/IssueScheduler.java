@@ -0,0 +1,172 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates a set of issues on a pool of worker threads. The issues are arranged in a dependency graph built from
+ * their dependent issues ({@link Issue#getDependentIssue()}) and the helpers they share with other issues
+ * ({@link Issue#getSharedHelpers()}). An issue is started only after all issues it depends on have finished,
+ * independent issues are evaluated concurrently.
+ */
+public class IssueScheduler {
+
+    private final Logger logger = LoggerFactory.getLogger(IssueScheduler.class);
+
+    private final int parallelism;
+
+    public IssueScheduler(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Starts evaluation of the passed issues and of all issues they depend on.
+     *
+     * @param issues the issues to evaluate
+     * @return a future for each of the passed issues, in iteration order of the passed collection. A future
+     * completes when the respective issue's result has been computed and fails with the exception thrown during
+     * the computation.
+     */
+    public Map<Issue, Future<?>> schedule(Collection<Issue> issues) {
+        List<Issue> orderedIssues = orderByDependencies(issues);
+        Map<Issue, IssueTask> tasks = createTasks(orderedIssues);
+
+        Map<Issue, Future<?>> futures = new LinkedHashMap<Issue, Future<?>>();
+        for (Issue issue : issues) {
+            futures.put(issue, tasks.get(issue));
+        }
+
+        if (!tasks.isEmpty()) {
+            startTasks(tasks.values());
+        }
+        return futures;
+    }
+
+    private List<Issue> orderByDependencies(Collection<Issue> issues) {
+        List<Issue> orderedIssues = new ArrayList<Issue>();
+        Set<Issue> visitedIssues = new HashSet<Issue>();
+
+        for (Issue issue : issues) {
+            Issue dependency = issue;
+            List<Issue> dependencyChain = new ArrayList<Issue>();
+            while (dependency != null && !visitedIssues.contains(dependency)) {
+                visitedIssues.add(dependency);
+                dependencyChain.add(0, dependency);
+                dependency = dependency.getDependentIssue();
+            }
+            orderedIssues.addAll(dependencyChain);
+        }
+
+        return orderedIssues;
+    }
+
+    private Map<Issue, IssueTask> createTasks(List<Issue> orderedIssues) {
+        Map<Issue, IssueTask> tasks = new LinkedHashMap<Issue, IssueTask>();
+        Map<Object, IssueTask> lastTaskUsingHelper = new HashMap<Object, IssueTask>();
+
+        for (Issue issue : orderedIssues) {
+            IssueTask task = new IssueTask(issue);
+
+            if (issue.getDependentIssue() != null) {
+                tasks.get(issue.getDependentIssue()).addSuccessor(task);
+            }
+
+            for (Object helper : (Collection<Object>) issue.getSharedHelpers()) {
+                IssueTask predecessor = lastTaskUsingHelper.put(helper, task);
+                if (predecessor != null && predecessor != tasks.get(issue.getDependentIssue())) {
+                    predecessor.addSuccessor(task);
+                }
+            }
+
+            tasks.put(issue, task);
+        }
+
+        return tasks;
+    }
+
+    private void startTasks(Collection<IssueTask> tasks) {
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(parallelism, tasks.size()),
+            new DaemonThreadFactory("qskos-issue"));
+        AtomicInteger pendingTasks = new AtomicInteger(tasks.size());
+
+        for (IssueTask task : tasks) {
+            task.setExecution(executor, pendingTasks);
+        }
+
+        for (IssueTask task : tasks) {
+            if (task.pendingPredecessors.get() == 0) {
+                executor.execute(task);
+            }
+        }
+    }
+
+    private class IssueTask extends FutureTask<Object> {
+
+        private final Issue issue;
+        private final List<IssueTask> successors = new ArrayList<IssueTask>();
+        private final AtomicInteger pendingPredecessors = new AtomicInteger();
+
+        private ExecutorService executor;
+        private AtomicInteger pendingTasks;
+
+        IssueTask(final Issue issue) {
+            super(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return issue.getResult();
+                }
+            });
+            this.issue = issue;
+        }
+
+        void addSuccessor(IssueTask successor) {
+            successors.add(successor);
+            successor.pendingPredecessors.incrementAndGet();
+        }
+
+        void setExecution(ExecutorService executor, AtomicInteger pendingTasks) {
+            this.executor = executor;
+            this.pendingTasks = pendingTasks;
+        }
+
+        @Override
+        public void run() {
+            logger.debug("Evaluating issue '" +issue.getId()+ "'");
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            for (IssueTask successor : successors) {
+                if (successor.pendingPredecessors.decrementAndGet() == 0) {
+                    executor.execute(successor);
+                }
+            }
+
+            if (pendingTasks.decrementAndGet() == 0) {
+                executor.shutdown();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.util.scan.StatementScanEngine;
+import at.ac.univie.mminf.qskos4j.util.scan.StatementScanHandler;
+import at.ac.univie.mminf.qskos4j.util.scan.StatementVisitor;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.rio.RDFHandlerException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An issue whose result is accumulated by a {@link StatementVisitor} from a scan over all statements of the
+ * repository. Issues of this kind can be fused by calling {@link #fuse(java.util.Collection)}, so that one scan
+ * computes the results of all of them.
+ */
+public abstract class StatementScanIssue<T> extends Issue<T> {
+
+    private final boolean includeInferred;
+    private volatile FusedScan fusedScan;
+
+    public StatementScanIssue(String id, String name, String description, IssueType type, boolean includeInferred) {
+        this(null, id, name, description, type, includeInferred);
+    }
+
+    public StatementScanIssue(
+        Issue dependentIssue,
+        String id,
+        String name,
+        String description,
+        IssueType type,
+        boolean includeInferred)
+    {
+        super(dependentIssue, id, name, description, type);
+        this.includeInferred = includeInferred;
+    }
+
+    protected abstract StatementVisitor<T> createStatementVisitor() throws OpenRDFException;
+
+    @Override
+    protected final T computeResult() throws OpenRDFException {
+        FusedScan scan = fusedScan;
+        if (scan != null && scan.contains(this)) {
+            T result = scan.getResult(this);
+            setFusedScan(null);
+            return result;
+        }
+
+        StatementVisitor<T> visitor = createStatementVisitor();
+        StatementScanEngine scanEngine = new StatementScanEngine(repCon);
+        scanEngine.addVisitor(visitor, includeInferred);
+        scanEngine.scan();
+
+        return visitor.getResult();
+    }
+
+    /**
+     * @return true if the statement visitor of this issue needs to see inferred statements
+     */
+    public boolean includesInferredStatements() {
+        return includeInferred;
+    }
+
+    /**
+     * Arranges that the results of all passed issues are computed by a single scan of the repository. The scan is
+     * performed as soon as the result of one of the issues is requested. The arrangement is dropped when the
+     * repository connection of an issue is changed.
+     *
+     * @param issues issues to compute in one scan
+     */
+    public static void fuse(Collection<? extends StatementScanIssue<?>> issues) {
+        if (issues.size() < 2) return;
+
+        FusedScan scan = new FusedScan(issues);
+        for (StatementScanIssue<?> issue : issues) {
+            issue.setFusedScan(scan);
+        }
+    }
+
+    /**
+     * Replaces the scan computing the result of this issue. The previous scan no longer computes or keeps the
+     * result of this issue.
+     */
+    private void setFusedScan(FusedScan scan) {
+        FusedScan previousScan = fusedScan;
+        fusedScan = scan;
+
+        if (previousScan != null && previousScan != scan) {
+            previousScan.release(this);
+        }
+    }
+
+    /**
+     * @return true if the result of this issue can be computed while the vocabulary is parsed, i.e., it does not
+     * depend on the result of another issue
+     */
+    public boolean isStreamable() {
+        return getDependentIssue() == null;
+    }
+
+    /**
+     * Creates a handler that computes the results of the passed issues from the statements reported by a Rio
+     * parser, without a repository. The results are set as soon as parsing has finished. As there is no
+     * inferencing, the issues only see the statements contained in the parsed document.
+     *
+     * @param issues {@link #isStreamable() streamable} issues to compute
+     */
+    public static StatementScanHandler createStreamingHandler(Collection<? extends StatementScanIssue<?>> issues)
+        throws OpenRDFException
+    {
+        final List<StreamedIssue<?>> streamedIssues = new ArrayList<StreamedIssue<?>>();
+        List<StatementVisitor<?>> visitors = new ArrayList<StatementVisitor<?>>();
+
+        for (StatementScanIssue<?> issue : issues) {
+            if (!issue.isStreamable()) {
+                throw new IllegalArgumentException("Issue '" +issue.getId()+ "' can not be computed while parsing");
+            }
+
+            StreamedIssue<?> streamedIssue = createStreamedIssue(issue);
+            streamedIssues.add(streamedIssue);
+            visitors.add(streamedIssue.visitor);
+        }
+
+        return new StatementScanHandler(visitors) {
+            @Override
+            public void endRDF() throws RDFHandlerException {
+                super.endRDF();
+                for (StreamedIssue<?> streamedIssue : streamedIssues) {
+                    streamedIssue.setResult();
+                }
+            }
+        };
+    }
+
+    private static <T> StreamedIssue<T> createStreamedIssue(StatementScanIssue<T> issue) throws OpenRDFException {
+        return new StreamedIssue<T>(issue, issue.createStatementVisitor());
+    }
+
+    private static class StreamedIssue<T> {
+
+        private final StatementScanIssue<T> issue;
+        private final StatementVisitor<T> visitor;
+
+        StreamedIssue(StatementScanIssue<T> issue, StatementVisitor<T> visitor) {
+            this.issue = issue;
+            this.visitor = visitor;
+        }
+
+        void setResult() {
+            issue.setFusedScan(null);
+            issue.setResult(visitor.getResult());
+        }
+    }
+
+    @Override
+    protected void repositoryConnectionChanged(RepositoryConnection repCon) {
+        setFusedScan(null);
+    }
+
+    private static class FusedScan {
+
+        private Collection<StatementScanIssue<?>> pendingIssues;
+        private Map<StatementScanIssue<?>, Object> results;
+
+        FusedScan(Collection<? extends StatementScanIssue<?>> issues) {
+            pendingIssues = new ArrayList<StatementScanIssue<?>>(issues);
+        }
+
+        synchronized boolean contains(StatementScanIssue<?> issue) {
+            return results != null ? results.containsKey(issue) : pendingIssues.contains(issue);
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized <T> T getResult(StatementScanIssue<T> issue) throws OpenRDFException {
+            if (results == null) {
+                results = scan(issue.repCon);
+                pendingIssues = null;
+            }
+            return (T) results.remove(issue);
+        }
+
+        synchronized void release(StatementScanIssue<?> issue) {
+            if (results != null) {
+                results.remove(issue);
+            }
+            else {
+                pendingIssues.remove(issue);
+            }
+        }
+
+        private Map<StatementScanIssue<?>, Object> scan(RepositoryConnection repCon) throws OpenRDFException {
+            Map<StatementScanIssue<?>, StatementVisitor<?>> visitors =
+                new HashMap<StatementScanIssue<?>, StatementVisitor<?>>();
+
+            StatementScanEngine scanEngine = new StatementScanEngine(repCon);
+            for (StatementScanIssue<?> issue : pendingIssues) {
+                StatementVisitor<?> visitor = issue.createStatementVisitor();
+                scanEngine.addVisitor(visitor, issue.includeInferred);
+                visitors.put(issue, visitor);
+            }
+            scanEngine.scan();
+
+            Map<StatementScanIssue<?>, Object> results = new HashMap<StatementScanIssue<?>, Object>();
+            for (Map.Entry<StatementScanIssue<?>, StatementVisitor<?>> entry : visitors.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().getResult());
+            }
+            return results;
+        }
+    }
+
+}
@@ -2,8 +2,6 @@ package at.ac.univie.mminf.qskos4j.issues.clusters;
 
 import at.ac.univie.mminf.qskos4j.report.CollectionReport;
 import at.ac.univie.mminf.qskos4j.util.graph.GraphExporter;
-import at.ac.univie.mminf.qskos4j.util.graph.NamedEdge;
-import org.jgrapht.DirectedGraph;
 import org.openrdf.model.Value;
 
 import java.io.BufferedWriter;
@@ -14,12 +12,12 @@ import java.util.Set;
 
 public class ClustersReport extends CollectionReport<Set<Value>>
 {
-	private DirectedGraph<Value, NamedEdge> graph;
+	private DisconnectedConceptClusters disconnectedConceptClusters;
     private Collection<Set<Value>> data;
 	
-	ClustersReport(Collection<Set<Value>> data, DirectedGraph<Value, NamedEdge> graph) {
+	ClustersReport(Collection<Set<Value>> data, DisconnectedConceptClusters disconnectedConceptClusters) {
 		super(data);
-		this.graph = graph;
+		this.disconnectedConceptClusters = disconnectedConceptClusters;
         this.data = data;
 	}
 
@@ -52,7 +50,7 @@ public class ClustersReport extends CollectionReport<Set<Value>>
 
     @Override
     public void generateDotReport(BufferedWriter writer) throws IOException {
-        for (String dotGraph : new GraphExporter(graph).exportSubGraphs(data)) {
+        for (String dotGraph : new GraphExporter(disconnectedConceptClusters.getGraph()).exportSubGraphs(data)) {
             writer.write(dotGraph);
             writer.newLine();
         }
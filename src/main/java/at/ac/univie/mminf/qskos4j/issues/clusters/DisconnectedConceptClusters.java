@@ -1,29 +1,38 @@
 package at.ac.univie.mminf.qskos4j.issues.clusters;
 
+import at.ac.univie.mminf.qskos4j.issues.IncrementalIssue;
 import at.ac.univie.mminf.qskos4j.issues.Issue;
 import at.ac.univie.mminf.qskos4j.issues.concepts.InvolvedConcepts;
 import at.ac.univie.mminf.qskos4j.report.Report;
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
+import at.ac.univie.mminf.qskos4j.util.graph.IntUnionFind;
 import at.ac.univie.mminf.qskos4j.util.graph.NamedEdge;
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
 import at.ac.univie.mminf.qskos4j.util.progress.MonitoredIterator;
-import at.ac.univie.mminf.qskos4j.util.vocab.SkosOntology;
-import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
+import at.ac.univie.mminf.qskos4j.util.vocab.VocabularyDelta;
 import org.jgrapht.DirectedGraph;
-import org.jgrapht.alg.ConnectivityInspector;
 import org.jgrapht.graph.DirectedMultigraph;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
-import org.openrdf.query.BindingSet;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQuery;
-import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.QueryEvaluationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by christian
@@ -33,12 +42,21 @@ import java.util.Set;
  * Finds all <a href="https://github.com/cmader/qSKOS/wiki/Quality-Issues#wiki-Disconnected_Concept_Clusters">
  * Disconnected Concept Clusters</a>.
  */
-public class DisconnectedConceptClusters extends Issue<Collection<Set<Value>>> {
+public class DisconnectedConceptClusters extends Issue<Collection<Set<Value>>>
+    implements IncrementalIssue<Collection<Set<Value>>>
+{
 
     private final Logger logger = LoggerFactory.getLogger(DisconnectedConceptClusters.class);
 
-    private DirectedGraph<Value, NamedEdge> graph;
+    public final static int DEFAULT_MIN_EDGES_PER_PARTITION = 100000;
+
     private InvolvedConcepts involvedConcepts;
+    private int parallelism = 1;
+    private int minEdgesPerPartition = DEFAULT_MIN_EDGES_PER_PARTITION;
+
+    private SkosIndex skosIndex;
+    private BitSet conceptIds;
+    private DirectedGraph<Value, NamedEdge> graph;
 
     public DisconnectedConceptClusters(InvolvedConcepts involvedConcepts) {
         super(involvedConcepts,
@@ -52,83 +70,276 @@ public class DisconnectedConceptClusters extends Issue<Collection<Set<Value>>> {
 
     @Override
     protected Collection<Set<Value>> computeResult() throws OpenRDFException {
-        createGraph();
+        SkosIndex skosIndex = SkosIndex.getInstance(repCon);
+        setIndex(skosIndex, findConceptIds(skosIndex));
+
+        IntAdjacency semanticRelations = skosIndex.getRelation(SkosIndex.Relation.SEMANTIC);
+        int edgeCount = 0;
+        for (int conceptId = conceptIds.nextSetBit(0); conceptId >= 0; conceptId = conceptIds.nextSetBit(conceptId + 1)) {
+            edgeCount += semanticRelations.getDegree(conceptId);
+        }
+
+        int[] sources = new int[edgeCount], targets = new int[edgeCount];
+        BitSet vertices = new BitSet(skosIndex.getValueCount());
+        int edge = 0;
+        for (int conceptId = conceptIds.nextSetBit(0); conceptId >= 0; conceptId = conceptIds.nextSetBit(conceptId + 1)) {
+            for (int position = semanticRelations.getStart(conceptId); position < semanticRelations.getEnd(conceptId); position++) {
+                sources[edge] = conceptId;
+                targets[edge] = semanticRelations.getTarget(position);
+                vertices.set(sources[edge]);
+                vertices.set(targets[edge]);
+                edge++;
+            }
+        }
+
+        return createComponents(findComponents(sources, targets, skosIndex.getValueCount()), vertices);
+    }
+
+    /**
+     * Clusters that contain no touched concept are taken over from the previous result. The other clusters are
+     * found by traversing the semantic relations, starting at the touched concepts and the members of the previous
+     * clusters that contained them.
+     */
+    @Override
+    public Collection<Set<Value>> updateResult(Collection<Set<Value>> previousResult, VocabularyDelta delta)
+        throws OpenRDFException
+    {
+        SkosIndex skosIndex = SkosIndex.getInstance(repCon);
+        setIndex(skosIndex, findConceptIds(skosIndex));
+
+        List<Set<Value>> components = new ArrayList<Set<Value>>();
+        BitSet startVertices = new BitSet(skosIndex.getValueCount());
+        for (Set<Value> component : previousResult) {
+            if (delta.isAnyTouched(component)) {
+                addIds(component, startVertices);
+            }
+            else {
+                components.add(component);
+            }
+        }
+        logger.debug("Keeping " +components.size()+ " of " +previousResult.size()+ " concept clusters");
+
+        addIds(delta.getTouchedResources(), startVertices);
+        components.addAll(findComponents(startVertices));
+        return components;
+    }
 
-        return new ConnectivityInspector<Value, NamedEdge>(graph).connectedSets();
+    private void addIds(Collection<? extends Value> values, BitSet ids) {
+        for (Value value : values) {
+            int id = skosIndex.getId(value);
+            if (id != -1) ids.set(id);
+        }
+    }
+
+    /**
+     * Finds the components containing the passed vertices by breadth-first search. Edges are followed in both
+     * directions, but only if they start at a concept, as in {@link #computeResult()}.
+     */
+    private Collection<Set<Value>> findComponents(BitSet startVertices) {
+        IntAdjacency outgoing = skosIndex.getRelation(SkosIndex.Relation.SEMANTIC);
+        IntAdjacency incoming = outgoing.transpose();
+
+        List<Set<Value>> components = new ArrayList<Set<Value>>();
+        BitSet visited = new BitSet(skosIndex.getValueCount());
+        int[] queue = new int[skosIndex.getValueCount()];
+
+        for (int start = startVertices.nextSetBit(0); start >= 0; start = startVertices.nextSetBit(start + 1)) {
+            if (visited.get(start)) continue;
+
+            Set<Value> component = new HashSet<Value>();
+            boolean hasEdges = false;
+            int head = 0, tail = 0;
+            queue[tail++] = start;
+            visited.set(start);
+
+            while (head < tail) {
+                int vertex = queue[head++];
+                component.add(skosIndex.getValue(vertex));
+
+                if (conceptIds.get(vertex)) {
+                    for (int position = outgoing.getStart(vertex); position < outgoing.getEnd(vertex); position++) {
+                        tail = enqueue(outgoing.getTarget(position), visited, queue, tail);
+                        hasEdges = true;
+                    }
+                }
+                for (int position = incoming.getStart(vertex); position < incoming.getEnd(vertex); position++) {
+                    int source = incoming.getTarget(position);
+                    if (conceptIds.get(source)) {
+                        tail = enqueue(source, visited, queue, tail);
+                        hasEdges = true;
+                    }
+                }
+            }
+
+            // vertices without edges are not part of the graph
+            if (hasEdges) {
+                components.add(component);
+            }
+        }
+
+        return components;
+    }
+
+    private int enqueue(int vertex, BitSet visited, int[] queue, int tail) {
+        if (visited.get(vertex)) return tail;
+
+        visited.set(vertex);
+        queue[tail] = vertex;
+        return tail + 1;
     }
 
     @Override
     protected Report generateReport(Collection<Set<Value>> preparedData) {
-        return new ClustersReport(preparedData, graph);
+        return new ClustersReport(preparedData, this);
     }
 
-    private void createGraph()
-            throws OpenRDFException
-    {
-        graph = new DirectedMultigraph<Value, NamedEdge>(NamedEdge.class);
+    /**
+     * Sets the maximum number of threads used to compute the clusters of large vocabularies.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of semantic relations that a thread must at least process, smaller vocabularies are not
+     * worth the overhead of merging partial results.
+     */
+    public void setMinEdgesPerPartition(int minEdgesPerPartition) {
+        if (minEdgesPerPartition < 1) {
+            throw new IllegalArgumentException("minimum number of edges per partition must be at least 1");
+        }
+        this.minEdgesPerPartition = minEdgesPerPartition;
+    }
+
+    /**
+     * Reports may build the graph while another thread evaluates this issue, so the index and the concepts the graph
+     * is built from are replaced together.
+     */
+    private synchronized void setIndex(SkosIndex skosIndex, BitSet conceptIds) {
+        this.skosIndex = skosIndex;
+        this.conceptIds = conceptIds;
+        graph = null;
+    }
+
+    private BitSet findConceptIds(SkosIndex skosIndex) throws OpenRDFException {
+        BitSet conceptIds = new BitSet(skosIndex.getValueCount());
 
         Iterator<URI> conceptIt = new MonitoredIterator<URI>(involvedConcepts.getResult(), progressMonitor);
         while (conceptIt.hasNext()) {
-            Value concept = conceptIt.next();
-            Collection<Relation> relations = findRelations(concept);
-
-            for (Relation relation : relations) {
-                addNodesToGraph(
-                        relation.sourceConcept,
-                        relation.targetConcept,
-                        relation.property);
-            }
+            int conceptId = skosIndex.getId(conceptIt.next());
+            if (conceptId != -1) conceptIds.set(conceptId);
         }
+
+        return conceptIds;
     }
 
-    private Collection<Relation> findRelations(Value concept)
+    private IntUnionFind findComponents(final int[] sources, final int[] targets, final int vertexCount)
+        throws OpenRDFException
     {
-        Collection<Relation> allRelations = new ArrayList<Relation>();
+        int partitionCount = Math.min(parallelism, sources.length / minEdgesPerPartition);
+        if (partitionCount <= 1) {
+            return unionEdges(sources, targets, 0, sources.length, vertexCount);
+        }
 
+        logger.debug("Computing concept clusters in " +partitionCount+ " partitions");
+        ExecutorService executor = Executors.newFixedThreadPool(partitionCount, new DaemonThreadFactory("qskos-dcc"));
         try {
-            TupleQuery query = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createConnectionsQuery(concept));
-            TupleQueryResult result = query.evaluate();
+            List<Future<IntUnionFind>> partitions = new ArrayList<Future<IntUnionFind>>();
+            for (int partition = 0; partition < partitionCount; partition++) {
+                final int fromEdge = (int) ((long) sources.length * partition / partitionCount);
+                final int toEdge = (int) ((long) sources.length * (partition + 1) / partitionCount);
 
-            while (result.hasNext()) {
-                BindingSet bindingSet = result.next();
-                Value otherConcept = bindingSet.getValue("otherConcept");
-                Value semanticRelation = bindingSet.getValue("semanticRelation");
+                partitions.add(executor.submit(new Callable<IntUnionFind>() {
+                    @Override
+                    public IntUnionFind call() {
+                        return unionEdges(sources, targets, fromEdge, toEdge, vertexCount);
+                    }
+                }));
+            }
 
-                if (otherConcept != null && semanticRelation != null) {
-                    allRelations.add(new Relation(concept, otherConcept, semanticRelation));
-                }
+            IntUnionFind components = partitions.get(0).get();
+            for (Future<IntUnionFind> partition : partitions.subList(1, partitions.size())) {
+                components.union(partition.get());
             }
+            return components;
+        }
+        catch (ExecutionException e) {
+            throw new QueryEvaluationException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryEvaluationException("Interrupted while computing concept clusters", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private IntUnionFind unionEdges(int[] sources, int[] targets, int fromEdge, int toEdge, int vertexCount) {
+        IntUnionFind components = new IntUnionFind(vertexCount);
+        for (int edge = fromEdge; edge < toEdge; edge++) {
+            components.union(sources[edge], targets[edge]);
         }
-        catch (OpenRDFException e) {
-            logger.error("Error finding relations of concept '" +concept+ "'");
+        return components;
+    }
+
+    private Collection<Set<Value>> createComponents(IntUnionFind components, BitSet vertices) {
+        int[] componentIndices = new int[components.size()];
+        Arrays.fill(componentIndices, -1);
+        List<Set<Value>> ret = new ArrayList<Set<Value>>();
+
+        for (int vertex = vertices.nextSetBit(0); vertex >= 0; vertex = vertices.nextSetBit(vertex + 1)) {
+            int root = components.find(vertex);
+            if (componentIndices[root] == -1) {
+                componentIndices[root] = ret.size();
+                ret.add(new HashSet<Value>());
+            }
+            ret.get(componentIndices[root]).add(skosIndex.getValue(vertex));
         }
 
-        return allRelations;
+        return ret;
+    }
+
+    /**
+     * Creates the graph of semantic relations between the involved concepts. This is only needed for graph output
+     * of the report and thus not done during evaluation.
+     */
+    synchronized DirectedGraph<Value, NamedEdge> getGraph() {
+        if (graph == null) {
+            graph = createGraph();
+        }
+        return graph;
     }
 
-    private String createConnectionsQuery(Value concept) throws OpenRDFException {
-        return SparqlPrefix.SKOS +" "+ SparqlPrefix.RDFS+
-                "SELECT DISTINCT ?otherConcept ?semanticRelation WHERE " +
-                "{" +
-                    "{" +
-                        "<" +concept.stringValue()+ "> ?p ?otherConcept . " +
-                        "?p rdfs:subPropertyOf ?semanticRelation" +
-                    "}" +
-                    SkosOntology.getInstance().getSubPropertiesOfSemanticRelationsFilter("semanticRelation")+
-                "}";
+    private DirectedGraph<Value, NamedEdge> createGraph() {
+        DirectedGraph<Value, NamedEdge> graph = new DirectedMultigraph<Value, NamedEdge>(NamedEdge.class);
+        IntAdjacency semanticRelations = skosIndex.getRelation(SkosIndex.Relation.SEMANTIC);
+
+        for (int conceptId = conceptIds.nextSetBit(0); conceptId >= 0; conceptId = conceptIds.nextSetBit(conceptId + 1)) {
+            for (int position = semanticRelations.getStart(conceptId); position < semanticRelations.getEnd(conceptId); position++) {
+                addNodesToGraph(
+                    graph,
+                    skosIndex.getValue(conceptId),
+                    skosIndex.getValue(semanticRelations.getTarget(position)),
+                    skosIndex.getValue(semanticRelations.getLabel(position)));
+            }
+        }
+
+        return graph;
     }
 
     private void addNodesToGraph(
+            DirectedGraph<Value, NamedEdge> graph,
             Value skosResource,
             Value otherResource,
             Value skosRelation)
     {
         graph.addVertex(skosResource);
-
-        if (otherResource != null) {
-            graph.addVertex(otherResource);
-            graph.addEdge(skosResource, otherResource, new NamedEdge(extractFragmentString(skosRelation)));
-        }
+        graph.addVertex(otherResource);
+        graph.addEdge(skosResource, otherResource, new NamedEdge(extractFragmentString(skosRelation)));
     }
 
     private String extractFragmentString(Value skosRelation) {
@@ -141,19 +352,4 @@ public class DisconnectedConceptClusters extends Issue<Collection<Set<Value>>> {
         return skosRelation.stringValue();
     }
 
-    private class Relation {
-        private Value sourceConcept, targetConcept, property;
-
-        private Relation(Value sourceConcept, Value targetConcept, Value property) {
-            this.sourceConcept = sourceConcept;
-            this.targetConcept = targetConcept;
-            this.property = property;
-        }
-
-        @Override
-        public String toString() {
-            return sourceConcept.stringValue() +" -- "+ property +" --> "+ targetConcept;
-        }
-    }
-
 }
@@ -3,15 +3,14 @@ package at.ac.univie.mminf.qskos4j.issues.concepts;
 import at.ac.univie.mminf.qskos4j.issues.Issue;
 import at.ac.univie.mminf.qskos4j.report.CollectionReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
-import at.ac.univie.mminf.qskos4j.util.vocab.SkosOntology;
-import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQueryResult;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 
 /**
@@ -30,37 +29,36 @@ public class InvolvedConcepts extends Issue<Collection<URI>> {
     @Override
     protected Collection<URI> computeResult() throws OpenRDFException
     {
-        TupleQueryResult result = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createConceptsQuery()).evaluate();
+        SkosIndex skosIndex = SkosIndex.getInstance(repCon);
+        IntAdjacency topConceptOf = skosIndex.getRelation(SkosIndex.Relation.TOP_CONCEPT_OF);
+        IntAdjacency semanticRelations = skosIndex.getRelation(SkosIndex.Relation.SEMANTIC);
+
+        BitSet conceptIds = skosIndex.getTypedConcepts();
+        for (int id = 0; id < skosIndex.getValueCount(); id++) {
+            if (topConceptOf.getDegree(id) > 0 || semanticRelations.getDegree(id) > 0) {
+                conceptIds.set(id);
+            }
+        }
+        addTargets(skosIndex.getRelation(SkosIndex.Relation.HAS_TOP_CONCEPT), conceptIds);
+        addTargets(semanticRelations, conceptIds);
 
         Collection<URI> involvedConcepts = new ArrayList<URI>();
-        while (result.hasNext()) {
-            Value concept = result.next().getBinding("concept").getValue();
+        for (int id = conceptIds.nextSetBit(0); id >= 0; id = conceptIds.nextSetBit(id + 1)) {
+            Value concept = skosIndex.getValue(id);
             if (concept instanceof URI) involvedConcepts.add((URI) concept);
         }
         return involvedConcepts;
     }
 
+    private void addTargets(IntAdjacency relation, BitSet ids) {
+        for (int edgePosition = 0; edgePosition < relation.getEdgeCount(); edgePosition++) {
+            ids.set(relation.getTarget(edgePosition));
+        }
+    }
+
     @Override
     protected Report generateReport(Collection<URI> preparedData) {
         return new CollectionReport<URI>(preparedData);
     }
 
-    private String createConceptsQuery() throws OpenRDFException {
-        String skosSemanticRelationSubPropertiesFilter = SkosOntology.getInstance().getSubPropertiesOfSemanticRelationsFilter("semRelSubProp");
-
-        return SparqlPrefix.SKOS +" "+ SparqlPrefix.RDF +" "+ SparqlPrefix.RDFS +
-            "SELECT DISTINCT ?concept "+
-                "WHERE {" +
-                    "{?concept rdf:type skos:Concept} UNION "+
-                    "{?concept skos:topConceptOf ?conceptScheme} UNION "+
-                    "{?conceptScheme skos:hasTopConcept ?concept} UNION " +
-                    "{" +
-                        "{?concept ?p ?x . } UNION" +
-                        "{?x ?p ?concept . }" +
-                        "?p rdfs:subPropertyOf ?semRelSubProp .  " +
-                        skosSemanticRelationSubPropertiesFilter+
-                    "}"+
-                "}";
-    }
-
 }
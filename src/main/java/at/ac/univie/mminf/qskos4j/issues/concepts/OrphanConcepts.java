@@ -60,7 +60,7 @@ public class OrphanConcepts extends Issue<Collection<Value>> {
                     "{?otherConcept ?rel ?concept}" +
                     "?rel rdfs:subPropertyOf ?semRel . " +
                 "}"+
-                SkosOntology.getInstance().getSubPropertiesOfSemanticRelationsFilter("semRel")+
+                SkosOntology.getInstance().getVocabularyModel().getSemanticRelationsFilter("semRel")+
             "}";
     }
 
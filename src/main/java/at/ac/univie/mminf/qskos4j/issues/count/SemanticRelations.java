@@ -1,14 +1,15 @@
 package at.ac.univie.mminf.qskos4j.issues.count;
 
-import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.issues.StatementScanIssue;
 import at.ac.univie.mminf.qskos4j.report.NumberReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
-import at.ac.univie.mminf.qskos4j.util.TupleQueryResultUtil;
+import at.ac.univie.mminf.qskos4j.util.scan.StatementVisitor;
 import at.ac.univie.mminf.qskos4j.util.vocab.SkosOntology;
-import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
 import org.openrdf.OpenRDFException;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQuery;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+
+import java.util.Set;
 
 /**
  * Created by christian
@@ -17,20 +18,20 @@ import org.openrdf.query.TupleQuery;
  *
  * Finds the number of triples involving (subproperties of) skos:semanticRelation.
  */
-public class SemanticRelations extends Issue<Long> {
+public class SemanticRelations extends StatementScanIssue<Long> {
 
     public SemanticRelations() {
         super("sr",
               "Semantic Relations Count",
               "Counts the number of relations between concepts (skos:semanticRelation and subproperties thereof)",
-              IssueType.STATISTICAL
+              IssueType.STATISTICAL,
+              true
         );
     }
 
     @Override
-    protected Long computeResult() throws OpenRDFException {
-        TupleQuery query = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createSemanticRelationsQuery());
-        return TupleQueryResultUtil.countResults(query.evaluate());
+    protected StatementVisitor<Long> createStatementVisitor() throws OpenRDFException {
+        return new SemanticRelationsCounter(SkosOntology.getInstance().getVocabularyModel().getSemanticRelations());
     }
 
     @Override
@@ -38,15 +39,26 @@ public class SemanticRelations extends Issue<Long> {
         return new NumberReport<Long>(preparedData);
     }
 
-    private String createSemanticRelationsQuery() throws OpenRDFException
-    {
-        String skosSemanticRelationSubPropertiesFilter = SkosOntology.getInstance().getSubPropertiesOfSemanticRelationsFilter("relationType");
-        return SparqlPrefix.SKOS +" "+ SparqlPrefix.RDFS +
-            "SELECT ?relationType WHERE " +
-            "{" +
-                "{?concept ?relationType ?otherConcept} "+
-                skosSemanticRelationSubPropertiesFilter+
-            "}";
+    private static class SemanticRelationsCounter implements StatementVisitor<Long> {
+
+        private Set<URI> semanticRelationProperties;
+        private long count = 0;
+
+        SemanticRelationsCounter(Set<URI> semanticRelationProperties) {
+            this.semanticRelationProperties = semanticRelationProperties;
+        }
+
+        @Override
+        public void visit(Statement statement) {
+            if (semanticRelationProperties.contains(statement.getPredicate())) {
+                count++;
+            }
+        }
+
+        @Override
+        public Long getResult() {
+            return count;
+        }
     }
 
 }
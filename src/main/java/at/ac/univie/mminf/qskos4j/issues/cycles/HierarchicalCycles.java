@@ -3,10 +3,9 @@ package at.ac.univie.mminf.qskos4j.issues.cycles;
 import at.ac.univie.mminf.qskos4j.issues.HierarchyGraphBuilder;
 import at.ac.univie.mminf.qskos4j.issues.Issue;
 import at.ac.univie.mminf.qskos4j.report.Report;
-import at.ac.univie.mminf.qskos4j.util.graph.NamedEdge;
-import org.jgrapht.DirectedGraph;
-import org.jgrapht.alg.CycleDetector;
-import org.jgrapht.alg.StrongConnectivityInspector;
+import at.ac.univie.mminf.qskos4j.util.graph.HierarchyGraph;
+import at.ac.univie.mminf.qskos4j.util.graph.StronglyConnectedComponents;
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.Value;
 import org.openrdf.repository.RepositoryConnection;
@@ -14,7 +13,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -29,7 +31,7 @@ public class HierarchicalCycles extends Issue<Collection<Set<Value>>> {
 
     private final Logger logger = LoggerFactory.getLogger(HierarchicalCycles.class);
 
-    private DirectedGraph<Value, NamedEdge> hierarchyGraph;
+    private HierarchyGraph hierarchyGraph;
     private HierarchyGraphBuilder hierarchyGraphBuilder;
 
     public HierarchicalCycles(HierarchyGraphBuilder hierarchyGraphBuilder) {
@@ -43,7 +45,7 @@ public class HierarchicalCycles extends Issue<Collection<Set<Value>>> {
 
     @Override
     protected Collection<Set<Value>> computeResult() throws OpenRDFException {
-        hierarchyGraph = hierarchyGraphBuilder.createGraph();
+        hierarchyGraph = hierarchyGraphBuilder.getGraph();
         return findCycleContainingComponents();
     }
 
@@ -52,35 +54,37 @@ public class HierarchicalCycles extends Issue<Collection<Set<Value>>> {
         return new HierarchicalCyclesReport(preparedData, hierarchyGraph);
     }
 
+    /**
+     * A resource is part of a cycle if its strongly connected component contains other resources as well or if it
+     * is directly related to itself.
+     */
     private List<Set<Value>> findCycleContainingComponents() {
         logger.debug("Finding cycles");
 
-        Set<Value> nodesInCycles = new CycleDetector<Value, NamedEdge>(hierarchyGraph).findCycles();
-        return trackNodesInCycles(nodesInCycles);
-    }
+        StronglyConnectedComponents components = hierarchyGraph.getStronglyConnectedComponents();
+        IntAdjacency broaderEdges = hierarchyGraph.getBroaderEdges();
 
-    private List<Set<Value>> trackNodesInCycles(Set<Value> nodesInCycles)
-    {
+        int[] componentIndices = new int[components.getComponentCount()];
+        Arrays.fill(componentIndices, -1);
         List<Set<Value>> ret = new ArrayList<Set<Value>>();
-        List<Set<Value>> stronglyConnectedSets =
-                new StrongConnectivityInspector<Value, NamedEdge>(hierarchyGraph).stronglyConnectedSets();
 
-        for (Value node : nodesInCycles) {
-            for (Set<Value> stronglyConnectedSet : stronglyConnectedSets) {
-                if (stronglyConnectedSet.contains(node)) {
-                    if (!ret.contains(stronglyConnectedSet)) {
-                        ret.add(stronglyConnectedSet);
-                    }
-                }
+        BitSet vertices = hierarchyGraph.getVertices();
+        for (int vertex = vertices.nextSetBit(0); vertex >= 0; vertex = vertices.nextSetBit(vertex + 1)) {
+            int component = components.getComponent(vertex);
+            if (components.getComponentSize(component) == 1 && !broaderEdges.hasEdge(vertex, vertex)) continue;
+
+            if (componentIndices[component] == -1) {
+                componentIndices[component] = ret.size();
+                ret.add(new HashSet<Value>());
             }
+            ret.get(componentIndices[component]).add(hierarchyGraph.getValue(vertex));
         }
 
         return ret;
     }
 
     @Override
-    public void setRepositoryConnection(RepositoryConnection repCon) {
+    protected void repositoryConnectionChanged(RepositoryConnection repCon) {
         hierarchyGraphBuilder.setRepositoryConnection(repCon);
-        super.setRepositoryConnection(repCon);
     }
 }
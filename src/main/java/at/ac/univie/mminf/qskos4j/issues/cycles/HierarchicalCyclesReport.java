@@ -2,8 +2,7 @@ package at.ac.univie.mminf.qskos4j.issues.cycles;
 
 import at.ac.univie.mminf.qskos4j.report.CollectionReport;
 import at.ac.univie.mminf.qskos4j.util.graph.GraphExporter;
-import at.ac.univie.mminf.qskos4j.util.graph.NamedEdge;
-import org.jgrapht.DirectedGraph;
+import at.ac.univie.mminf.qskos4j.util.graph.HierarchyGraph;
 import org.openrdf.model.Value;
 
 import java.io.BufferedWriter;
@@ -13,10 +12,10 @@ import java.util.Set;
 
 public class HierarchicalCyclesReport extends CollectionReport<Set<Value>> {
 
-	private DirectedGraph<Value, NamedEdge> graph;
+	private HierarchyGraph graph;
     private Collection<Set<Value>> data;
 	
-	public HierarchicalCyclesReport(Collection<Set<Value>> data, DirectedGraph<Value, NamedEdge> graph) {
+	public HierarchicalCyclesReport(Collection<Set<Value>> data, HierarchyGraph graph) {
 		super(data);
 		this.graph = graph;
         this.data = data;
@@ -24,7 +23,7 @@ public class HierarchicalCyclesReport extends CollectionReport<Set<Value>> {
 
     @Override
     public void generateDotReport(BufferedWriter writer) throws IOException {
-        for (String hierarchyCycleDot : new GraphExporter(graph).exportSubGraphs(data)) {
+        for (String hierarchyCycleDot : new GraphExporter(graph.toDirectedGraph()).exportSubGraphs(data)) {
             writer.write(hierarchyCycleDot);
             writer.newLine();
         }
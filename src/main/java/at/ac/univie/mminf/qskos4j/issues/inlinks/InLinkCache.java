@@ -0,0 +1,79 @@
+package at.ac.univie.mminf.qskos4j.issues.inlinks;
+
+import at.ac.univie.mminf.qskos4j.util.FileCache;
+import org.openrdf.model.Value;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Number of in-links that SPARQL endpoints have returned for concepts, stored in a file so that later runs only
+ * query concepts that are new or whose result is older than the TTL. When the cache is saved, only the most
+ * recently checked entries are kept.
+ */
+public class InLinkCache extends FileCache<InLinkCache.Entry> {
+
+    public final static long DEFAULT_TTL_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    public final static int DEFAULT_MAX_ENTRIES = 1000000;
+
+    private final static int MAGIC = 0x51534b49;
+    private final static int FORMAT_VERSION = 1;
+
+    /**
+     * @param ttlMillis time after which a concept is queried again
+     * @param maxEntries the number of entries kept when the cache is saved
+     */
+    public InLinkCache(File cacheFile, long ttlMillis, int maxEntries) {
+        super(cacheFile, MAGIC, FORMAT_VERSION, "in-link counts", ttlMillis, maxEntries);
+    }
+
+    @Override
+    protected Entry readEntry(DataInput in) throws IOException {
+        return new Entry(in.readInt(), in.readLong());
+    }
+
+    @Override
+    protected void writeEntry(DataOutput out, Entry entry) throws IOException {
+        out.writeInt(entry.inLinkCount);
+        out.writeLong(entry.checkedMillis);
+    }
+
+    @Override
+    protected long getRecencyMillis(Entry entry) {
+        return entry.checkedMillis;
+    }
+
+    /**
+     * @return the number of in-links the endpoint has returned for the concept, or null if the concept has not
+     * been queried or the result is older than the TTL
+     */
+    public Integer getInLinkCount(String endpointUrl, Value concept) {
+        Entry entry = getEntry(createKey(endpointUrl, concept));
+        if (entry == null || !isFresh(entry.checkedMillis)) {
+            return null;
+        }
+        return entry.inLinkCount;
+    }
+
+    public void putInLinkCount(String endpointUrl, Value concept, int inLinkCount) {
+        putEntry(createKey(endpointUrl, concept), new Entry(inLinkCount, System.currentTimeMillis()));
+    }
+
+    private String createKey(String endpointUrl, Value concept) {
+        return endpointUrl + " " + concept.stringValue();
+    }
+
+    static class Entry {
+
+        private final int inLinkCount;
+        private final long checkedMillis;
+
+        Entry(int inLinkCount, long checkedMillis) {
+            this.inLinkCount = inLinkCount;
+            this.checkedMillis = checkedMillis;
+        }
+    }
+
+}
@@ -4,11 +4,12 @@ import at.ac.univie.mminf.qskos4j.issues.Issue;
 import at.ac.univie.mminf.qskos4j.issues.concepts.AuthoritativeConcepts;
 import at.ac.univie.mminf.qskos4j.report.ExtrapolatedCollectionReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
 import at.ac.univie.mminf.qskos4j.util.RandomSubSet;
-import at.ac.univie.mminf.qskos4j.util.progress.MonitoredIterator;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
 import org.openrdf.query.QueryEvaluationException;
 import org.openrdf.query.QueryLanguage;
 import org.openrdf.query.TupleQueryResult;
@@ -17,23 +18,40 @@ import org.openrdf.repository.sparql.SPARQLRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
 * Finds concepts that aren't referred by other vocabularies on the Web (
 * <a href="https://github.com/cmader/qSKOS/wiki/Quality-Issues#wiki-Missing_InLinks">Missing In-Links</a>
 * ).
+*
+* Each query asks an endpoint for the resources referencing a batch of concepts. The endpoints are queried
+* concurrently, each one with its own delay between queries and its own number of retries for failed queries.
+* If an {@link InLinkCache} is set, concepts with a cached result are not queried again.
 */
 public class MissingInLinks extends Issue<Collection<Value>> {
 
+    public final static int DEFAULT_BATCH_SIZE = 20;
+    public final static int DEFAULT_MAX_RETRIES = 3;
+    public final static int DEFAULT_RETRY_DELAY_MILLIS = 1000;
+
 	private final Logger logger = LoggerFactory.getLogger(MissingInLinks.class);
 
 	private AuthoritativeConcepts authoritativeConcepts;
-	private Collection<RepositoryConnection> connections = new ArrayList<RepositoryConnection>();
-	private Map<Value, Set<URI>> conceptReferencingResources = new HashMap<Value, Set<URI>>();
+	private Collection<Endpoint> endpoints = new ArrayList<Endpoint>();
+	private final Map<Value, Integer> conceptInLinkCounts = new HashMap<Value, Integer>();
     private Integer queryDelayMillis = 0;
+    private int batchSize = DEFAULT_BATCH_SIZE;
     private Float randomSubsetSize_percent;
+    private InLinkCache inLinkCache;
 
     public MissingInLinks(AuthoritativeConcepts authoritativeConcepts) {
         super(authoritativeConcepts,
@@ -52,16 +70,40 @@ public class MissingInLinks extends Issue<Collection<Value>> {
         if (randomSubsetSize_percent != null) {
             logger.info("using subset of " +conceptsToCheck.size()+ " concepts for In-Link checking");
         }
+        if (endpoints.isEmpty()) {
+            logger.warn("no repository for querying defined");
+        }
 
-        Iterator<Value> conceptIt = new MonitoredIterator<Value>(
-                conceptsToCheck,
-                progressMonitor,
-                "finding In-Links");
+        synchronized (conceptInLinkCounts) {
+            conceptInLinkCounts.clear();
+        }
+        ProgressTracker progressTracker = new ProgressTracker(conceptsToCheck.size() * endpoints.size());
 
-        while (conceptIt.hasNext()) {
-            rankConcept(conceptIt.next());
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(endpoints.size(), 1),
+            new DaemonThreadFactory("qskos-inlinks"));
+        try {
+            List<Future<Void>> endpointTasks = new ArrayList<Future<Void>>();
+            for (Endpoint endpoint : endpoints) {
+                endpointTasks.add(executor.submit(new EndpointTask(endpoint, conceptsToCheck, progressTracker)));
+            }
+            for (Future<Void> endpointTask : endpointTasks) {
+                endpointTask.get();
+            }
+        }
+        catch (ExecutionException e) {
+            throw new QueryEvaluationException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryEvaluationException("Interrupted while finding in-links", e);
+        }
+        finally {
+            executor.shutdownNow();
         }
 
+        progressTracker.finish();
+        saveInLinkCache();
         return extractUnreferencedConcepts();
     }
 
@@ -79,121 +121,161 @@ public class MissingInLinks extends Issue<Collection<Value>> {
 			return new RandomSubSet<Value>(authoritativeConcepts.getResult(), randomSubsetSize_percent);
 		}
 	}
-	
-	private void rankConcept(Value concept)
-	{
-        if (connections.isEmpty()) {
-            logger.warn("no repository for querying defined");
+
+    private void saveInLinkCache() {
+        if (inLinkCache == null) return;
+
+        try {
+            inLinkCache.save();
         }
+        catch (IOException e) {
+            logger.warn("Could not save in-link cache: " +e.getMessage());
+        }
+    }
+
+    private Map<URI, Set<URI>> findReferencingResources(Endpoint endpoint, List<URI> concepts)
+        throws InterruptedException
+    {
+        int retryDelayMillis = endpoint.retryDelayMillis;
 
-        for (RepositoryConnection connection : connections) {
+        for (int retry = 0; ; retry++) {
             try {
-                rankConceptForConnection(concept, connection);
+                return queryReferencingResources(endpoint.connection, concepts);
             }
-            catch (OpenRDFException e) {
-                logger.error("Error ranking concept '" +concept+ "', " + e.toString());
+            catch (Exception e) {
+                if (retry >= endpoint.maxRetries) {
+                    logger.error("Error finding in-links of " +concepts.size()+ " concepts at " +endpoint+ ", " +e.toString());
+                    return null;
+                }
+
+                logger.debug("query at " +endpoint+ " failed, retrying in " +retryDelayMillis+ " ms (" +e.toString()+ ")");
+                Thread.sleep(retryDelayMillis);
+                retryDelayMillis *= 2;
             }
-		}
-	}
-	
-	private void rankConceptForConnection(Value concept, RepositoryConnection connection)
-          throws OpenRDFException
-	{
-		String query = "SELECT distinct ?resource WHERE " +
-			"{?resource ?p <"+concept.toString()+">  " +
-			"FILTER isIRI(?resource) "+
-			"FILTER(regex(str(?resource), \"^http.*\"))}";
+        }
+    }
 
-        // delay to avoid flooding the SPARQL endpoint
+    private Map<URI, Set<URI>> queryReferencingResources(RepositoryConnection connection, List<URI> concepts)
+        throws OpenRDFException
+    {
+        Map<URI, Set<URI>> referencingResources = new HashMap<URI, Set<URI>>();
+        for (URI concept : concepts) {
+            referencingResources.put(concept, new HashSet<URI>());
+        }
+
+        TupleQueryResult result = connection.prepareTupleQuery(QueryLanguage.SPARQL, createQuery(concepts)).evaluate();
         try {
-            Thread.sleep(queryDelayMillis);
+            while (result.hasNext()) {
+                BindingSet bindingSet = result.next();
+                Value concept = bindingSet.getValue("concept");
+                Value referencingResource = bindingSet.getValue("resource");
+
+                Set<URI> referencingResourcesOnOtherHost = referencingResources.get(concept);
+                if (referencingResourcesOnOtherHost != null &&
+                    referencingResource instanceof URI &&
+                    isDistinctHost((URI) concept, (URI) referencingResource))
+                {
+                    referencingResourcesOnOtherHost.add((URI) referencingResource);
+                }
+            }
         }
-        catch (InterruptedException e) {
-            // ignore this exception
+        finally {
+            result.close();
         }
 
+        return referencingResources;
+    }
+
+    /**
+     * SPARQL 1.0 has no VALUES, each concept of the batch gets its own branch of a UNION. Endpoints bind the
+     * concept from the sameTerm filter, so every branch is a lookup by object.
+     */
+    private String createQuery(List<URI> concepts) {
+        StringBuilder query = new StringBuilder("SELECT DISTINCT ?concept ?resource WHERE {");
+
+        for (int i = 0; i < concepts.size(); i++) {
+            if (i > 0) {
+                query.append(" UNION");
+            }
+            query.append(" {?resource ?p ?concept FILTER sameTerm(?concept, <")
+                .append(concepts.get(i).stringValue())
+                .append(">)}");
+        }
+
+        query.append(" FILTER isIRI(?resource)")
+            .append(" FILTER(regex(str(?resource), \"^http.*\"))}");
+        return query.toString();
+    }
+
+	private boolean isDistinctHost(URI resource, URI otherResource)
+	{
         try {
-            TupleQueryResult result = connection.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate();
-            addToConceptsRankMap(concept, result);
+            String host = new java.net.URI(resource.toString()).getHost();
+            String otherHost = new java.net.URI(otherResource.toString()).getHost();
+            return host != null && otherHost != null && !host.equalsIgnoreCase(otherHost);
         }
-        catch (Exception e) {
-            logger.error("Error evaluating query '" +query);
+        catch (URISyntaxException e) {
+            // should never happen => don't add to list
+            return false;
         }
 	}
-	
-	private void addToConceptsRankMap(Value concept, TupleQueryResult result)
-		throws QueryEvaluationException 
-	{
-		Set<URI> referencingResourcesOnOtherHost = 
-			getReferencingResourcesOnOtherHost(concept, result);
 
-		Set<URI> allReferencingResources = conceptReferencingResources.get(concept);
-		if (allReferencingResources == null) {
-			allReferencingResources = new HashSet<URI>();
-			conceptReferencingResources.put(concept, allReferencingResources);
-		}
-		allReferencingResources.addAll(referencingResourcesOnOtherHost);
-	}
-	
-	private Set<URI> getReferencingResourcesOnOtherHost(
-            Value concept,
-		TupleQueryResult result) throws QueryEvaluationException 
-	{
-		Set<URI> referencingResourcesOnOtherHost = new HashSet<URI>();
-		
-		while (result.hasNext()) {
-			Value referencingResource = result.next().getValue("resource");
-			
-			try {
-				if (referencingResource instanceof URI &&
-                    concept instanceof URI &&
-					isDistinctHost((URI) concept, (URI) referencingResource))
-				{
-					referencingResourcesOnOtherHost.add((URI) referencingResource); 
-				}
-			}
-			catch (URISyntaxException e) {
-				// should never happen => don't add to list
-			}
-		}
-		
-		return referencingResourcesOnOtherHost;
-	}
+    private void addInLinkCount(Value concept, int inLinkCount) {
+        synchronized (conceptInLinkCounts) {
+            Integer allInLinksCount = conceptInLinkCounts.get(concept);
+            conceptInLinkCounts.put(concept, (allInLinksCount == null ? 0 : allInLinksCount) + inLinkCount);
+        }
+    }
 
-	private boolean isDistinctHost(URI resource, URI otherResource) 
-		throws URISyntaxException 
-	{
-		String host = new java.net.URI(resource.toString()).getHost();
-		String otherHost = new java.net.URI(otherResource.toString()).getHost();
-		return !host.equalsIgnoreCase(otherHost);		
-	}
-	
 	private Collection<Value> extractUnreferencedConcepts() {
 		Collection<Value> unrefConcepts = new HashSet<Value>();
-		
-		for (Value concept : conceptReferencingResources.keySet()) {
-			if (conceptReferencingResources.get(concept).isEmpty()) {
-				unrefConcepts.add(concept);
-			}
-		}
-		
+
+        synchronized (conceptInLinkCounts) {
+            for (Map.Entry<Value, Integer> conceptInLinkCount : conceptInLinkCounts.entrySet()) {
+                if (conceptInLinkCount.getValue() == 0) {
+                    unrefConcepts.add(conceptInLinkCount.getKey());
+                }
+            }
+        }
+
 		return unrefConcepts;
 	}
 
+    /**
+     * Sets the delay between two queries to endpoints that have been added without a delay of their own
+     */
     public void setQueryDelayMillis(int delayMillis) {
         queryDelayMillis = delayMillis;
     }
 
+    /**
+     * @param batchSize number of concepts whose in-links are queried at once
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
     public void setSubsetSize(Float subsetSizePercent) {
         randomSubsetSize_percent = subsetSizePercent;
     }
 
+    /**
+     * @param inLinkCache loaded cache, saved after the in-links have been found
+     */
+    public void setInLinkCache(InLinkCache inLinkCache) {
+        this.inLinkCache = inLinkCache;
+    }
+
     /**
      * Adds the repository containing the vocabulary that's about to test to the list of
-     * other repositories. This is only useful for in-link testing purposes.
+     * other repositories. This is only useful for in-link testing purposes. Results of the
+     * loopback are never cached.
      */
     public void addRepositoryLoopback() throws OpenRDFException {
-        connections.add(repCon);
+        endpoints.add(new Endpoint(null, repCon, null, 0, 0));
     }
 
     /**
@@ -202,7 +284,160 @@ public class MissingInLinks extends Issue<Collection<Value>> {
      * @param endpointUrl SPARL endpoint URL
      */
     public void addSparqlEndPoint(String endpointUrl) throws OpenRDFException {
-        connections.add(new SPARQLRepository(endpointUrl).getConnection());
+        addSparqlEndPoint(endpointUrl, null, DEFAULT_MAX_RETRIES, DEFAULT_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * Adds a SPARQL endpoint for estimation of in-links.
+     *
+     * @param endpointUrl SPARL endpoint URL
+     * @param queryDelayMillis minimum time between two queries to this endpoint, null to use the delay set by
+     * {@link #setQueryDelayMillis(int)}
+     * @param maxRetries number of times a failed query is repeated
+     * @param retryDelayMillis time before the first retry, doubled for each further retry
+     */
+    public void addSparqlEndPoint(String endpointUrl, Integer queryDelayMillis, int maxRetries, int retryDelayMillis)
+        throws OpenRDFException
+    {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        endpoints.add(new Endpoint(
+            endpointUrl,
+            new SPARQLRepository(endpointUrl).getConnection(),
+            queryDelayMillis,
+            maxRetries,
+            retryDelayMillis));
+    }
+
+    private class Endpoint {
+
+        private final String url;
+        private final RepositoryConnection connection;
+        private final Integer queryDelayMillis;
+        private final int maxRetries, retryDelayMillis;
+
+        Endpoint(
+            String url,
+            RepositoryConnection connection,
+            Integer queryDelayMillis,
+            int maxRetries,
+            int retryDelayMillis)
+        {
+            this.url = url;
+            this.connection = connection;
+            this.queryDelayMillis = queryDelayMillis;
+            this.maxRetries = maxRetries;
+            this.retryDelayMillis = retryDelayMillis;
+        }
+
+        int getQueryDelayMillis() {
+            return queryDelayMillis != null ? queryDelayMillis : MissingInLinks.this.queryDelayMillis;
+        }
+
+        boolean isCacheable() {
+            return url != null && inLinkCache != null;
+        }
+
+        @Override
+        public String toString() {
+            return url != null ? url : "repository loopback";
+        }
+    }
+
+    /**
+     * Queries the in-links of all concepts at one endpoint, batch after batch
+     */
+    private class EndpointTask implements Callable<Void> {
+
+        private final Endpoint endpoint;
+        private final Collection<Value> concepts;
+        private final ProgressTracker progressTracker;
+
+        EndpointTask(Endpoint endpoint, Collection<Value> concepts, ProgressTracker progressTracker) {
+            this.endpoint = endpoint;
+            this.concepts = concepts;
+            this.progressTracker = progressTracker;
+        }
+
+        @Override
+        public Void call() throws InterruptedException {
+            List<URI> conceptsToQuery = new ArrayList<URI>();
+            for (Value concept : concepts) {
+                Integer cachedInLinkCount = endpoint.isCacheable() ?
+                    inLinkCache.getInLinkCount(endpoint.url, concept) :
+                    null;
+
+                if (cachedInLinkCount != null) {
+                    addInLinkCount(concept, cachedInLinkCount);
+                    progressTracker.conceptsChecked(1);
+                }
+                else if (concept instanceof URI) {
+                    conceptsToQuery.add((URI) concept);
+                }
+                else {
+                    progressTracker.conceptsChecked(1);
+                }
+            }
+
+            logger.debug("querying " +conceptsToQuery.size()+ " concepts at " +endpoint+ ", " +
+                (concepts.size() - conceptsToQuery.size())+ " skipped or taken from cache");
+
+            for (int fromIndex = 0; fromIndex < conceptsToQuery.size(); fromIndex += batchSize) {
+                // delay to avoid flooding the SPARQL endpoint
+                if (fromIndex > 0) {
+                    Thread.sleep(endpoint.getQueryDelayMillis());
+                }
+
+                List<URI> batch = conceptsToQuery.subList(
+                    fromIndex,
+                    Math.min(fromIndex + batchSize, conceptsToQuery.size()));
+                addInLinkCounts(batch, findReferencingResources(endpoint, batch));
+                progressTracker.conceptsChecked(batch.size());
+            }
+
+            return null;
+        }
+
+        private void addInLinkCounts(List<URI> batch, Map<URI, Set<URI>> referencingResources) {
+            if (referencingResources == null) return;
+
+            for (URI concept : batch) {
+                int inLinkCount = referencingResources.get(concept).size();
+                addInLinkCount(concept, inLinkCount);
+                if (endpoint.isCacheable()) {
+                    inLinkCache.putInLinkCount(endpoint.url, concept, inLinkCount);
+                }
+            }
+        }
+    }
+
+    private class ProgressTracker {
+
+        private final int totalConcepts;
+        private final AtomicInteger checkedConcepts = new AtomicInteger();
+
+        ProgressTracker(int totalConcepts) {
+            this.totalConcepts = totalConcepts;
+            synchronized (progressMonitor) {
+                progressMonitor.reset();
+                progressMonitor.setTaskDescription("finding In-Links");
+            }
+        }
+
+        void conceptsChecked(int conceptCount) {
+            int checked = checkedConcepts.addAndGet(conceptCount);
+
+            synchronized (progressMonitor) {
+                progressMonitor.onUpdateProgress((float) checked / totalConcepts);
+            }
+        }
+
+        void finish() {
+            synchronized (progressMonitor) {
+                progressMonitor.onFinish();
+            }
+        }
     }
 
 }
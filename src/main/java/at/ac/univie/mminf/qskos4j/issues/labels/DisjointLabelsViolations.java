@@ -11,6 +11,7 @@ import org.openrdf.model.Literal;
 import org.openrdf.repository.RepositoryConnection;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -100,8 +101,12 @@ public class DisjointLabelsViolations extends Issue<Map<Literal, LabelConflict>>
     }
 
     @Override
-    public void setRepositoryConnection(RepositoryConnection repCon) {
+    public Collection<Object> getSharedHelpers() {
+        return Collections.<Object>singleton(resourceLabelsCollector);
+    }
+
+    @Override
+    protected void repositoryConnectionChanged(RepositoryConnection repCon) {
         resourceLabelsCollector.setRepositoryConnection(repCon);
-        super.setRepositoryConnection(repCon);
     }
 }
@@ -13,6 +13,7 @@ import org.openrdf.repository.RepositoryConnection;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -109,8 +110,12 @@ public class InconsistentPrefLabels extends Issue<Map<Value, LabelConflict>> {
     }
 
     @Override
-    public void setRepositoryConnection(RepositoryConnection repCon) {
+    public Collection<Object> getSharedHelpers() {
+        return Collections.<Object>singleton(resourceLabelsCollector);
+    }
+
+    @Override
+    protected void repositoryConnectionChanged(RepositoryConnection repCon) {
         resourceLabelsCollector.setRepositoryConnection(repCon);
-        super.setRepositoryConnection(repCon);
     }
 }
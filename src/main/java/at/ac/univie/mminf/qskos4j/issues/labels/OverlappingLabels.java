@@ -1,20 +1,22 @@
 package at.ac.univie.mminf.qskos4j.issues.labels;
 
+import at.ac.univie.mminf.qskos4j.issues.IncrementalIssue;
 import at.ac.univie.mminf.qskos4j.issues.Issue;
 import at.ac.univie.mminf.qskos4j.issues.concepts.InvolvedConcepts;
 import at.ac.univie.mminf.qskos4j.issues.labels.util.LabelConflict;
 import at.ac.univie.mminf.qskos4j.issues.labels.util.LabelType;
 import at.ac.univie.mminf.qskos4j.issues.labels.util.LabeledConcept;
-import at.ac.univie.mminf.qskos4j.issues.labels.util.SimilarityLiteral;
 import at.ac.univie.mminf.qskos4j.report.CollectionReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
 import at.ac.univie.mminf.qskos4j.util.progress.MonitoredIterator;
-import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
+import at.ac.univie.mminf.qskos4j.util.vocab.VocabularyDelta;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
-import org.openrdf.query.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,12 +27,10 @@ import java.util.*;
  * <a href="https://github.com/cmader/qSKOS/wiki/Quality-Issues#wiki-Overlapping_Labels">Overlapping Labels</a>
  * ).
  */
-public class OverlappingLabels extends Issue<Set<LabelConflict>> {
+public class OverlappingLabels extends Issue<Set<LabelConflict>> implements IncrementalIssue<Set<LabelConflict>> {
 
 	private final Logger logger = LoggerFactory.getLogger(OverlappingLabels.class);
 
-	private Set<LabelConflict> labelConflicts;
-	private Map<Literal, Set<LabeledConcept>> conceptLabels;
     private InvolvedConcepts involvedConcepts;
 
     public OverlappingLabels(InvolvedConcepts involvedConcepts) {
@@ -45,10 +45,84 @@ public class OverlappingLabels extends Issue<Set<LabelConflict>> {
 
     @Override
     protected Set<LabelConflict> computeResult() throws OpenRDFException {
-        generateConceptsLabelMap();
-        generateLabelConflictResults();
+        return findLabelConflicts(SkosIndex.getInstance(repCon), null);
+    }
+
+    /**
+     * Conflicts are taken over from the previous result, unless a touched concept is part of them or now uses their
+     * (normalized) label. Conflicts of these labels are searched again.
+     */
+    @Override
+    public Set<LabelConflict> updateResult(Set<LabelConflict> previousResult, VocabularyDelta delta)
+        throws OpenRDFException
+    {
+        SkosIndex skosIndex = SkosIndex.getInstance(repCon);
+        Set<NormalizedLabel> affectedLabels = new HashSet<NormalizedLabel>();
+
+        for (Resource touchedResource : delta.getTouchedResources()) {
+            int resourceId = skosIndex.getId(touchedResource);
+            if (resourceId == -1) continue;
+
+            for (LabelType labelType : LabelType.values()) {
+                IntAdjacency labels = skosIndex.getRelation(labelType.getIndexRelation());
+                for (int edgePosition = labels.getStart(resourceId); edgePosition < labels.getEnd(resourceId); edgePosition++) {
+                    Value label = skosIndex.getValue(labels.getTarget(edgePosition));
+                    if (label instanceof Literal) {
+                        affectedLabels.add(new NormalizedLabel((Literal) label));
+                    }
+                }
+            }
+        }
 
-		return labelConflicts;
+        for (LabelConflict labelConflict : previousResult) {
+            if (delta.isAnyTouched(labelConflict.getAffectedResources())) {
+                affectedLabels.add(getNormalizedLabel(labelConflict));
+            }
+        }
+
+        Set<LabelConflict> labelConflicts = new HashSet<LabelConflict>();
+        for (LabelConflict labelConflict : previousResult) {
+            if (!affectedLabels.contains(getNormalizedLabel(labelConflict))) {
+                labelConflicts.add(labelConflict);
+            }
+        }
+        logger.debug("Re-evaluating " +affectedLabels.size()+ " labels, keeping " +labelConflicts.size()+ " label conflicts");
+
+        if (!affectedLabels.isEmpty()) {
+            labelConflicts.addAll(findLabelConflicts(skosIndex, affectedLabels));
+        }
+        return labelConflicts;
+    }
+
+    private NormalizedLabel getNormalizedLabel(LabelConflict labelConflict) {
+        // all labels of a conflict have the same normalized form
+        return new NormalizedLabel(labelConflict.getLabeledConcepts().iterator().next().getLiteral());
+    }
+
+    /**
+     * @param labelFilter if not null, only conflicts of labels whose normalized form is contained are searched
+     */
+    private Set<LabelConflict> findLabelConflicts(SkosIndex skosIndex, Set<NormalizedLabel> labelFilter)
+        throws OpenRDFException
+    {
+        LabelBuckets labelBuckets = new LabelBuckets(skosIndex, labelFilter);
+
+        progressMonitor.setTaskDescription("Collecting resource labels");
+        Iterator<URI> it = new MonitoredIterator<URI>(involvedConcepts.getResult(), progressMonitor);
+
+        while (it.hasNext()) {
+            int conceptId = skosIndex.getId(it.next());
+            if (conceptId == -1) continue;
+
+            for (LabelType labelType : LabelType.values()) {
+                IntAdjacency labels = skosIndex.getRelation(labelType.getIndexRelation());
+                for (int edgePosition = labels.getStart(conceptId); edgePosition < labels.getEnd(conceptId); edgePosition++) {
+                    labelBuckets.add(conceptId, labels.getTarget(edgePosition), labelType);
+                }
+            }
+        }
+
+        return labelBuckets.createLabelConflicts();
 	}
 
     @Override
@@ -56,106 +130,150 @@ public class OverlappingLabels extends Issue<Set<LabelConflict>> {
         return new CollectionReport<LabelConflict>(preparedData);
     }
 
-    private void generateConceptsLabelMap() throws OpenRDFException
-	{
-		conceptLabels = new HashMap<Literal, Set<LabeledConcept>>();
+    /**
+     * Groups labels by their normalized (case-insensitive) form. The normalized form is computed only once per distinct
+     * label literal, label occurrences are stored in int arrays and chained per bucket.
+     */
+    private class LabelBuckets {
 
-        progressMonitor.setTaskDescription("Collecting resource labels");
-        Iterator<URI> it = new MonitoredIterator<URI>(involvedConcepts.getResult(), progressMonitor);
+        private final static int NONE = -1, FILTERED = -2;
+
+        private final SkosIndex skosIndex;
+        private final Set<NormalizedLabel> labelFilter;
+        private final int[] bucketOfLabel;
+        private final Map<NormalizedLabel, Integer> bucketIds = new HashMap<NormalizedLabel, Integer>();
 
-		while (it.hasNext()) {
-            Value concept = it.next();
+        private int[] bucketHeads = new int[64];
+        private int[] bucketSizes = new int[64];
 
-            try {
-                TupleQuery query = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createConceptLabelQuery(concept));
-                Set<LabeledConcept> labeledConcepts = createLabeledConceptsFromResult(concept, query.evaluate());
-                addToLabelsMap(labeledConcepts);
+        private int[] entryConcepts = new int[256];
+        private int[] entryLabels = new int[256];
+        private byte[] entryLabelTypes = new byte[256];
+        private int[] entryNext = new int[256];
+        private int entryCount = 0;
+
+        LabelBuckets(SkosIndex skosIndex, Set<NormalizedLabel> labelFilter) {
+            this.skosIndex = skosIndex;
+            this.labelFilter = labelFilter;
+            bucketOfLabel = new int[skosIndex.getValueCount()];
+            Arrays.fill(bucketOfLabel, NONE);
+        }
+
+        void add(int conceptId, int labelId, LabelType labelType) {
+            int bucket = getBucket(labelId);
+            if (bucket == NONE) return;
+
+            // We're not interested in conflicts within the same concept. Labels are added concept by concept,
+            // so a previous label of the same concept can only be the head of the bucket.
+            int head = bucketHeads[bucket];
+            if (head != NONE && entryConcepts[head] == conceptId) return;
+
+            ensureEntryCapacity(entryCount + 1);
+            entryConcepts[entryCount] = conceptId;
+            entryLabels[entryCount] = labelId;
+            entryLabelTypes[entryCount] = (byte) labelType.ordinal();
+            entryNext[entryCount] = head;
+            bucketHeads[bucket] = entryCount;
+            bucketSizes[bucket]++;
+            entryCount++;
+        }
+
+        private int getBucket(int labelId) {
+            if (bucketOfLabel[labelId] != NONE) {
+                return bucketOfLabel[labelId] == FILTERED ? NONE : bucketOfLabel[labelId];
             }
-            catch (OpenRDFException e) {
-                logger.error("Error finding labels of concept '" +concept+ "'");
+
+            Value label = skosIndex.getValue(labelId);
+            if (!(label instanceof Literal)) {
+                logger.info("literal label expected, found " +label);
+                return NONE;
             }
-		}
-	}
 
-    private void addToLabelsMap(Set<LabeledConcept> labels) {
-        for (LabeledConcept label : labels) {
-            SimilarityLiteral literal = new SimilarityLiteral(label.getLiteral());
+            NormalizedLabel normalizedLabel = new NormalizedLabel((Literal) label);
+            if (labelFilter != null && !labelFilter.contains(normalizedLabel)) {
+                bucketOfLabel[labelId] = FILTERED;
+                return NONE;
+            }
 
-            Set<LabeledConcept> affectedConcepts = conceptLabels.get(literal);
-            if (affectedConcepts == null) {
-                affectedConcepts = new HashSet<LabeledConcept>();
+            Integer bucket = bucketIds.get(normalizedLabel);
+            if (bucket == null) {
+                bucket = bucketIds.size();
+                bucketIds.put(normalizedLabel, bucket);
+                ensureBucketCapacity(bucket + 1);
+                bucketHeads[bucket] = NONE;
             }
 
-            // We're not interested in conflicts within the same concept
-            addIfResourceUnique(label, affectedConcepts);
+            bucketOfLabel[labelId] = bucket;
+            return bucket;
+        }
 
-            conceptLabels.put(literal, affectedConcepts);
+        private void ensureBucketCapacity(int capacity) {
+            if (capacity > bucketHeads.length) {
+                int newLength = Math.max(capacity, bucketHeads.length * 2);
+                bucketHeads = Arrays.copyOf(bucketHeads, newLength);
+                bucketSizes = Arrays.copyOf(bucketSizes, newLength);
+            }
         }
-    }
 
-    private void addIfResourceUnique(LabeledConcept newLabeledResource, Set<LabeledConcept> otherLabeledResources) {
-        for (LabeledConcept labeledResource : otherLabeledResources) {
-            if (labeledResource.getConcept().equals(newLabeledResource.getConcept())) return;
+        private void ensureEntryCapacity(int capacity) {
+            if (capacity > entryConcepts.length) {
+                int newLength = Math.max(capacity, entryConcepts.length * 2);
+                entryConcepts = Arrays.copyOf(entryConcepts, newLength);
+                entryLabels = Arrays.copyOf(entryLabels, newLength);
+                entryLabelTypes = Arrays.copyOf(entryLabelTypes, newLength);
+                entryNext = Arrays.copyOf(entryNext, newLength);
+            }
         }
-        otherLabeledResources.add(newLabeledResource);
-    }
 
-	private String createConceptLabelQuery(Value concept) {
-		return SparqlPrefix.SKOS+ 
-			"SELECT ?prefLabel ?altLabel ?hiddenLabel "+
-				"WHERE {{<"+concept.stringValue()+"> skos:prefLabel ?prefLabel .} UNION "+
-				"{<"+concept.stringValue()+"> skos:altLabel ?altLabel .} UNION "+
-				"{<"+concept.stringValue()+"> skos:hiddenLabel ?hiddenLabel .}}";
-	}
-	
-	private Set<LabeledConcept> createLabeledConceptsFromResult(Value concept, TupleQueryResult result)
-		throws QueryEvaluationException 
-	{
-		Set<LabeledConcept> ret = new HashSet<LabeledConcept>();
-		
-		while (result.hasNext()) {
-			BindingSet queryResult = result.next();
-
-			for (String bindingName : queryResult.getBindingNames()) {
-                try {
-                    Literal literal = (Literal) queryResult.getValue(bindingName);
-
-                    LabeledConcept skosLabel = new LabeledConcept(
-                        concept,
-                        literal,
-                        getLabelTypeForBindingName(bindingName));
-
-                    ret.add(skosLabel);
-                }
-                catch (ClassCastException e) {
-                    logger.info("literal label expected for concept " +concept.toString()+ ", " +e.toString());
-                }
-			}			
-		}
-		
-		return ret;
-	}	
-	
-	private LabelType getLabelTypeForBindingName(String bindingName) {
-		if (bindingName.equals("prefLabel")) {
-			return LabelType.PREF_LABEL;
-		}
-		if (bindingName.equals("altLabel")) {
-			return LabelType.ALT_LABEL;
-		}
-		if (bindingName.equals("hiddenLabel")) {
-			return LabelType.HIDDEN_LABEL;
-		}
-		return null;
-	}
+        Set<LabelConflict> createLabelConflicts() {
+            Set<LabelConflict> labelConflicts = new HashSet<LabelConflict>();
+            LabelType[] labelTypes = LabelType.values();
 
-    private void generateLabelConflictResults() {
-        labelConflicts = new HashSet<LabelConflict>();
+            for (int bucket = 0; bucket < bucketIds.size(); bucket++) {
+                if (bucketSizes[bucket] < 2) continue;
 
-        for (Set<LabeledConcept> conflicts : conceptLabels.values()) {
-            if (conflicts.size() > 1) {
+                Set<LabeledConcept> conflicts = new HashSet<LabeledConcept>();
+                for (int entry = bucketHeads[bucket]; entry != NONE; entry = entryNext[entry]) {
+                    conflicts.add(new LabeledConcept(
+                        skosIndex.getValue(entryConcepts[entry]),
+                        (Literal) skosIndex.getValue(entryLabels[entry]),
+                        labelTypes[entryLabelTypes[entry]]));
+                }
                 labelConflicts.add(new LabelConflict(conflicts));
             }
+
+            return labelConflicts;
+        }
+    }
+
+    private static class NormalizedLabel {
+
+        private final String label;
+        private final String language;
+        private final URI datatype;
+        private final int hashCode;
+
+        NormalizedLabel(Literal literal) {
+            label = literal.getLabel().toUpperCase();
+            language = literal.getLanguage();
+            datatype = literal.getDatatype();
+            hashCode = label.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof NormalizedLabel)) return false;
+
+            NormalizedLabel other = (NormalizedLabel) obj;
+            return hashCode == other.hashCode &&
+                label.equals(other.label) &&
+                (language == null ? other.language == null : language.equals(other.language)) &&
+                (datatype == null ? other.datatype == null : datatype.equals(other.datatype));
         }
     }
 
@@ -29,6 +29,10 @@ public class LabelConflict implements HtmlRenderable {
         return affectedResources;
     }
 
+    public Set<LabeledConcept> getLabeledConcepts() {
+        return conflicts;
+    }
+
     public void add(LabeledConcept labeledResource) {
         conflicts.add(labeledResource);
     }
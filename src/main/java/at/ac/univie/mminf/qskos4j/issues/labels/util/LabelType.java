@@ -1,18 +1,26 @@
 package at.ac.univie.mminf.qskos4j.issues.labels.util;
 
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
+
 public enum LabelType {
 
-    PREF_LABEL("skos:prefLabel"),
-    ALT_LABEL("skos:altLabel"),
-    HIDDEN_LABEL("skos:hiddenLabel");
+    PREF_LABEL("skos:prefLabel", SkosIndex.Relation.PREF_LABEL),
+    ALT_LABEL("skos:altLabel", SkosIndex.Relation.ALT_LABEL),
+    HIDDEN_LABEL("skos:hiddenLabel", SkosIndex.Relation.HIDDEN_LABEL);
 
     private String skosProperty;
+    private SkosIndex.Relation indexRelation;
 
-    LabelType(String skosProperty) {
+    LabelType(String skosProperty, SkosIndex.Relation indexRelation) {
         this.skosProperty = skosProperty;
+        this.indexRelation = indexRelation;
     }
 
     public String getSkosProperty() {
         return skosProperty;
     }
+
+    public SkosIndex.Relation getIndexRelation() {
+        return indexRelation;
+    }
 }
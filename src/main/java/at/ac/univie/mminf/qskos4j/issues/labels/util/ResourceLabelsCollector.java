@@ -1,13 +1,11 @@
 package at.ac.univie.mminf.qskos4j.issues.labels.util;
 
-import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.Literal;
 import org.openrdf.model.Resource;
-import org.openrdf.query.BindingSet;
-import org.openrdf.query.QueryEvaluationException;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQueryResult;
+import org.openrdf.model.Value;
 import org.openrdf.repository.RepositoryConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,46 +22,28 @@ public class ResourceLabelsCollector {
 
     public Collection<LabeledConcept> getLabeledConcepts() throws OpenRDFException {
         labeledResources = new HashSet<LabeledConcept>();
-        createLabeledResources();
+        createLabeledResources(SkosIndex.getInstance(repCon));
         return labeledResources;
     }
 
-    private void createLabeledResources() {
+    private void createLabeledResources(SkosIndex skosIndex) {
         for (LabelType labelType : LabelType.values()) {
-            String labelQuery = createLabelQuery(labelType);
-            try {
-                TupleQueryResult result = repCon.prepareTupleQuery(QueryLanguage.SPARQL, labelQuery).evaluate();
-                addResultToLabels(labelType, result);
-            }
-            catch (OpenRDFException e) {
-                logger.error("error querying repository: " +labelQuery);
-            }
+            addLabels(skosIndex, labelType, skosIndex.getRelation(labelType.getIndexRelation()));
         }
     }
 
-    private String createLabelQuery(LabelType labelType) {
-        return SparqlPrefix.SKOS +
-            "SELECT DISTINCT ?resource ?label"+
-            "{" +
-                "?resource "+labelType.getSkosProperty()+" ?label ." +
-            "}";
-    }
-
-    private void addResultToLabels(LabelType labelType, TupleQueryResult result) throws QueryEvaluationException
-    {
-        while (result.hasNext()) {
-            BindingSet queryResult = result.next();
-            Resource resource = (Resource) queryResult.getValue("resource");
+    private void addLabels(SkosIndex skosIndex, LabelType labelType, IntAdjacency labels) {
+        for (int resourceId = 0; resourceId < labels.getVertexCount(); resourceId++) {
+            for (int edgePosition = labels.getStart(resourceId); edgePosition < labels.getEnd(resourceId); edgePosition++) {
+                Resource resource = (Resource) skosIndex.getValue(resourceId);
+                Value label = skosIndex.getValue(labels.getTarget(edgePosition));
 
-            try {
-                Literal label = (Literal) queryResult.getValue("label");
-
-                if (label != null) {
-                    labeledResources.add(new LabeledConcept(resource, label, labelType));
+                if (label instanceof Literal) {
+                    labeledResources.add(new LabeledConcept(resource, (Literal) label, labelType));
+                }
+                else {
+                    logger.info("literal label expected for resource " +resource.toString());
                 }
-            }
-            catch (ClassCastException e) {
-                logger.info("literal label expected for resource " +resource.toString()+ ", " +e.toString());
             }
         }
     }
@@ -1,28 +1,22 @@
 package at.ac.univie.mminf.qskos4j.issues.language;
 
-import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.issues.StatementScanIssue;
 import at.ac.univie.mminf.qskos4j.issues.concepts.InvolvedConcepts;
 import at.ac.univie.mminf.qskos4j.report.Report;
-import at.ac.univie.mminf.qskos4j.util.progress.MonitoredIterator;
+import at.ac.univie.mminf.qskos4j.util.scan.StatementVisitor;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.Literal;
+import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
-import org.openrdf.query.*;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
 /**
  * Finds all concepts with incomplete language coverage (<a href="https://github.com/cmader/qSKOS/wiki/Quality-Issues#wiki-Incomplete_Language_Coverage">Incomplete Language Coverage</a>
  */
-public class IncompleteLanguageCoverage extends Issue<Map<Value, Collection<String>>> {
+public class IncompleteLanguageCoverage extends StatementScanIssue<Map<Value, Collection<String>>> {
 
-    private final Logger logger = LoggerFactory.getLogger(IncompleteLanguageCoverage.class);
-
-	private Map<Value, Collection<String>> languageCoverage, incompleteLanguageCoverage;
-	private Set<String> distinctLanguages;
     private InvolvedConcepts involvedConcepts;
 
     public IncompleteLanguageCoverage(InvolvedConcepts involvedConcepts) {
@@ -30,99 +24,102 @@ public class IncompleteLanguageCoverage extends Issue<Map<Value, Collection<Stri
             "ilc",
             "Incomplete Language Coverage",
             "Finds concepts lacking description in languages that are present for other concepts",
-            IssueType.ANALYTICAL
+            IssueType.ANALYTICAL,
+            false
         );
 
         this.involvedConcepts = involvedConcepts;
     }
 
     @Override
-    protected Map<Value, Collection<String>> computeResult() throws OpenRDFException {
-		incompleteLanguageCoverage = new HashMap<Value, Collection<String>>();
-		
-		checkLanguageCoverage();
-		generateIncompleteLanguageCoverageMap();
-		
-		return incompleteLanguageCoverage;
-	}
+    protected StatementVisitor<Map<Value, Collection<String>>> createStatementVisitor() throws OpenRDFException {
+        return new LanguageCoverageCollector(involvedConcepts.getResult());
+    }
 
     @Override
     protected Report generateReport(Map<Value, Collection<String>> preparedData) {
-        return new IncompleteLangCovReport(incompleteLanguageCoverage);
+        return new IncompleteLangCovReport(preparedData);
     }
 
-    private void checkLanguageCoverage() throws OpenRDFException
-	{
-		languageCoverage = new HashMap<Value, Collection<String>>();
-		
-		Iterator<URI> it = new MonitoredIterator<URI>(involvedConcepts.getResult(), progressMonitor);
-		while (it.hasNext()) {
-            Value concept = it.next();
-
-            try {
-			    TupleQuery query = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createLanguageLiteralQuery(concept));
-                addToLanguageCoverageMap(concept, query.evaluate());
+    /**
+     * Collects the languages of the literals describing each concept. Language tags are interned to consecutive
+     * codes, the languages of a concept are stored as bit set of these codes.
+     */
+    private static class LanguageCoverageCollector implements StatementVisitor<Map<Value, Collection<String>>> {
+
+        private final Map<Value, Integer> conceptIndices = new HashMap<Value, Integer>();
+        private final Value[] concepts;
+        private final BitSet[] languageCoverage;
+
+        private final Map<String, Integer> languageCodes = new HashMap<String, Integer>();
+        private final List<String> languages = new ArrayList<String>();
+
+        LanguageCoverageCollector(Collection<URI> involvedConcepts) {
+            concepts = new Value[involvedConcepts.size()];
+            languageCoverage = new BitSet[involvedConcepts.size()];
+
+            for (URI concept : involvedConcepts) {
+                if (!conceptIndices.containsKey(concept)) {
+                    concepts[conceptIndices.size()] = concept;
+                    conceptIndices.put(concept, conceptIndices.size());
+                }
             }
-            catch (OpenRDFException e) {
-                logger.error("Error finding languages for concept '" +concept+ "'");
+        }
+
+        @Override
+        public void visit(Statement statement) {
+            if (!(statement.getObject() instanceof Literal)) return;
+
+            String language = ((Literal) statement.getObject()).getLanguage();
+            if (language == null || language.isEmpty()) return;
+
+            Integer conceptIndex = conceptIndices.get(statement.getSubject());
+            if (conceptIndex == null) return;
+
+            BitSet coveredLanguages = languageCoverage[conceptIndex];
+            if (coveredLanguages == null) {
+                coveredLanguages = new BitSet();
+                languageCoverage[conceptIndex] = coveredLanguages;
             }
-		}
-	}
-	
-	private String createLanguageLiteralQuery(Value concept) {
-		return "SELECT DISTINCT ?literal "+
-			"WHERE {" +
-			"<"+concept+"> ?p ?literal ."+
-			"FILTER isLiteral(?literal) "+
-			"FILTER langMatches(lang(?literal), \"*\")" +
-			"}";
-	}
-	
-	private void addToLanguageCoverageMap(Value concept, TupleQueryResult result)
-		throws QueryEvaluationException 
-	{
-		while (result.hasNext()) {
-			BindingSet queryResult = result.next();
-			Literal literal = (Literal) queryResult.getValue("literal");
-			
-			String language = literal.getLanguage();
-			addToLanguageCoverageMap(concept, language);
-			addToDistinctLanguages(language);
-		}
-	}
-	
-	private void addToLanguageCoverageMap(Value value, String langTag) {
-		Collection<String> langTags = languageCoverage.get(value);
-		if (langTags == null) {
-			langTags = new HashSet<String>();
-			languageCoverage.put(value, langTags);
-		}
-		langTags.add(langTag);
-	}
-	
-	private void addToDistinctLanguages(String langTag) {
-		if (distinctLanguages == null) {
-			distinctLanguages = new HashSet<String>();
-		}
-		distinctLanguages.add(langTag);
-	}
-	
-	private void generateIncompleteLanguageCoverageMap() {
-		incompleteLanguageCoverage = new HashMap<Value, Collection<String>>();
-		
-		for (Value resource : languageCoverage.keySet()) {
-			Collection<String> coveredLanguages = languageCoverage.get(resource);
-			Collection<String> notCoveredLanguages = getNotCoveredLanguages(coveredLanguages);
-			if (!notCoveredLanguages.isEmpty()) {
-				incompleteLanguageCoverage.put(resource, notCoveredLanguages);
-			}
-		}
-	}
-	
-	private Collection<String> getNotCoveredLanguages(Collection<String> coveredLanguages) {
-		Set<String> ret = new HashSet<String>(distinctLanguages);
-		ret.removeAll(coveredLanguages);
-		return ret;
-	}
+            coveredLanguages.set(getLanguageCode(language));
+        }
+
+        private int getLanguageCode(String language) {
+            Integer code = languageCodes.get(language);
+            if (code == null) {
+                code = languages.size();
+                languageCodes.put(language, code);
+                languages.add(language);
+            }
+            return code;
+        }
+
+        @Override
+        public Map<Value, Collection<String>> getResult() {
+            Map<Value, Collection<String>> incompleteLanguageCoverage = new HashMap<Value, Collection<String>>();
+
+            for (int conceptIndex = 0; conceptIndex < languageCoverage.length; conceptIndex++) {
+                if (languageCoverage[conceptIndex] == null) continue;
+
+                BitSet notCoveredLanguages = new BitSet(languages.size());
+                notCoveredLanguages.set(0, languages.size());
+                notCoveredLanguages.andNot(languageCoverage[conceptIndex]);
+
+                if (!notCoveredLanguages.isEmpty()) {
+                    incompleteLanguageCoverage.put(concepts[conceptIndex], getLanguages(notCoveredLanguages));
+                }
+            }
+
+            return incompleteLanguageCoverage;
+        }
+
+        private Collection<String> getLanguages(BitSet languageSet) {
+            Set<String> ret = new HashSet<String>();
+            for (int code = languageSet.nextSetBit(0); code >= 0; code = languageSet.nextSetBit(code + 1)) {
+                ret.add(languages.get(code));
+            }
+            return ret;
+        }
+    }
 
 }
@@ -1,14 +1,16 @@
 package at.ac.univie.mminf.qskos4j.issues.outlinks;
 
+import at.ac.univie.mminf.qskos4j.issues.IncrementalIssue;
 import at.ac.univie.mminf.qskos4j.issues.Issue;
 import at.ac.univie.mminf.qskos4j.report.ExtrapolatedCollectionReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
 import at.ac.univie.mminf.qskos4j.util.RandomSubSet;
-import at.ac.univie.mminf.qskos4j.util.progress.MonitoredIterator;
-import at.ac.univie.mminf.qskos4j.util.url.NoContentTypeProvidedException;
+import at.ac.univie.mminf.qskos4j.util.url.LinkCache;
+import at.ac.univie.mminf.qskos4j.util.url.LinkChecker;
 import at.ac.univie.mminf.qskos4j.util.url.UrlDereferencer;
-import at.ac.univie.mminf.qskos4j.util.url.UrlNotDereferencableException;
+import at.ac.univie.mminf.qskos4j.util.vocab.VocabularyDelta;
 import org.openrdf.OpenRDFException;
+import org.openrdf.query.QueryEvaluationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,15 +26,19 @@ import java.util.*;
  *
  * Finds <a href="https://github.com/cmader/qSKOS/wiki/Quality-Issues#wiki-Broken_Links">Broken Links</a>.
  */
-public class BrokenLinks extends Issue<Collection<URL>> {
+public class BrokenLinks extends Issue<Collection<URL>> implements IncrementalIssue<Collection<URL>> {
 	
 	private final Logger logger = LoggerFactory.getLogger(BrokenLinks.class);
-	private final static String NO_CONTENT_TYPE = "n/a";
+
+    public final static int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
 	
 	private Map<URL, String> urlAvailability = new HashMap<URL, String>();
 	private Set<String> invalidResources = new HashSet<String>();
     private HttpURIs httpURIs;
-    private Integer extAccessDelayMillis;
+    private int extAccessDelayMillis;
+    private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+    private int maxConnectionsPerHost = UrlDereferencer.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private LinkCache linkCache;
     private Float randomSubsetSize_percent;
 
     public BrokenLinks(HttpURIs httpURIs) {
@@ -48,37 +54,75 @@ public class BrokenLinks extends Issue<Collection<URL>> {
 
     @Override
     protected Collection<URL> computeResult() throws OpenRDFException {
-        dereferenceURIs();
+        urlAvailability.clear();
+        dereferenceURIs(collectUrisToBeDereferenced());
 		return collectUnavailableURLs();
 	}
 
+    /**
+     * Only links that have not been checked for the previous version are dereferenced, the availability of all
+     * other links is taken over. If only a subset of the links is checked, all links are checked again.
+     */
+    @Override
+    public Collection<URL> updateResult(Collection<URL> previousResult, VocabularyDelta delta)
+        throws OpenRDFException
+    {
+        if (randomSubsetSize_percent != null) {
+            return computeResult();
+        }
+
+        Map<URL, String> previousAvailability = new HashMap<URL, String>(urlAvailability);
+        urlAvailability.clear();
+
+        Collection<URI> urisToBeDereferenced = new ArrayList<URI>();
+        for (URI uri : httpURIs.getResult()) {
+            try {
+                URL url = uri.toURL();
+                if (previousAvailability.containsKey(url)) {
+                    urlAvailability.put(url, previousAvailability.get(url));
+                }
+                else {
+                    urisToBeDereferenced.add(uri);
+                }
+            }
+            catch (MalformedURLException e) {
+                invalidResources.add(uri.toString());
+            }
+        }
+        logger.debug("Reusing availability of " +urlAvailability.size()+ " links");
+
+        dereferenceURIs(urisToBeDereferenced);
+        return collectUnavailableURLs();
+    }
+
     @Override
     protected Report generateReport(Collection<URL> preparedData) {
         return new ExtrapolatedCollectionReport<URL>(preparedData, randomSubsetSize_percent);
     }
 
-    private void dereferenceURIs() throws OpenRDFException
+    private void dereferenceURIs(Collection<URI> urisToBeDereferenced) throws OpenRDFException
 	{
-		Collection<URI> urisToBeDereferenced = collectUrisToBeDereferenced();
-		Iterator<URI> it = new MonitoredIterator<URI>(urisToBeDereferenced, progressMonitor);
-		
-		int i = 1;
-		while (it.hasNext()) {
-			URI uri = it.next();
-			
-			logger.debug("processing link " +i+ " of "+urisToBeDereferenced.size());
-			i++;
-			
-			// delay to avoid flooding the vocabulary host  
-			try {
-				Thread.sleep(extAccessDelayMillis);
-			} 
-			catch (InterruptedException e) {
-				// ignore this exception
-			}
-			
-			addToResults(uri);
-		}
+        Collection<URL> urlsToBeDereferenced = new ArrayList<URL>();
+        for (URI uri : urisToBeDereferenced) {
+            try {
+                urlsToBeDereferenced.add(uri.toURL());
+            }
+            catch (MalformedURLException e) {
+                invalidResources.add(uri.toString());
+            }
+        }
+
+        LinkChecker linkChecker = new LinkChecker(maxConcurrentRequests, extAccessDelayMillis);
+        linkChecker.setMaxConnectionsPerHost(maxConnectionsPerHost);
+        linkChecker.setProgressMonitor(progressMonitor);
+        linkChecker.setLinkCache(linkCache);
+        try {
+            urlAvailability.putAll(linkChecker.check(urlsToBeDereferenced));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryEvaluationException("Interrupted while checking links", e);
+        }
 	}
 	
 	private Collection<URI> collectUrisToBeDereferenced() throws OpenRDFException {
@@ -92,34 +136,6 @@ public class BrokenLinks extends Issue<Collection<URL>> {
 		return urisToBeDereferenced;
 	}
 	
-	private void addToResults(URI uri) {
-		try {
-			addToAvailabilityMap(uri.toURL());
-		} 
-		catch (MalformedURLException e) {
-			invalidResources.add(uri.toString());
-		}
-	}
-	
-	private void addToAvailabilityMap(URL url) {
-		UrlDereferencer dereferencer = new UrlDereferencer();		
-		
-		String contentType;
-		try {
-			contentType = dereferencer.getContentType(url);
-		}
-		catch (UrlNotDereferencableException e) {
-			contentType = null;
-			logger.debug("url not dereferencable: " +url.toString());
-		} 
-		catch (NoContentTypeProvidedException e) {
-			contentType = NO_CONTENT_TYPE;
-			logger.debug("no content type in response header for " +url.toString());
-		}
-
-		urlAvailability.put(url, contentType);
-	}
-	
 	private Collection<URL> collectUnavailableURLs() {
 		Collection<URL> unavailableURLs = new ArrayList<URL>();
 		
@@ -136,6 +152,30 @@ public class BrokenLinks extends Issue<Collection<URL>> {
         extAccessDelayMillis = delayMillis;
     }
 
+    /**
+     * Links on different hosts are checked concurrently, the delay set by {@link #setExtAccessDelayMillis(int)}
+     * applies to each host separately.
+     *
+     * @param maxConcurrentRequests maximum number of links checked at the same time
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * @param maxConnectionsPerHost maximum number of pooled connections to a single host
+     */
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * @param linkCache results of previous runs, links with fresh results are not dereferenced again
+     */
+    public void setLinkCache(LinkCache linkCache) {
+        this.linkCache = linkCache;
+    }
+
     public void setSubsetSize(Float subsetSizePercent) {
         randomSubsetSize_percent = subsetSizePercent;
     }
@@ -1,12 +1,11 @@
 package at.ac.univie.mminf.qskos4j.issues.outlinks;
 
-import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.issues.StatementScanIssue;
 import at.ac.univie.mminf.qskos4j.report.CollectionReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
-import org.openrdf.OpenRDFException;
+import at.ac.univie.mminf.qskos4j.util.scan.StatementVisitor;
+import org.openrdf.model.Statement;
 import org.openrdf.model.Value;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQueryResult;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -19,30 +18,20 @@ import java.util.Set;
  * Date: 26.01.13
  * Time: 15:23
  */
-public class HttpURIs extends Issue<Collection<URI>> {
-
-    private Set<URI> httpURIs = new HashSet<URI>();
-    private Set<String> invalidResources = new HashSet<String>();
+public class HttpURIs extends StatementScanIssue<Collection<URI>> {
 
     public HttpURIs() {
         super("huc",
               "HTTP URI Count",
               "Counts the total number of HTTP URIs",
-              IssueType.STATISTICAL
+              IssueType.STATISTICAL,
+              true
         );
     }
 
     @Override
-    protected Collection<URI> computeResult() throws OpenRDFException {
-
-        TupleQueryResult result = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createIRIQuery()).evaluate();
-
-        while (result.hasNext()) {
-            Value iri = result.next().getValue("iri");
-            addToUrlList(iri);
-        }
-
-        return httpURIs;
+    protected StatementVisitor<Collection<URI>> createStatementVisitor() {
+        return new HttpURIsCollector();
     }
 
     @Override
@@ -50,36 +39,51 @@ public class HttpURIs extends Issue<Collection<URI>> {
         return new CollectionReport<URI>(preparedData);
     }
 
-    private String createIRIQuery() {
-        return "SELECT DISTINCT ?iri "+
-            "FROM default "+
-                "WHERE {" +
-                    "{{?s ?p ?iri .} UNION "+
-                    "{?iri ?p ?o .} UNION "+
-                    "{?s ?iri ?p .}} "+
-                    "FILTER isIRI(?iri)" +
-                "}";
-    }
+    private static class HttpURIsCollector implements StatementVisitor<Collection<URI>> {
+
+        private Set<Value> visitedIRIs = new HashSet<Value>();
+        private Set<URI> httpURIs = new HashSet<URI>();
+        private Set<String> invalidResources = new HashSet<String>();
 
-    private void addToUrlList(Value iri) {
-        try {
-            URI uri = new URI(iri.stringValue());
+        @Override
+        public void visit(Statement statement) {
+            addIfIRI(statement.getSubject());
+            addIfIRI(statement.getPredicate());
+            addIfIRI(statement.getObject());
+        }
 
-            if (uri.getScheme().startsWith("http")) {
-                httpURIs.add(pruneFragment(uri));
+        private void addIfIRI(Value value) {
+            if (value instanceof org.openrdf.model.URI && visitedIRIs.add(value)) {
+                addToUrlList(value);
             }
         }
-        catch (URISyntaxException e) {
-            invalidResources.add(iri.toString());
+
+        private void addToUrlList(Value iri) {
+            try {
+                URI uri = new URI(iri.stringValue());
+
+                if (uri.getScheme() != null && uri.getScheme().startsWith("http")) {
+                    httpURIs.add(pruneFragment(uri));
+                }
+            }
+            catch (URISyntaxException e) {
+                invalidResources.add(iri.toString());
+            }
         }
-    }
 
-    private URI pruneFragment(URI uri) throws URISyntaxException
-    {
-        if (uri.getFragment() != null) {
-            int hashIndex = uri.toString().indexOf("#");
-            return new URI(uri.toString().substring(0, hashIndex));
+        private URI pruneFragment(URI uri) throws URISyntaxException
+        {
+            if (uri.getFragment() != null) {
+                int hashIndex = uri.toString().indexOf("#");
+                return new URI(uri.toString().substring(0, hashIndex));
+            }
+            return uri;
+        }
+
+        @Override
+        public Collection<URI> getResult() {
+            return httpURIs;
         }
-        return uri;
     }
+
 }
@@ -1,13 +1,12 @@
 package at.ac.univie.mminf.qskos4j.issues.outlinks;
 
-import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.issues.StatementScanIssue;
 import at.ac.univie.mminf.qskos4j.report.CollectionReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
-import org.openrdf.OpenRDFException;
+import at.ac.univie.mminf.qskos4j.util.scan.StatementVisitor;
 import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
-import org.openrdf.repository.RepositoryResult;
 
 import java.util.Collection;
 import java.util.HashSet;
@@ -20,46 +19,52 @@ import java.util.Set;
  *
  * Finds resources not within the HTTP URI scheme (<a href="https://github.com/cmader/qSKOS/wiki/Quality-Issues#wiki-HTTP_URI_Scheme_Violation">HTTP URI Scheme Violation</a>.
  */
-public class HttpUriSchemeViolations extends Issue<Collection<String>> {
+public class HttpUriSchemeViolations extends StatementScanIssue<Collection<String>> {
 
     public HttpUriSchemeViolations() {
         super("husv",
               "HTTP URI Scheme Violation",
               "Finds triple subjects that are no HTTP URIs",
-              IssueType.ANALYTICAL
+              IssueType.ANALYTICAL,
+              false
         );
     }
 
     @Override
-    protected Collection<String> computeResult() throws OpenRDFException {
-        Set<String> nonHttpURIs = new HashSet<String>();
+    protected StatementVisitor<Collection<String>> createStatementVisitor() {
+        return new NonHttpSubjectsCollector();
+    }
 
-        RepositoryResult<Statement> allStatements = repCon.getStatements(null, null, null, false);
-        while (allStatements.hasNext()) {
-            Statement statement = allStatements.next();
+    @Override
+    protected Report generateReport(Collection<String> preparedData) {
+        return new CollectionReport<String>(preparedData);
+    }
+
+    private static class NonHttpSubjectsCollector implements StatementVisitor<Collection<String>> {
+
+        private Set<String> nonHttpURIs = new HashSet<String>();
+
+        @Override
+        public void visit(Statement statement) {
             if (isNonHttpURI(statement.getSubject())) {
                 nonHttpURIs.add(statement.getSubject().stringValue());
             }
         }
 
-        return nonHttpURIs;
-    }
-
-    private boolean isNonHttpURI(Resource resource) {
-        if (resource instanceof URI) {
-            String uri = resource.stringValue().toLowerCase();
-            if (!uri.contains("http://") && !uri.contains("https://")) {
-                return true;
+        private boolean isNonHttpURI(Resource resource) {
+            if (resource instanceof URI) {
+                String uri = resource.stringValue().toLowerCase();
+                if (!uri.contains("http://") && !uri.contains("https://")) {
+                    return true;
+                }
             }
+            return false;
         }
-        return false;
-    }
 
-    @Override
-    protected Report generateReport(Collection<String> preparedData) {
-        return new CollectionReport<String>(preparedData);
+        @Override
+        public Collection<String> getResult() {
+            return nonHttpURIs;
+        }
     }
 
-
-
 }
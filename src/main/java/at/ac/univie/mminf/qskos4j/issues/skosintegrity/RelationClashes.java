@@ -4,29 +4,42 @@ import at.ac.univie.mminf.qskos4j.issues.HierarchyGraphBuilder;
 import at.ac.univie.mminf.qskos4j.issues.Issue;
 import at.ac.univie.mminf.qskos4j.report.CollectionReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
 import at.ac.univie.mminf.qskos4j.util.Tuple;
-import at.ac.univie.mminf.qskos4j.util.TupleQueryResultUtil;
-import at.ac.univie.mminf.qskos4j.util.graph.NamedEdge;
-import at.ac.univie.mminf.qskos4j.util.progress.MonitoredIterator;
-import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
-import org.jgrapht.Graph;
-import org.jgrapht.alg.DijkstraShortestPath;
+import at.ac.univie.mminf.qskos4j.util.graph.HierarchyGraph;
+import at.ac.univie.mminf.qskos4j.util.graph.ReachabilityIndex;
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.Value;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.QueryEvaluationException;
 import org.openrdf.repository.RepositoryConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Finds <a href="https://github.com/cmader/qSKOS/wiki/Quality-Issues#wiki-Relation_Clashes">Associative vs. Hierarchical Relation Clashes</a>.
  */
 public class RelationClashes extends Issue<Collection<Tuple<Value>>> {
 
+    private final Logger logger = LoggerFactory.getLogger(RelationClashes.class);
+
+    public final static int DEFAULT_MIN_PAIRS_PER_PARTITION = 10000;
+
     private HierarchyGraphBuilder hierarchyGraphBuilder;
+    private int parallelism = 1;
+    private int minPairsPerPartition = DEFAULT_MIN_PAIRS_PER_PARTITION;
 
     public RelationClashes(HierarchyGraphBuilder hierarchyGraphBuilder) {
         super("rc",
@@ -40,27 +53,22 @@ public class RelationClashes extends Issue<Collection<Tuple<Value>>> {
 
     @Override
     protected Collection<Tuple<Value>> computeResult() throws OpenRDFException {
-        Graph<Value, NamedEdge> hierarchyGraph = hierarchyGraphBuilder.createGraph();
-
-        Collection<Tuple<Value>> clashes = new HashSet<Tuple<Value>>();
-
-        Iterator<Tuple<Value>> it = new MonitoredIterator<Tuple<Value>>(
-                findRelatedConcepts(),
-                progressMonitor);
-
-        while (it.hasNext()) {
-            Tuple<Value> conceptPair = it.next();
-            try {
-                if (pathExists(hierarchyGraph, conceptPair)) {
-                    clashes.add(conceptPair);
+        HierarchyGraph hierarchyGraph = hierarchyGraphBuilder.getGraph();
+        IntAdjacency relatedConcepts = hierarchyGraph.getSkosIndex().getRelation(SkosIndex.Relation.RELATED);
+
+        BitSet clashes = findClashes(hierarchyGraph, relatedConcepts);
+
+        Collection<Tuple<Value>> ret = new HashSet<Tuple<Value>>();
+        for (int concept = 0; concept < relatedConcepts.getVertexCount(); concept++) {
+            for (int position = relatedConcepts.getStart(concept); position < relatedConcepts.getEnd(concept); position++) {
+                if (clashes.get(position)) {
+                    ret.add(new Tuple<Value>(
+                        hierarchyGraph.getValue(concept),
+                        hierarchyGraph.getValue(relatedConcepts.getTarget(position))));
                 }
             }
-            catch (IllegalArgumentException e) {
-                // one of the concepts not in graph, no clash possible
-            }
         }
-
-        return clashes;
+        return ret;
     }
 
     @Override
@@ -68,35 +76,112 @@ public class RelationClashes extends Issue<Collection<Tuple<Value>>> {
         return new CollectionReport<Tuple<Value>>(preparedData);
     }
 
-    private Collection<Tuple<Value>> findRelatedConcepts() throws OpenRDFException {
-        TupleQueryResult result = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createRelatedConceptsQuery()).evaluate();
-        return TupleQueryResultUtil.createCollectionOfValuePairs(result, "concept1", "concept2");
+    /**
+     * Sets the maximum number of threads used to check the related concept pairs of large vocabularies.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of related concept pairs that a thread must at least check, fewer pairs are checked by the
+     * calling thread alone.
+     */
+    public void setMinPairsPerPartition(int minPairsPerPartition) {
+        if (minPairsPerPartition < 1) {
+            throw new IllegalArgumentException("minimum number of pairs per partition must be at least 1");
+        }
+        this.minPairsPerPartition = minPairsPerPartition;
     }
 
-    private String createRelatedConceptsQuery() {
-        return SparqlPrefix.SKOS +
-            "SELECT DISTINCT ?concept1 ?concept2 WHERE {" +
-                "?concept1 skos:related|skos:relatedMatch ?concept2 ." +
-            "}";
+    /**
+     * @return the positions of all associative relations (see {@link IntAdjacency#getTarget(int)}) whose concepts are
+     * also hierarchically related
+     */
+    private BitSet findClashes(final HierarchyGraph hierarchyGraph, final IntAdjacency relatedConcepts)
+        throws OpenRDFException
+    {
+        final int pairCount = relatedConcepts.getEdgeCount();
+        final int[] sources = new int[pairCount];
+        for (int concept = 0; concept < relatedConcepts.getVertexCount(); concept++) {
+            for (int position = relatedConcepts.getStart(concept); position < relatedConcepts.getEnd(concept); position++) {
+                sources[position] = concept;
+            }
+        }
+
+        final ReachabilityIndex reachabilityIndex = hierarchyGraph.getReachabilityIndex();
+        int partitionCount = Math.min(parallelism, pairCount / minPairsPerPartition);
+        if (partitionCount <= 1) {
+            BitSet clashes = new BitSet(pairCount);
+            findClashes(hierarchyGraph, reachabilityIndex, sources, relatedConcepts, 0, pairCount, clashes);
+            return clashes;
+        }
+
+        logger.debug("Checking relation clashes in " +partitionCount+ " partitions");
+        ExecutorService executor = Executors.newFixedThreadPool(partitionCount, new DaemonThreadFactory("qskos-rc"));
+        try {
+            List<Future<BitSet>> partitions = new ArrayList<Future<BitSet>>();
+            for (int partition = 0; partition < partitionCount; partition++) {
+                final int fromPair = (int) ((long) pairCount * partition / partitionCount);
+                final int toPair = (int) ((long) pairCount * (partition + 1) / partitionCount);
+
+                partitions.add(executor.submit(new Callable<BitSet>() {
+                    @Override
+                    public BitSet call() {
+                        BitSet clashes = new BitSet(pairCount);
+                        findClashes(hierarchyGraph, reachabilityIndex, sources, relatedConcepts, fromPair, toPair, clashes);
+                        return clashes;
+                    }
+                }));
+            }
+
+            BitSet clashes = new BitSet(pairCount);
+            for (Future<BitSet> partition : partitions) {
+                clashes.or(partition.get());
+            }
+            return clashes;
+        }
+        catch (ExecutionException e) {
+            throw new QueryEvaluationException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryEvaluationException("Interrupted while checking relation clashes", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
     }
 
-    private boolean pathExists(Graph<Value, NamedEdge> hierarchyGraph, Tuple<Value> conceptPair) {
-        if (new DijkstraShortestPath<Value, NamedEdge>(
-                hierarchyGraph,
-                conceptPair.getFirst(),
-                conceptPair.getSecond()).getPathEdgeList() == null)
-        {
-            return new DijkstraShortestPath<Value, NamedEdge>(
-                    hierarchyGraph,
-                    conceptPair.getSecond(),
-                    conceptPair.getFirst()).getPathEdgeList() != null;
+    private void findClashes(
+        HierarchyGraph hierarchyGraph,
+        ReachabilityIndex reachabilityIndex,
+        int[] sources,
+        IntAdjacency relatedConcepts,
+        int fromPair,
+        int toPair,
+        BitSet clashes)
+    {
+        for (int pair = fromPair; pair < toPair; pair++) {
+            int concept = sources[pair];
+            int otherConcept = relatedConcepts.getTarget(pair);
+
+            // concepts not in the hierarchy graph can't clash
+            if (!hierarchyGraph.isVertex(concept) || !hierarchyGraph.isVertex(otherConcept)) continue;
+
+            if (reachabilityIndex.isReachable(concept, otherConcept) ||
+                reachabilityIndex.isReachable(otherConcept, concept))
+            {
+                clashes.set(pair);
+            }
         }
-        return true;
     }
 
     @Override
-    public void setRepositoryConnection(RepositoryConnection repCon) {
+    protected void repositoryConnectionChanged(RepositoryConnection repCon) {
         hierarchyGraphBuilder.setRepositoryConnection(repCon);
-        super.setRepositoryConnection(repCon);
     }
 }
@@ -1,171 +1,104 @@
 package at.ac.univie.mminf.qskos4j.issues.skosintegrity;
 
-import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.issues.StatementScanIssue;
 import at.ac.univie.mminf.qskos4j.report.CollectionReport;
 import at.ac.univie.mminf.qskos4j.report.Report;
-import at.ac.univie.mminf.qskos4j.util.TupleQueryResultUtil;
+import at.ac.univie.mminf.qskos4j.util.scan.StatementVisitor;
 import at.ac.univie.mminf.qskos4j.util.vocab.SkosOntology;
 import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
 import org.openrdf.OpenRDFException;
+import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
-import org.openrdf.query.*;
-import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.model.impl.URIImpl;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * Finds resources not defined in the SKOS ontology (
  * <a href="https://github.com/cmader/qSKOS/wiki/Quality-Issues#wiki-Undefined_SKOS_Resources">Undefined SKOS Resources</a>
  * ).
  */
-public class UndefinedSkosResources extends Issue<Collection<URI>> {
+public class UndefinedSkosResources extends StatementScanIssue<Collection<URI>> {
 
-	private Map<URI, Collection<URI>> deprecatedProperties, illegalTerms;
+    private final static Collection<URI> DEPRECATED_PROPERTIES = Arrays.asList(
+        createSkosURI("symbol"),
+        createSkosURI("prefSymbol"),
+        createSkosURI("altSymbol"),
+        createSkosURI("CollectableProperty"),
+        createSkosURI("subject"),
+        createSkosURI("isSubjectOf"),
+        createSkosURI("primarySubject"),
+        createSkosURI("isPrimarySubjectOf"),
+        createSkosURI("subjectIndicator"));
 
     public UndefinedSkosResources() {
         super("usr",
               "Undefined SKOS Resources",
               "Finds 'invented' new terms within the SKOS namespace or deprecated properties",
-              IssueType.ANALYTICAL
+              IssueType.ANALYTICAL,
+              true
         );
     }
 
+    private static URI createSkosURI(String localName) {
+        return new URIImpl(SparqlPrefix.SKOS.getNameSpace() + localName);
+    }
+
     @Override
-    protected Collection<URI> computeResult() throws OpenRDFException {
-		findDeprecatedProperties();
-		findIllegalTerms();
-		
-		return collectUndefinedResources();
-	}
+    protected StatementVisitor<Collection<URI>> createStatementVisitor() throws OpenRDFException {
+        return new UndefinedResourcesCollector(SkosOntology.getInstance().getVocabularyModel().getDefinedTerms());
+    }
 
     @Override
     protected Report generateReport(Collection<URI> preparedData) {
         return new CollectionReport<URI>(preparedData);
     }
 
-    private void findDeprecatedProperties() throws OpenRDFException
-	{
-		TupleQuery query = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createDeprecatedPropertiesQuery());
-		generateDeprecatedPropertiesMap(query.evaluate());
-	}
-	
-	private String createDeprecatedPropertiesQuery() {
-		return SparqlPrefix.SKOS +
-			"SELECT DISTINCT ?iri ?deprProp "+
-			"WHERE {{?iri ?deprProp ?o .} UNION "+
-				"{?q ?deprProp ?iri .} "+
-				"FILTER isIRI(?iri) "+
-				"FILTER (?deprProp IN (" +
-					"skos:symbol,"+ 
-					"skos:prefSymbol,"+
-					"skos:altSymbol,"+
-					"skos:CollectableProperty,"+
-					"skos:subject,"+
-					"skos:isSubjectOf,"+
-					"skos:primarySubject,"+
-					"skos:isPrimarySubjectOf,"+
-					"skos:subjectIndicator))}";
-	}
-	
-	private void generateDeprecatedPropertiesMap(TupleQueryResult result) 
-		throws QueryEvaluationException 
-	{
-		deprecatedProperties = new HashMap<URI, Collection<URI>>();
-
-		while (result.hasNext()) {
-			BindingSet queryResult = result.next();
-			URI resource = (URI) queryResult.getValue("iri");
-			URI deprProperty = (URI) queryResult.getValue("deprProp");
-			
-			Collection<URI> resources = deprecatedProperties.get(deprProperty);
-			if (resources == null) {
-				resources = new HashSet<URI>();
-				deprecatedProperties.put(deprProperty, resources);
-			}
-			resources.add(resource);
-		}
-	}
-	
-	private void findIllegalTerms() throws OpenRDFException 
-	{
-        TupleQuery query = repCon.prepareTupleQuery(QueryLanguage.SPARQL, createIllegalTermsQuery());
-		generateIllegalTermsMap(query.evaluate());
-	}
-	
-	private String createIllegalTermsQuery() throws OpenRDFException {
-		return SparqlPrefix.SKOS+ 
-			"SELECT DISTINCT ?illTerm ?s ?o "+
-			"WHERE {" +
-                "{?illTerm ?p ?o . } UNION "+
-			    "{?s ?illTerm ?o . } UNION "+
-			    "{?s ?p ?illTerm . } "+
-			    "FILTER isIRI(?illTerm) "+
-			    "FILTER STRSTARTS(str(?illTerm), \"" +SparqlPrefix.SKOS.getNameSpace()+ "\") "+
-                createSkosSubjectsFilter()+
-            "} ";
-	}
-
-    private String createSkosSubjectsFilter() throws OpenRDFException {
-        RepositoryConnection skosRepoConn = SkosOntology.getInstance().getRepository().getConnection();
-        try {
-            TupleQuery skosSubjectsQuery = skosRepoConn.prepareTupleQuery(QueryLanguage.SPARQL, createSkosSubjectsQuery());
-            return TupleQueryResultUtil.getFilterForBindingName(skosSubjectsQuery.evaluate(), "illTerm", true);
+    private static class UndefinedResourcesCollector implements StatementVisitor<Collection<URI>> {
+
+        private Set<URI> definedTerms;
+        private Set<URI> deprecatedProperties = new HashSet<URI>(DEPRECATED_PROPERTIES);
+        private Set<URI> undefinedResources = new HashSet<URI>();
+
+        UndefinedResourcesCollector(Set<URI> definedTerms) {
+            this.definedTerms = definedTerms;
         }
-        finally {
-            skosRepoConn.close();
+
+        @Override
+        public void visit(Statement statement) {
+            findDeprecatedProperty(statement);
+
+            findIllegalTerm(statement.getSubject());
+            findIllegalTerm(statement.getPredicate());
+            findIllegalTerm(statement.getObject());
+        }
+
+        private void findDeprecatedProperty(Statement statement) {
+            if (deprecatedProperties.contains(statement.getPredicate()) &&
+                (statement.getSubject() instanceof URI || statement.getObject() instanceof URI))
+            {
+                undefinedResources.add(statement.getPredicate());
+            }
         }
-    }
 
-    private String createSkosSubjectsQuery() {
-        return "SELECT ?illTerm WHERE {" +
-                    "?illTerm ?p ?o . " +
-                    "FILTER isIRI(?illTerm)"+
-                "}";
+        private void findIllegalTerm(Value value) {
+            if (value instanceof URI &&
+                value.stringValue().startsWith(SparqlPrefix.SKOS.getNameSpace()) &&
+                !definedTerms.contains(value) &&
+                !((URI) value).getLocalName().isEmpty())
+            {
+                undefinedResources.add((URI) value);
+            }
+        }
+
+        @Override
+        public Collection<URI> getResult() {
+            return undefinedResources;
+        }
     }
-	
-	private void generateIllegalTermsMap(TupleQueryResult result) 
-		throws QueryEvaluationException 
-	{
-		illegalTerms = new HashMap<URI, Collection<URI>>();
-		
-		while (result.hasNext()) {
-			BindingSet queryResult = result.next();
-			URI illegalTerm = (URI) queryResult.getValue("illTerm");
-			URI subject = (URI) queryResult.getValue("s");
-			Value object = queryResult.getValue("o");
-
-			if (!illegalTerm.getLocalName().isEmpty()) {
-				addTermToMap(illegalTerm, subject, object);
-			}
-		}
-	}
-	
-	private void addTermToMap(URI term, URI subject, Value object) {
-		Collection<URI> resources = illegalTerms.get(term);
-		if (resources == null) {
-			resources = new HashSet<URI>();
-			illegalTerms.put(term, resources);
-		}
-		
-		if (subject != null) {
-			resources.add(subject);
-		}
-		else if (object != null && object instanceof URI) {
-			resources.add((URI) object);
-		}		
-	}
-	
-	private Collection<URI> collectUndefinedResources() {
-		Collection<URI> undefRes = new HashSet<URI>();
-		
-		undefRes.addAll(deprecatedProperties.keySet());
-		undefRes.addAll(illegalTerms.keySet());
-		
-		return undefRes;
-	}
 
 }
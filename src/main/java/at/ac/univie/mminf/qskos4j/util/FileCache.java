@@ -0,0 +1,220 @@
+package at.ac.univie.mminf.qskos4j.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entries stored in a file so that they can be reused by later runs. Entries are identified by strings and expire
+ * after a TTL. When the cache is saved, only the most recent entries are kept. Subclasses define how entries are
+ * encoded and what makes an entry recent.
+ */
+public abstract class FileCache<E> {
+
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final File cacheFile;
+    private final int magic, formatVersion;
+    private final String contentDescription;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, E> entries = new HashMap<String, E>();
+    private long fileLength;
+
+    /**
+     * @param magic number identifying files of this kind of cache
+     * @param formatVersion version of the entry encoding, files of other versions are ignored
+     * @param contentDescription what the entries are, used in log messages
+     * @param ttlMillis time after which an entry is no longer fresh
+     * @param maxEntries the number of entries kept when the cache is saved
+     */
+    protected FileCache(
+        File cacheFile,
+        int magic,
+        int formatVersion,
+        String contentDescription,
+        long ttlMillis,
+        int maxEntries)
+    {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maximum number of entries must be at least 1");
+        }
+        this.cacheFile = cacheFile;
+        this.magic = magic;
+        this.formatVersion = formatVersion;
+        this.contentDescription = contentDescription;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    protected abstract E readEntry(DataInput in) throws IOException;
+
+    protected abstract void writeEntry(DataOutput out, E entry) throws IOException;
+
+    /**
+     * @return the time the entry has last been used or updated, the least recent entries are dropped first
+     */
+    protected abstract long getRecencyMillis(E entry);
+
+    /**
+     * Reads the entries stored in the cache file. A missing or unreadable file results in an empty cache.
+     */
+    public synchronized void load() {
+        entries.clear();
+        if (!cacheFile.isFile()) return;
+
+        fileLength = cacheFile.length();
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), BUFFER_SIZE));
+            try {
+                readEntries(in);
+            }
+            finally {
+                in.close();
+            }
+            logger.info("Loaded " +entries.size()+ " cached " +contentDescription+ " from " +cacheFile);
+        }
+        catch (IOException e) {
+            logger.warn("Could not read cache " +cacheFile+ ", starting with an empty cache: " +e.getMessage());
+            entries.clear();
+        }
+    }
+
+    private void readEntries(DataInput in) throws IOException {
+        if (in.readInt() != magic || in.readInt() != formatVersion) {
+            throw new IOException("unsupported file format");
+        }
+
+        int entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            String key = readString(in);
+            entries.put(key, readEntry(in));
+        }
+    }
+
+    /**
+     * Writes the most recent entries to the cache file. The file is replaced only after it has been written
+     * completely.
+     */
+    public synchronized void save() throws IOException {
+        File cacheDir = cacheFile.getAbsoluteFile().getParentFile();
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IOException("Could not create cache directory " +cacheDir);
+        }
+
+        evict();
+
+        File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+            try {
+                writeEntries(out);
+            }
+            finally {
+                out.close();
+            }
+
+            cacheFile.delete();
+            if (!tempFile.renameTo(cacheFile)) {
+                throw new IOException("Could not create cache " +cacheFile);
+            }
+        }
+        finally {
+            tempFile.delete();
+        }
+
+        logger.info("Stored " +entries.size()+ " " +contentDescription+ " in " +cacheFile);
+    }
+
+    private void evict() {
+        if (entries.size() <= maxEntries) return;
+
+        List<Map.Entry<String, E>> sortedEntries = new ArrayList<Map.Entry<String, E>>(entries.entrySet());
+        Collections.sort(sortedEntries, new Comparator<Map.Entry<String, E>>() {
+            @Override
+            public int compare(Map.Entry<String, E> entry1, Map.Entry<String, E> entry2) {
+                return Long.valueOf(getRecencyMillis(entry2.getValue())).compareTo(getRecencyMillis(entry1.getValue()));
+            }
+        });
+
+        for (Map.Entry<String, E> entry : sortedEntries.subList(maxEntries, sortedEntries.size())) {
+            entries.remove(entry.getKey());
+        }
+    }
+
+    private void writeEntries(DataOutput out) throws IOException {
+        out.writeInt(magic);
+        out.writeInt(formatVersion);
+        out.writeInt(entries.size());
+
+        for (Map.Entry<String, E> entry : entries.entrySet()) {
+            writeString(out, entry.getKey());
+            writeEntry(out, entry.getValue());
+        }
+    }
+
+    protected synchronized E getEntry(String key) {
+        return entries.get(key);
+    }
+
+    protected synchronized void putEntry(String key, E entry) {
+        entries.put(key, entry);
+    }
+
+    /**
+     * @return true if the passed time is less than the TTL ago
+     */
+    protected boolean isFresh(long checkedMillis) {
+        return System.currentTimeMillis() - checkedMillis < ttlMillis;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}. A corrupt length is reported as an
+     * IOException rather than causing the allocation of an arbitrarily large array.
+     */
+    protected String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        if (length < 0 || length > fileLength) {
+            throw new IOException("invalid string length " +length);
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    protected static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = string.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+}
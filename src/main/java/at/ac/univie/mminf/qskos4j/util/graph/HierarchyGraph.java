@@ -0,0 +1,158 @@
+package at.ac.univie.mminf.qskos4j.util.graph;
+
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DirectedPseudograph;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Value;
+
+import java.util.BitSet;
+
+/**
+ * Immutable graph of the hierarchical relations of a vocabulary. Each edge leads from a resource to one of its
+ * broader resources, regardless of whether the relation has been stated using a broader or a narrower property.
+ * Vertices are identified by their ids in the {@link SkosIndex} the graph has been created from.
+ */
+public class HierarchyGraph {
+
+    private final SkosIndex skosIndex;
+    private final IntAdjacency broaderEdges;
+    private final BitSet vertices;
+    private StronglyConnectedComponents stronglyConnectedComponents;
+    private ReachabilityIndex reachabilityIndex;
+
+    private HierarchyGraph(SkosIndex skosIndex, IntAdjacency broaderEdges, BitSet vertices) {
+        this.skosIndex = skosIndex;
+        this.broaderEdges = broaderEdges;
+        this.vertices = vertices;
+    }
+
+    public static HierarchyGraph create(SkosIndex skosIndex) {
+        IntAdjacency.Builder builder = new IntAdjacency.Builder();
+        BitSet vertices = new BitSet(skosIndex.getValueCount());
+
+        addEdges(skosIndex, skosIndex.getRelation(SkosIndex.Relation.BROADER), false, builder, vertices);
+        addEdges(skosIndex, skosIndex.getRelation(SkosIndex.Relation.NARROWER), true, builder, vertices);
+
+        return new HierarchyGraph(skosIndex, builder.build(skosIndex.getValueCount()), vertices);
+    }
+
+    private static void addEdges(
+        SkosIndex skosIndex,
+        IntAdjacency relation,
+        boolean invertEdges,
+        IntAdjacency.Builder builder,
+        BitSet vertices)
+    {
+        for (int resource = 0; resource < relation.getVertexCount(); resource++) {
+            for (int position = relation.getStart(resource); position < relation.getEnd(resource); position++) {
+                int otherResource = relation.getTarget(position);
+                if (!(skosIndex.getValue(otherResource) instanceof Resource)) continue;
+
+                if (invertEdges) {
+                    builder.addEdge(otherResource, resource);
+                }
+                else {
+                    builder.addEdge(resource, otherResource);
+                }
+                vertices.set(resource);
+                vertices.set(otherResource);
+            }
+        }
+    }
+
+    /**
+     * @return the index this graph has been created from, it defines the ids of the vertices
+     */
+    public SkosIndex getSkosIndex() {
+        return skosIndex;
+    }
+
+    /**
+     * @return the size of the id space of the vertices, i.e., every vertex id is lower than this number
+     */
+    public int getVertexCount() {
+        return broaderEdges.getVertexCount();
+    }
+
+    /**
+     * @return true if the resource with the passed id takes part in at least one hierarchical relation
+     */
+    public boolean isVertex(int id) {
+        return vertices.get(id);
+    }
+
+    public BitSet getVertices() {
+        return (BitSet) vertices.clone();
+    }
+
+    /**
+     * @return the id of the passed resource or -1 if it is not a vertex of this graph
+     */
+    public int getId(Value resource) {
+        int id = skosIndex.getId(resource);
+        return id != -1 && isVertex(id) ? id : -1;
+    }
+
+    public Value getValue(int id) {
+        return skosIndex.getValue(id);
+    }
+
+    /**
+     * @return the edges of this graph, leading from resources to their broader resources
+     */
+    public IntAdjacency getBroaderEdges() {
+        return broaderEdges;
+    }
+
+    /**
+     * @return the strongly connected components of this graph, created on first use
+     */
+    public synchronized StronglyConnectedComponents getStronglyConnectedComponents() {
+        if (stronglyConnectedComponents == null) {
+            stronglyConnectedComponents = new StronglyConnectedComponents(broaderEdges);
+        }
+        return stronglyConnectedComponents;
+    }
+
+    /**
+     * @return an index for reachability queries on this graph, created on first use
+     */
+    public synchronized ReachabilityIndex getReachabilityIndex() {
+        if (reachabilityIndex == null) {
+            reachabilityIndex = new ReachabilityIndex(
+                broaderEdges,
+                getStronglyConnectedComponents(),
+                ReachabilityIndex.DEFAULT_LABELING_COUNT);
+        }
+        return reachabilityIndex;
+    }
+
+    /**
+     * @return true if the target vertex can be reached from the source vertex by following broader edges
+     */
+    public boolean isReachable(int source, int target) {
+        return getReachabilityIndex().isReachable(source, target);
+    }
+
+    /**
+     * Creates a new (mutable) JGraphT representation of this graph, e.g., for export to the DOT format. The graph
+     * allows loops, as resources may be broader than themselves.
+     */
+    public DirectedGraph<Value, NamedEdge> toDirectedGraph() {
+        DirectedGraph<Value, NamedEdge> graph = new DirectedPseudograph<Value, NamedEdge>(NamedEdge.class);
+
+        for (int vertex = vertices.nextSetBit(0); vertex >= 0; vertex = vertices.nextSetBit(vertex + 1)) {
+            graph.addVertex(getValue(vertex));
+        }
+        for (int vertex = vertices.nextSetBit(0); vertex >= 0; vertex = vertices.nextSetBit(vertex + 1)) {
+            for (int position = broaderEdges.getStart(vertex); position < broaderEdges.getEnd(vertex); position++) {
+                graph.addEdge(getValue(vertex), getValue(broaderEdges.getTarget(position)), new NamedEdge());
+            }
+        }
+
+        return graph;
+    }
+
+}
@@ -0,0 +1,77 @@
+package at.ac.univie.mminf.qskos4j.util.graph;
+
+/**
+ * Disjoint-set forest over the ints 0..size-1 with path compression and union by rank.
+ */
+public class IntUnionFind {
+
+    private final int[] parents;
+    private final byte[] ranks;
+
+    public IntUnionFind(int size) {
+        parents = new int[size];
+        ranks = new byte[size];
+
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+        }
+    }
+
+    public int size() {
+        return parents.length;
+    }
+
+    /**
+     * @return the representative of the set containing the passed element
+     */
+    public int find(int element) {
+        int root = element;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+
+        while (parents[element] != root) {
+            int parent = parents[element];
+            parents[element] = root;
+            element = parent;
+        }
+
+        return root;
+    }
+
+    /**
+     * Merges the sets containing the passed elements.
+     *
+     * @return false if both elements already were in the same set
+     */
+    public boolean union(int element, int otherElement) {
+        int root = find(element);
+        int otherRoot = find(otherElement);
+        if (root == otherRoot) return false;
+
+        if (ranks[root] < ranks[otherRoot]) {
+            parents[root] = otherRoot;
+        }
+        else if (ranks[root] > ranks[otherRoot]) {
+            parents[otherRoot] = root;
+        }
+        else {
+            parents[otherRoot] = root;
+            ranks[root]++;
+        }
+        return true;
+    }
+
+    /**
+     * Merges all sets of the passed forest into this one. Both forests must have the same size.
+     */
+    public void union(IntUnionFind other) {
+        for (int element = 0; element < other.size(); element++) {
+            int otherRoot = other.find(element);
+            if (otherRoot != element) {
+                union(element, otherRoot);
+            }
+        }
+    }
+
+}
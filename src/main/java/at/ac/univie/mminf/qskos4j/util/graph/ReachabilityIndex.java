@@ -0,0 +1,228 @@
+package at.ac.univie.mminf.qskos4j.util.graph;
+
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Answers reachability queries ("is there a path from a to b") on a directed graph. The graph is condensed to the
+ * directed acyclic graph of its strongly connected components, which is labeled with intervals as proposed by
+ * Yildirim et al. (GRAIL: Scalable Reachability Index for Large Graphs, VLDB 2010): for each of several randomized
+ * depth-first traversals, every component gets the interval [low, post] where post is its post-order rank and low
+ * the minimum rank of all its descendants. If a component can reach another one, its intervals contain those of the
+ * other component. Most negative queries are thus answered in constant time. The remaining queries are answered
+ * by a depth-first search that is pruned using the same intervals.
+ *
+ * Instances are immutable and can be queried by several threads at the same time.
+ */
+public class ReachabilityIndex {
+
+    public final static int DEFAULT_LABELING_COUNT = 2;
+
+    private final StronglyConnectedComponents components;
+    private final IntAdjacency condensation;
+    private final int[][] lows, posts;
+
+    private final static ThreadLocal<SearchState> searchStates = new ThreadLocal<SearchState>() {
+        @Override
+        protected SearchState initialValue() {
+            return new SearchState();
+        }
+    };
+
+    public ReachabilityIndex(IntAdjacency graph) {
+        this(graph, DEFAULT_LABELING_COUNT);
+    }
+
+    public ReachabilityIndex(IntAdjacency graph, int labelingCount) {
+        this(graph, new StronglyConnectedComponents(graph), labelingCount);
+    }
+
+    /**
+     * @param components the strongly connected components of the passed graph
+     */
+    public ReachabilityIndex(IntAdjacency graph, StronglyConnectedComponents components, int labelingCount) {
+        this.components = components;
+        condensation = components.createCondensation(graph);
+
+        lows = new int[labelingCount][];
+        posts = new int[labelingCount][];
+
+        Random random = new Random(labelingCount);
+        int[] roots = findRoots();
+        for (int labeling = 0; labeling < labelingCount; labeling++) {
+            shuffle(roots, random);
+            createLabeling(labeling, roots, random);
+        }
+    }
+
+    private int[] findRoots() {
+        boolean[] hasPredecessor = new boolean[condensation.getVertexCount()];
+        for (int position = 0; position < condensation.getEdgeCount(); position++) {
+            hasPredecessor[condensation.getTarget(position)] = true;
+        }
+
+        int rootCount = 0;
+        for (boolean predecessor : hasPredecessor) {
+            if (!predecessor) rootCount++;
+        }
+
+        int[] roots = new int[rootCount];
+        for (int component = 0, i = 0; component < hasPredecessor.length; component++) {
+            if (!hasPredecessor[component]) roots[i++] = component;
+        }
+        return roots;
+    }
+
+    private void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    private void createLabeling(int labeling, int[] roots, Random random) {
+        int componentCount = condensation.getVertexCount();
+        int[] low = new int[componentCount];
+        int[] post = new int[componentCount];
+
+        boolean[] visited = new boolean[componentCount];
+        int[] stack = new int[componentCount];
+        int[] visitedChildren = new int[componentCount];
+        int[] childOffsets = new int[componentCount];
+        int rank = 1;
+
+        for (int root : roots) {
+            int depth = 0;
+            stack[0] = root;
+            visited[root] = true;
+            visitedChildren[0] = 0;
+            childOffsets[0] = randomOffset(root, random);
+
+            while (depth >= 0) {
+                int component = stack[depth];
+                int degree = condensation.getDegree(component);
+
+                if (visitedChildren[depth] < degree) {
+                    int child = condensation.getTarget(
+                        condensation.getStart(component) + (childOffsets[depth] + visitedChildren[depth]) % degree);
+                    visitedChildren[depth]++;
+
+                    if (!visited[child]) {
+                        visited[child] = true;
+                        depth++;
+                        stack[depth] = child;
+                        visitedChildren[depth] = 0;
+                        childOffsets[depth] = randomOffset(child, random);
+                    }
+                }
+                else {
+                    post[component] = rank++;
+                    low[component] = post[component];
+                    for (int position = condensation.getStart(component); position < condensation.getEnd(component); position++) {
+                        low[component] = Math.min(low[component], low[condensation.getTarget(position)]);
+                    }
+                    depth--;
+                }
+            }
+        }
+
+        lows[labeling] = low;
+        posts[labeling] = post;
+    }
+
+    private int randomOffset(int component, Random random) {
+        int degree = condensation.getDegree(component);
+        return degree > 1 ? random.nextInt(degree) : 0;
+    }
+
+    public StronglyConnectedComponents getComponents() {
+        return components;
+    }
+
+    /**
+     * @return true if there is a path from the source vertex to the target vertex. Every vertex reaches itself.
+     */
+    public boolean isReachable(int source, int target) {
+        int sourceComponent = components.getComponent(source);
+        int targetComponent = components.getComponent(target);
+
+        if (sourceComponent == targetComponent) return true;
+        if (!mayReach(sourceComponent, targetComponent)) return false;
+
+        return search(searchStates.get(), sourceComponent, targetComponent);
+    }
+
+    private boolean mayReach(int sourceComponent, int targetComponent) {
+        // components are numbered in reverse topological order
+        if (targetComponent > sourceComponent) return false;
+
+        for (int labeling = 0; labeling < lows.length; labeling++) {
+            if (lows[labeling][sourceComponent] > lows[labeling][targetComponent] ||
+                posts[labeling][sourceComponent] < posts[labeling][targetComponent])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean search(SearchState state, int sourceComponent, int targetComponent) {
+        int stamp = state.nextStamp(condensation.getVertexCount());
+        int[] visitStamps = state.visitStamps;
+        int[] stack = state.stack;
+
+        int stackSize = 0;
+        stack[stackSize++] = sourceComponent;
+        visitStamps[sourceComponent] = stamp;
+
+        while (stackSize > 0) {
+            int component = stack[--stackSize];
+
+            for (int position = condensation.getStart(component); position < condensation.getEnd(component); position++) {
+                int child = condensation.getTarget(position);
+                if (child == targetComponent) return true;
+
+                if (visitStamps[child] != stamp && mayReach(child, targetComponent)) {
+                    visitStamps[child] = stamp;
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                        state.stack = stack;
+                    }
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Per-thread buffers for the pruned depth-first search, so that queries do not allocate. The buffers are shared
+     * by all indexes and don't refer to any of them.
+     */
+    private static class SearchState {
+
+        private int[] visitStamps = new int[0];
+        private int[] stack = new int[16];
+        private int stamp = 0;
+
+        /**
+         * @return a stamp that no component has been marked with yet
+         */
+        int nextStamp(int componentCount) {
+            if (visitStamps.length < componentCount) {
+                visitStamps = new int[componentCount];
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(visitStamps, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+    }
+
+}
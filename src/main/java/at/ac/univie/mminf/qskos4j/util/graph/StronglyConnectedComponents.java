@@ -0,0 +1,125 @@
+package at.ac.univie.mminf.qskos4j.util.graph;
+
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of a directed graph given as {@link IntAdjacency}, computed by an iterative version
+ * of Tarjan's algorithm. Components are numbered in reverse topological order: if there is an edge from a vertex in
+ * component a to a vertex in another component b, then b &lt; a.
+ */
+public class StronglyConnectedComponents {
+
+    private final int[] components;
+    private final int[] componentSizes;
+    private final int componentCount;
+
+    public StronglyConnectedComponents(IntAdjacency graph) {
+        int vertexCount = graph.getVertexCount();
+        components = new int[vertexCount];
+
+        int[] indices = new int[vertexCount];
+        int[] lowLinks = new int[vertexCount];
+        boolean[] onStack = new boolean[vertexCount];
+        int[] stack = new int[vertexCount];
+        int[] callStack = new int[vertexCount];
+        int[] edgePositions = new int[vertexCount];
+
+        Arrays.fill(indices, -1);
+        int index = 0, stackSize = 0, count = 0;
+
+        for (int root = 0; root < vertexCount; root++) {
+            if (indices[root] != -1) continue;
+
+            int callDepth = 0;
+            callStack[0] = root;
+            edgePositions[0] = graph.getStart(root);
+            indices[root] = lowLinks[root] = index++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (callDepth >= 0) {
+                int vertex = callStack[callDepth];
+
+                if (edgePositions[callDepth] < graph.getEnd(vertex)) {
+                    int successor = graph.getTarget(edgePositions[callDepth]++);
+
+                    if (indices[successor] == -1) {
+                        callDepth++;
+                        callStack[callDepth] = successor;
+                        edgePositions[callDepth] = graph.getStart(successor);
+                        indices[successor] = lowLinks[successor] = index++;
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                    }
+                    else if (onStack[successor]) {
+                        lowLinks[vertex] = Math.min(lowLinks[vertex], indices[successor]);
+                    }
+                }
+                else {
+                    if (lowLinks[vertex] == indices[vertex]) {
+                        int member;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            components[member] = count;
+                        } while (member != vertex);
+                        count++;
+                    }
+
+                    callDepth--;
+                    if (callDepth >= 0) {
+                        int caller = callStack[callDepth];
+                        lowLinks[caller] = Math.min(lowLinks[caller], lowLinks[vertex]);
+                    }
+                }
+            }
+        }
+
+        componentCount = count;
+        componentSizes = new int[count];
+        for (int component : components) {
+            componentSizes[component]++;
+        }
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * @return the component the passed vertex belongs to
+     */
+    public int getComponent(int vertex) {
+        return components[vertex];
+    }
+
+    public int getComponentSize(int component) {
+        return componentSizes[component];
+    }
+
+    /**
+     * Creates the condensation of the passed graph, i.e., the directed acyclic graph whose vertices are the components
+     * of the passed graph. There is an edge between two components if there is an edge between any of their members.
+     *
+     * @param graph the graph these components have been computed for
+     */
+    public IntAdjacency createCondensation(IntAdjacency graph) {
+        IntAdjacency.Builder builder = new IntAdjacency.Builder();
+
+        for (int vertex = 0; vertex < graph.getVertexCount(); vertex++) {
+            for (int position = graph.getStart(vertex); position < graph.getEnd(vertex); position++) {
+                int sourceComponent = components[vertex];
+                int targetComponent = components[graph.getTarget(position)];
+
+                if (sourceComponent != targetComponent) {
+                    builder.addEdge(sourceComponent, targetComponent);
+                }
+            }
+        }
+
+        return builder.build(componentCount);
+    }
+
+}
@@ -0,0 +1,215 @@
+package at.ac.univie.mminf.qskos4j.util.index;
+
+import java.util.Arrays;
+
+/**
+ * Immutable adjacency lists of a directed graph whose vertices are the ints 0..vertexCount-1, stored in compressed
+ * sparse row format: the targets of the edges starting at vertex v are stored in
+ * {@code targets[offsets[v]]..targets[offsets[v+1]-1]} in ascending order. Parallel edges are removed. Optionally,
+ * each edge carries an int label, edges that only differ in their label are kept.
+ */
+public class IntAdjacency {
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] labels;
+
+    private IntAdjacency(int[] offsets, int[] targets, int[] labels) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.labels = labels;
+    }
+
+    public int getVertexCount() {
+        return offsets.length - 1;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return position of the first edge starting at the passed vertex, see {@link #getTarget(int)}
+     */
+    public int getStart(int vertex) {
+        return vertex < getVertexCount() ? offsets[vertex] : targets.length;
+    }
+
+    /**
+     * @return position after the last edge starting at the passed vertex, see {@link #getTarget(int)}
+     */
+    public int getEnd(int vertex) {
+        return vertex < getVertexCount() ? offsets[vertex + 1] : targets.length;
+    }
+
+    public int getDegree(int vertex) {
+        return getEnd(vertex) - getStart(vertex);
+    }
+
+    public int getTarget(int edgePosition) {
+        return targets[edgePosition];
+    }
+
+    /**
+     * @return the label of the edge at the passed position or -1 if edges are not labeled
+     */
+    public int getLabel(int edgePosition) {
+        return labels == null ? -1 : labels[edgePosition];
+    }
+
+    public boolean isLabeled() {
+        return labels != null;
+    }
+
+    public int[] getTargets(int vertex) {
+        return Arrays.copyOfRange(targets, getStart(vertex), getEnd(vertex));
+    }
+
+    public boolean hasEdge(int source, int target) {
+        return Arrays.binarySearch(targets, getStart(source), getEnd(source), target) >= 0;
+    }
+
+    /**
+     * @return an adjacency with all edges reversed
+     */
+    public IntAdjacency transpose() {
+        Builder builder = new Builder(labels != null);
+        for (int source = 0; source < getVertexCount(); source++) {
+            for (int i = offsets[source]; i < offsets[source + 1]; i++) {
+                builder.addEdge(targets[i], source, getLabel(i));
+            }
+        }
+        return builder.build(getVertexCount());
+    }
+
+    /**
+     * Collects edges in arbitrary order and creates an {@link IntAdjacency} from them.
+     */
+    public static class Builder {
+
+        private final boolean labeled;
+        private int[] sources = new int[64];
+        private int[] edgeTargets = new int[64];
+        private int[] edgeLabels;
+        private int edgeCount = 0;
+        private int maxVertex = -1;
+
+        public Builder() {
+            this(false);
+        }
+
+        public Builder(boolean labeled) {
+            this.labeled = labeled;
+            if (labeled) {
+                edgeLabels = new int[64];
+            }
+        }
+
+        public void addEdge(int source, int target) {
+            addEdge(source, target, -1);
+        }
+
+        public void addEdge(int source, int target, int label) {
+            if (edgeCount == sources.length) {
+                int newLength = sources.length * 2;
+                sources = Arrays.copyOf(sources, newLength);
+                edgeTargets = Arrays.copyOf(edgeTargets, newLength);
+                if (labeled) {
+                    edgeLabels = Arrays.copyOf(edgeLabels, newLength);
+                }
+            }
+
+            sources[edgeCount] = source;
+            edgeTargets[edgeCount] = target;
+            if (labeled) {
+                edgeLabels[edgeCount] = label;
+            }
+            edgeCount++;
+            maxVertex = Math.max(maxVertex, Math.max(source, target));
+        }
+
+        public int getEdgeCount() {
+            return edgeCount;
+        }
+
+        /**
+         * @param vertexCount number of vertices of the graph, must be greater than every vertex added as edge source
+         * or target
+         */
+        public IntAdjacency build(int vertexCount) {
+            if (maxVertex >= vertexCount) {
+                throw new IllegalArgumentException("vertex " +maxVertex+ " exceeds vertex count " +vertexCount);
+            }
+
+            int[] offsets = new int[vertexCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+
+            int[] position = Arrays.copyOf(offsets, vertexCount);
+            int[] targets = new int[edgeCount];
+            int[] labels = labeled ? new int[edgeCount] : null;
+            for (int i = 0; i < edgeCount; i++) {
+                int pos = position[sources[i]]++;
+                targets[pos] = edgeTargets[i];
+                if (labeled) {
+                    labels[pos] = edgeLabels[i];
+                }
+            }
+
+            return removeParallelEdges(offsets, targets, labels);
+        }
+
+        private IntAdjacency removeParallelEdges(int[] offsets, int[] targets, int[] labels) {
+            int vertexCount = offsets.length - 1;
+            int[] newOffsets = new int[vertexCount + 1];
+            int writePos = 0;
+
+            for (int v = 0; v < vertexCount; v++) {
+                int start = offsets[v], end = offsets[v + 1];
+                if (labels == null) {
+                    Arrays.sort(targets, start, end);
+                }
+                else {
+                    sortByTargetAndLabel(targets, labels, start, end);
+                }
+
+                for (int i = start; i < end; i++) {
+                    boolean duplicate = i > start &&
+                        targets[i] == targets[i - 1] &&
+                        (labels == null || labels[i] == labels[i - 1]);
+
+                    if (!duplicate) {
+                        targets[writePos] = targets[i];
+                        if (labels != null) {
+                            labels[writePos] = labels[i];
+                        }
+                        writePos++;
+                    }
+                }
+                newOffsets[v + 1] = writePos;
+            }
+
+            return new IntAdjacency(
+                newOffsets,
+                Arrays.copyOf(targets, writePos),
+                labels == null ? null : Arrays.copyOf(labels, writePos));
+        }
+
+        private void sortByTargetAndLabel(int[] targets, int[] labels, int start, int end) {
+            long[] keys = new long[end - start];
+            for (int i = start; i < end; i++) {
+                keys[i - start] = ((long) targets[i] << 32) | (labels[i] & 0xffffffffL);
+            }
+            Arrays.sort(keys);
+            for (int i = start; i < end; i++) {
+                targets[i] = (int) (keys[i - start] >>> 32);
+                labels[i] = (int) keys[i - start];
+            }
+        }
+    }
+
+}
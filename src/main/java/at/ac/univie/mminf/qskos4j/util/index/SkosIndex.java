@@ -0,0 +1,297 @@
+package at.ac.univie.mminf.qskos4j.util.index;
+
+import at.ac.univie.mminf.qskos4j.util.vocab.SkosOntology;
+import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Compact, immutable in-memory index of the SKOS structure of a vocabulary. All resources and literals taking part in
+ * the indexed relations are mapped to int ids by a {@link ValueDictionary}, the relations are stored as
+ * {@link IntAdjacency} lists over these ids.
+ *
+ * The index is built from a single pass over all (explicit and inferred) statements of the repository. Because the
+ * repository materializes rdfs:subPropertyOf entailments, statements using sub-properties of the indexed SKOS
+ * properties are also present with the SKOS property itself, so matching the exact predicate suffices.
+ */
+public class SkosIndex {
+
+    private final static Logger logger = LoggerFactory.getLogger(SkosIndex.class);
+
+    public enum Relation {
+        BROADER, NARROWER, RELATED, MAPPING, SEMANTIC, PREF_LABEL, ALT_LABEL, HIDDEN_LABEL, IN_SCHEME,
+        TOP_CONCEPT_OF, HAS_TOP_CONCEPT
+    }
+
+    private final static URI SKOS_CONCEPT = createSkosURI("Concept");
+
+    private final static Map<Repository, FutureTask<SkosIndex>> instances =
+        new WeakHashMap<Repository, FutureTask<SkosIndex>>();
+
+    private final ValueDictionary dictionary;
+    private final Map<Relation, IntAdjacency> relations;
+    private final BitSet typedConcepts;
+
+    private SkosIndex(ValueDictionary dictionary, Map<Relation, IntAdjacency> relations, BitSet typedConcepts) {
+        this.dictionary = dictionary;
+        this.relations = relations;
+        this.typedConcepts = typedConcepts;
+    }
+
+    /**
+     * Returns the index for the repository of the passed connection. The index is built only once per repository,
+     * concurrent callers wait until it is available. If the index is invalidated while waiting, a new one is built.
+     */
+    public static SkosIndex getInstance(final RepositoryConnection repCon) throws OpenRDFException {
+        Repository repository = repCon.getRepository();
+
+        while (true) {
+            FutureTask<SkosIndex> indexTask;
+            boolean created = false;
+
+            synchronized (instances) {
+                indexTask = instances.get(repository);
+                if (indexTask == null) {
+                    indexTask = new FutureTask<SkosIndex>(new Callable<SkosIndex>() {
+                        @Override
+                        public SkosIndex call() throws Exception {
+                            return build(repCon);
+                        }
+                    });
+                    instances.put(repository, indexTask);
+                    created = true;
+                }
+            }
+
+            if (created) {
+                indexTask.run();
+            }
+
+            try {
+                return indexTask.get();
+            }
+            catch (CancellationException e) {
+                // invalidated by a concurrent update, the index must reflect the new repository content
+                logger.debug("SKOS index invalidated while waiting, building new index");
+            }
+            catch (ExecutionException e) {
+                removeInstance(repository, indexTask);
+                if (e.getCause() instanceof OpenRDFException) {
+                    throw (OpenRDFException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new QueryEvaluationException(e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryEvaluationException("Interrupted while waiting for SKOS index", e);
+            }
+        }
+    }
+
+    /**
+     * Discards the index of the passed repository, it is rebuilt on the next call of
+     * {@link #getInstance(org.openrdf.repository.RepositoryConnection)}. Must be called whenever the repository
+     * content changes.
+     */
+    public static void invalidate(Repository repository) {
+        synchronized (instances) {
+            FutureTask<SkosIndex> indexTask = instances.remove(repository);
+            if (indexTask != null) {
+                indexTask.cancel(false);
+            }
+        }
+    }
+
+    private static void removeInstance(Repository repository, FutureTask<SkosIndex> indexTask) {
+        synchronized (instances) {
+            if (instances.get(repository) == indexTask) {
+                instances.remove(repository);
+            }
+        }
+    }
+
+    /**
+     * Creates a new index from all statements available through the passed connection.
+     */
+    public static SkosIndex build(RepositoryConnection repCon) throws OpenRDFException {
+        long startTime = System.currentTimeMillis();
+        Builder builder = new Builder(SkosOntology.getInstance().getVocabularyModel().getSemanticRelations());
+
+        RepositoryResult<Statement> statements = repCon.getStatements(null, null, null, true);
+        try {
+            while (statements.hasNext()) {
+                builder.add(statements.next());
+            }
+        }
+        finally {
+            statements.close();
+        }
+
+        SkosIndex index = builder.build();
+        logger.debug("SKOS index built in " +(System.currentTimeMillis() - startTime)+ " ms: " +
+            index.getValueCount()+ " values, " +index.getEdgeCount()+ " edges");
+        return index;
+    }
+
+    private static URI createSkosURI(String localName) {
+        return new URIImpl(SparqlPrefix.SKOS.getNameSpace() + localName);
+    }
+
+    public int getValueCount() {
+        return dictionary.size();
+    }
+
+    public Value getValue(int id) {
+        return dictionary.getValue(id);
+    }
+
+    /**
+     * @return the id of the passed value or -1 if it is not part of any indexed relation
+     */
+    public int getId(Value value) {
+        return dictionary.getId(value);
+    }
+
+    /**
+     * @return the adjacency lists of the passed relation. Edges are directed as in the statements (subject to object).
+     * Edges of the {@link Relation#SEMANTIC} relation are labeled with the id of their predicate.
+     */
+    public IntAdjacency getRelation(Relation relation) {
+        return relations.get(relation);
+    }
+
+    /**
+     * @return true if the resource with the passed id is explicitly typed as skos:Concept
+     */
+    public boolean isTypedConcept(int id) {
+        return typedConcepts.get(id);
+    }
+
+    public BitSet getTypedConcepts() {
+        return (BitSet) typedConcepts.clone();
+    }
+
+    private long getEdgeCount() {
+        long edgeCount = 0;
+        for (IntAdjacency adjacency : relations.values()) {
+            edgeCount += adjacency.getEdgeCount();
+        }
+        return edgeCount;
+    }
+
+    private static class Builder {
+
+        private final static Relation[] NO_RELATIONS = new Relation[0];
+
+        private final Set<URI> semanticRelationProperties;
+        private final ValueDictionary dictionary = new ValueDictionary();
+        private final Map<Relation, IntAdjacency.Builder> relationBuilders =
+            new EnumMap<Relation, IntAdjacency.Builder>(Relation.class);
+        private final Map<URI, Relation[]> predicateRelations = new HashMap<URI, Relation[]>();
+        private final BitSet typedConcepts = new BitSet();
+
+        Builder(Set<URI> semanticRelationProperties) {
+            this.semanticRelationProperties = semanticRelationProperties;
+
+            for (Relation relation : Relation.values()) {
+                relationBuilders.put(relation, new IntAdjacency.Builder(relation == Relation.SEMANTIC));
+            }
+        }
+
+        void add(Statement statement) {
+            URI predicate = statement.getPredicate();
+
+            if (predicate.equals(RDF.TYPE)) {
+                if (SKOS_CONCEPT.equals(statement.getObject())) {
+                    typedConcepts.set(dictionary.encode(statement.getSubject()));
+                }
+                return;
+            }
+
+            Relation[] relations = getRelations(predicate);
+            if (relations.length == 0) return;
+
+            int subjectId = dictionary.encode(statement.getSubject());
+            int objectId = dictionary.encode(statement.getObject());
+            for (Relation relation : relations) {
+                if (relation == Relation.SEMANTIC) {
+                    relationBuilders.get(relation).addEdge(subjectId, objectId, dictionary.encode(predicate));
+                }
+                else {
+                    relationBuilders.get(relation).addEdge(subjectId, objectId);
+                }
+            }
+        }
+
+        private Relation[] getRelations(URI predicate) {
+            Relation[] relations = predicateRelations.get(predicate);
+            if (relations == null) {
+                relations = findRelations(predicate);
+                predicateRelations.put(predicate, relations);
+            }
+            return relations;
+        }
+
+        private Relation[] findRelations(URI predicate) {
+            List<Relation> relations = new ArrayList<Relation>();
+
+            addIfContained(relations, Relation.BROADER, SkosOntology.SKOS_BROADER_PROPERTIES, predicate);
+            addIfContained(relations, Relation.NARROWER, SkosOntology.SKOS_NARROWER_PROPERTIES, predicate);
+            addIfContained(relations, Relation.RELATED, SkosOntology.SKOS_ASSOCIATIVE_PROPERTIES, predicate);
+            addIfContained(relations, Relation.MAPPING, SkosOntology.SKOS_MAPPING_PROPERTIES, predicate);
+
+            if (semanticRelationProperties.contains(predicate)) relations.add(Relation.SEMANTIC);
+            if (predicate.equals(createSkosURI("prefLabel"))) relations.add(Relation.PREF_LABEL);
+            if (predicate.equals(createSkosURI("altLabel"))) relations.add(Relation.ALT_LABEL);
+            if (predicate.equals(createSkosURI("hiddenLabel"))) relations.add(Relation.HIDDEN_LABEL);
+            if (predicate.equals(createSkosURI("inScheme"))) relations.add(Relation.IN_SCHEME);
+            if (predicate.equals(createSkosURI("topConceptOf"))) relations.add(Relation.TOP_CONCEPT_OF);
+            if (predicate.equals(createSkosURI("hasTopConcept"))) relations.add(Relation.HAS_TOP_CONCEPT);
+
+            return relations.isEmpty() ? NO_RELATIONS : relations.toArray(new Relation[relations.size()]);
+        }
+
+        private void addIfContained(Collection<Relation> relations, Relation relation, URI[] properties, URI predicate) {
+            if (Arrays.asList(properties).contains(predicate)) {
+                relations.add(relation);
+            }
+        }
+
+        SkosIndex build() {
+            Map<Relation, IntAdjacency> relations = new EnumMap<Relation, IntAdjacency>(Relation.class);
+            for (Map.Entry<Relation, IntAdjacency.Builder> entry : relationBuilders.entrySet()) {
+                relations.put(entry.getKey(), entry.getValue().build(dictionary.size()));
+            }
+            return new SkosIndex(dictionary, relations, typedConcepts);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package at.ac.univie.mminf.qskos4j.util.index;
+
+import org.openrdf.model.Value;
+
+import java.util.Arrays;
+
+/**
+ * Assigns consecutive int ids (starting with 0) to {@link Value}s. Each distinct value is stored only once, lookups
+ * use an open addressing hash table of ids so that no entry objects are allocated.
+ */
+public class ValueDictionary {
+
+    private final static int NO_ID = -1;
+
+    private Value[] values;
+    private int[] hashes;
+    private int[] table;
+    private int size = 0;
+
+    public ValueDictionary() {
+        this(1024);
+    }
+
+    public ValueDictionary(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        values = new Value[capacity];
+        hashes = new int[capacity];
+        table = createTable(tableSizeFor(capacity));
+    }
+
+    /**
+     * @return the id of the passed value, a new id is assigned if the value is not yet contained
+     */
+    public int encode(Value value) {
+        int hash = spread(value.hashCode());
+        int slot = findSlot(value, hash);
+        if (table[slot] != NO_ID) {
+            return table[slot];
+        }
+
+        int id = size++;
+        ensureCapacity(size);
+        values[id] = value;
+        hashes[id] = hash;
+        table[slot] = id;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the passed value or -1 if the value is not contained
+     */
+    public int getId(Value value) {
+        return table[findSlot(value, spread(value.hashCode()))];
+    }
+
+    public Value getValue(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("no value with id " +id);
+        }
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int findSlot(Value value, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+
+        while (true) {
+            int id = table[slot];
+            if (id == NO_ID || (hashes[id] == hash && values[id].equals(value))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            int newLength = Math.max(capacity, values.length + (values.length >> 1));
+            values = Arrays.copyOf(values, newLength);
+            hashes = Arrays.copyOf(hashes, newLength);
+        }
+    }
+
+    private void rehash(int newTableSize) {
+        table = createTable(newTableSize);
+        int mask = newTableSize - 1;
+
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != NO_ID) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+
+    private static int[] createTable(int tableSize) {
+        int[] table = new int[tableSize];
+        Arrays.fill(table, NO_ID);
+        return table;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static int spread(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+}
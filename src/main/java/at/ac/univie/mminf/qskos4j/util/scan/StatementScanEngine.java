@@ -0,0 +1,69 @@
+package at.ac.univie.mminf.qskos4j.util.scan;
+
+import org.openrdf.model.Statement;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.RepositoryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads all statements of a repository and passes each of them to every registered {@link StatementVisitor}. This
+ * way, any number of visitors is served by a single pass over the data. Visitors that need inferred statements and
+ * visitors that only consider explicit statements are served by separate passes, because a repository connection
+ * does not tell whether a statement is explicit or inferred.
+ */
+public class StatementScanEngine {
+
+    private final Logger logger = LoggerFactory.getLogger(StatementScanEngine.class);
+
+    private RepositoryConnection repCon;
+    private List<StatementVisitor<?>> explicitStatementVisitors = new ArrayList<StatementVisitor<?>>();
+    private List<StatementVisitor<?>> allStatementVisitors = new ArrayList<StatementVisitor<?>>();
+
+    public StatementScanEngine(RepositoryConnection repCon) {
+        this.repCon = repCon;
+    }
+
+    /**
+     * @param visitor the visitor to be notified of each statement
+     * @param includeInferred true if the visitor should also be passed inferred statements
+     */
+    public void addVisitor(StatementVisitor<?> visitor, boolean includeInferred) {
+        if (includeInferred) {
+            allStatementVisitors.add(visitor);
+        }
+        else {
+            explicitStatementVisitors.add(visitor);
+        }
+    }
+
+    public void scan() throws RepositoryException {
+        scan(explicitStatementVisitors, false);
+        scan(allStatementVisitors, true);
+    }
+
+    private void scan(List<StatementVisitor<?>> visitors, boolean includeInferred) throws RepositoryException {
+        if (visitors.isEmpty()) return;
+
+        logger.debug("Scanning " +(includeInferred ? "all" : "explicit")+ " statements for " +visitors.size()+ " visitor(s)");
+
+        StatementVisitor<?>[] visitorArray = visitors.toArray(new StatementVisitor<?>[visitors.size()]);
+        RepositoryResult<Statement> statements = repCon.getStatements(null, null, null, includeInferred);
+        try {
+            while (statements.hasNext()) {
+                Statement statement = statements.next();
+                for (StatementVisitor<?> visitor : visitorArray) {
+                    visitor.visit(statement);
+                }
+            }
+        }
+        finally {
+            statements.close();
+        }
+    }
+
+}
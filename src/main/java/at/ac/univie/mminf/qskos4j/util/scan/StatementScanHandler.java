@@ -0,0 +1,38 @@
+package at.ac.univie.mminf.qskos4j.util.scan;
+
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+import java.util.Collection;
+
+/**
+ * Passes the statements reported by a Rio parser to a number of {@link StatementVisitor}s, so that their results
+ * are available as soon as parsing has finished, without storing the statements in a repository. The visitors only
+ * see the statements contained in the parsed document, i.e., no inferred statements.
+ */
+public class StatementScanHandler extends RDFHandlerBase {
+
+    private final StatementVisitor<?>[] visitors;
+    private long statementCount = 0;
+
+    public StatementScanHandler(Collection<? extends StatementVisitor<?>> visitors) {
+        this.visitors = visitors.toArray(new StatementVisitor<?>[visitors.size()]);
+    }
+
+    @Override
+    public void handleStatement(Statement statement) throws RDFHandlerException {
+        statementCount++;
+        for (StatementVisitor<?> visitor : visitors) {
+            visitor.visit(statement);
+        }
+    }
+
+    /**
+     * @return the number of statements handled so far
+     */
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+}
@@ -0,0 +1,17 @@
+package at.ac.univie.mminf.qskos4j.util.scan;
+
+import org.openrdf.model.Statement;
+
+/**
+ * Receives the statements of a repository one at a time during a scan performed by a {@link StatementScanEngine}
+ * and accumulates a result from them.
+ *
+ * @param <T> type of the accumulated result
+ */
+public interface StatementVisitor<T> {
+
+    void visit(Statement statement);
+
+    T getResult();
+
+}
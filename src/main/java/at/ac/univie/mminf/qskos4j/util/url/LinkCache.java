@@ -0,0 +1,132 @@
+package at.ac.univie.mminf.qskos4j.util.url;
+
+import at.ac.univie.mminf.qskos4j.util.FileCache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Results of link checks, stored in a file so they can be reused by later runs. Entries younger than the TTL are
+ * used without contacting the host. Older entries keep their ETag and Last-Modified validators so the link can be
+ * revalidated with a conditional request. When the cache is saved, only the most recently used entries are kept.
+ *
+ * Only definitive responses (success, redirect, 404 and 410) are cached. Links that could not be dereferenced
+ * because of, e.g., a connection timeout or a server error are checked again by the next run.
+ */
+public class LinkCache extends FileCache<LinkCache.Entry> {
+
+    public final static long DEFAULT_TTL_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    public final static int DEFAULT_MAX_ENTRIES = 100000;
+
+    private final static int MAGIC = 0x51534b4c;
+    private final static int FORMAT_VERSION = 1;
+
+    /**
+     * @param ttlMillis time after which a cached result has to be revalidated
+     * @param maxEntries the number of entries kept when the cache is saved
+     */
+    public LinkCache(File cacheFile, long ttlMillis, int maxEntries) {
+        super(cacheFile, MAGIC, FORMAT_VERSION, "link check results", ttlMillis, maxEntries);
+    }
+
+    @Override
+    protected Entry readEntry(DataInput in) throws IOException {
+        Entry entry = new Entry(
+            in.readInt(),
+            readString(in),
+            readString(in),
+            readString(in),
+            in.readLong());
+        entry.usedMillis = in.readLong();
+        return entry;
+    }
+
+    @Override
+    protected void writeEntry(DataOutput out, Entry entry) throws IOException {
+        out.writeInt(entry.statusCode);
+        writeString(out, entry.contentType);
+        writeString(out, entry.eTag);
+        writeString(out, entry.lastModified);
+        out.writeLong(entry.checkedMillis);
+        out.writeLong(entry.usedMillis);
+    }
+
+    @Override
+    protected long getRecencyMillis(Entry entry) {
+        return entry.usedMillis;
+    }
+
+    /**
+     * @return the cached result for the passed link, which may have to be revalidated (see {@link #isFresh(Entry)}),
+     * or null if the link has not been checked yet
+     */
+    public synchronized Entry get(URL url) {
+        Entry entry = getEntry(url.toString());
+        if (entry != null) {
+            entry.usedMillis = System.currentTimeMillis();
+        }
+        return entry;
+    }
+
+    public synchronized void put(URL url, Entry entry) {
+        entry.usedMillis = System.currentTimeMillis();
+        putEntry(url.toString(), entry);
+    }
+
+    /**
+     * @return true if the entry is younger than the TTL
+     */
+    public boolean isFresh(Entry entry) {
+        return isFresh(entry.checkedMillis);
+    }
+
+    /**
+     * The response to a link check
+     */
+    public static class Entry {
+
+        private final int statusCode;
+        private final String contentType, eTag, lastModified;
+        private final long checkedMillis;
+        private long usedMillis;
+
+        public Entry(int statusCode, String contentType, String eTag, String lastModified, long checkedMillis) {
+            this.statusCode = statusCode;
+            this.contentType = contentType;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.checkedMillis = checkedMillis;
+        }
+
+        /**
+         * @return a copy of this entry that is valid for another TTL, e.g., after a successful revalidation
+         */
+        public Entry renew(long checkedMillis) {
+            return new Entry(statusCode, contentType, eTag, lastModified, checkedMillis);
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public long getCheckedMillis() {
+            return checkedMillis;
+        }
+    }
+
+}
@@ -0,0 +1,282 @@
+package at.ac.univie.mminf.qskos4j.util.url;
+
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
+import at.ac.univie.mminf.qskos4j.util.progress.IProgressMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dereferences links concurrently while staying polite to each host. The links are grouped by host and the
+ * requests to a host are sent one after another, each one at least the host delay after the previous one has
+ * finished. Different hosts are accessed in parallel, using at most the given number of concurrent requests.
+ *
+ * A host waiting for its delay to pass does not occupy a worker thread, its next request is scheduled instead.
+ * Slow hosts thus hold up only their own links. All requests share the pooled connections of one
+ * {@link UrlDereferencer}.
+ *
+ * If a {@link LinkCache} is set, links with a fresh cached result are not dereferenced at all, stale results are
+ * revalidated with conditional requests. The cache is saved after all links have been checked.
+ */
+public class LinkChecker {
+
+    /**
+     * Availability of links that have been dereferenced without a content type in the response
+     */
+    public final static String NO_CONTENT_TYPE = "n/a";
+
+    private final Logger logger = LoggerFactory.getLogger(LinkChecker.class);
+
+    private final int maxConcurrentRequests;
+    private final int hostDelayMillis;
+    private int maxConnectionsPerHost = UrlDereferencer.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private IProgressMonitor progressMonitor;
+    private LinkCache linkCache;
+
+    /**
+     * @param maxConcurrentRequests the number of requests that are sent at the same time, each to a different host
+     * @param hostDelayMillis minimum time between two requests to the same host
+     */
+    public LinkChecker(int maxConcurrentRequests, int hostDelayMillis) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.hostDelayMillis = hostDelayMillis;
+    }
+
+    /**
+     * @param maxConnectionsPerHost maximum number of pooled connections to a single host
+     */
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be at least 1");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public void setProgressMonitor(IProgressMonitor progressMonitor) {
+        this.progressMonitor = progressMonitor;
+    }
+
+    public void setLinkCache(LinkCache linkCache) {
+        this.linkCache = linkCache;
+    }
+
+    /**
+     * @return for each passed link its content type, {@link #NO_CONTENT_TYPE} if the response did not contain one
+     * or null if the link could not be dereferenced
+     */
+    public Map<URL, String> check(Collection<URL> urls) throws InterruptedException {
+        Map<URL, String> availability = Collections.synchronizedMap(new HashMap<URL, String>());
+
+        Collection<URL> urlsToBeChecked = new ArrayList<URL>();
+        for (URL url : urls) {
+            LinkCache.Entry cachedEntry = linkCache != null ? linkCache.get(url) : null;
+            if (cachedEntry != null && linkCache.isFresh(cachedEntry)) {
+                availability.put(url, getAvailability(cachedEntry.getStatusCode(), cachedEntry.getContentType()));
+            }
+            else {
+                urlsToBeChecked.add(url);
+            }
+        }
+
+        Map<String, Queue<URL>> hostQueues = groupByHost(urlsToBeChecked);
+        logger.debug("checking " +urlsToBeChecked.size()+ " links on " +hostQueues.size()+ " hosts, " +
+            (urls.size() - urlsToBeChecked.size())+ " results taken from cache");
+
+        CountDownLatch pendingHosts = new CountDownLatch(hostQueues.size());
+        ProgressTracker progressTracker = new ProgressTracker(urlsToBeChecked.size());
+
+        UrlDereferencer dereferencer = new UrlDereferencer(maxConnectionsPerHost, maxConcurrentRequests);
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(
+            maxConcurrentRequests,
+            new DaemonThreadFactory("qskos-links"));
+        try {
+            for (Queue<URL> hostQueue : hostQueues.values()) {
+                executor.execute(new HostTask(
+                    hostQueue, executor, dereferencer, availability, pendingHosts, progressTracker));
+            }
+            pendingHosts.await();
+        }
+        finally {
+            executor.shutdownNow();
+            dereferencer.shutdown();
+        }
+
+        progressTracker.finish();
+        saveLinkCache();
+        return availability;
+    }
+
+    private void saveLinkCache() {
+        if (linkCache == null) return;
+
+        try {
+            linkCache.save();
+        }
+        catch (IOException e) {
+            logger.warn("Could not save link cache: " +e.getMessage());
+        }
+    }
+
+    private Map<String, Queue<URL>> groupByHost(Collection<URL> urls) {
+        Map<String, Queue<URL>> hostQueues = new HashMap<String, Queue<URL>>();
+
+        for (URL url : urls) {
+            String host = url.getHost().toLowerCase();
+            Queue<URL> hostQueue = hostQueues.get(host);
+            if (hostQueue == null) {
+                hostQueue = new LinkedList<URL>();
+                hostQueues.put(host, hostQueue);
+            }
+            hostQueue.add(url);
+        }
+
+        return hostQueues;
+    }
+
+    private String dereference(UrlDereferencer dereferencer, URL url) {
+        LinkCache.Entry staleEntry = linkCache != null ? linkCache.get(url) : null;
+
+        UrlDereferencer.Probe probe;
+        try {
+            if (staleEntry != null) {
+                probe = dereferencer.probe(url, staleEntry.getETag(), staleEntry.getLastModified());
+            }
+            else {
+                probe = dereferencer.probe(url, null, null);
+            }
+        }
+        catch (Exception e) {
+            logger.debug("url not dereferencable: " +url.toString()+ " (" +e.getMessage()+ ")");
+            return null;
+        }
+
+        long checkedMillis = System.currentTimeMillis();
+        if (staleEntry != null && probe.isNotModified() &&
+            (staleEntry.getETag() != null || staleEntry.getLastModified() != null))
+        {
+            logger.debug("cached result still valid for " +url.toString());
+            linkCache.put(url, staleEntry.renew(checkedMillis));
+            return getAvailability(staleEntry.getStatusCode(), staleEntry.getContentType());
+        }
+
+        if (linkCache != null && isDefinitive(probe.getStatusCode())) {
+            linkCache.put(url, new LinkCache.Entry(
+                probe.getStatusCode(),
+                probe.getContentType(),
+                probe.getETag(),
+                probe.getLastModified(),
+                checkedMillis));
+        }
+        return getAvailability(probe.getStatusCode(), probe.getContentType());
+    }
+
+    /**
+     * Server errors and responses like 429 (Too Many Requests) are often transient and thus not cached
+     */
+    private boolean isDefinitive(int statusCode) {
+        return (statusCode >= 200 && statusCode < 400) || statusCode == 404 || statusCode == 410;
+    }
+
+    private String getAvailability(int statusCode, String contentType) {
+        if (statusCode < 200 || statusCode >= 400) {
+            logger.debug("response status: " +statusCode);
+            return null;
+        }
+        if (contentType == null || contentType.isEmpty()) {
+            return NO_CONTENT_TYPE;
+        }
+        return contentType;
+    }
+
+    /**
+     * Sends the next request to a host and schedules the following one. Only one task per host exists, so
+     * requests to the same host never overlap.
+     */
+    private class HostTask implements Runnable {
+
+        private final Queue<URL> hostQueue;
+        private final ScheduledExecutorService executor;
+        private final UrlDereferencer dereferencer;
+        private final Map<URL, String> availability;
+        private final CountDownLatch pendingHosts;
+        private final ProgressTracker progressTracker;
+
+        HostTask(
+            Queue<URL> hostQueue,
+            ScheduledExecutorService executor,
+            UrlDereferencer dereferencer,
+            Map<URL, String> availability,
+            CountDownLatch pendingHosts,
+            ProgressTracker progressTracker)
+        {
+            this.hostQueue = hostQueue;
+            this.executor = executor;
+            this.dereferencer = dereferencer;
+            this.availability = availability;
+            this.pendingHosts = pendingHosts;
+            this.progressTracker = progressTracker;
+        }
+
+        @Override
+        public void run() {
+            URL url = hostQueue.poll();
+            String contentType = null;
+            try {
+                contentType = dereference(dereferencer, url);
+            }
+            finally {
+                availability.put(url, contentType);
+                progressTracker.linkChecked();
+
+                if (hostQueue.isEmpty()) {
+                    pendingHosts.countDown();
+                }
+                else {
+                    executor.schedule(this, hostDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private class ProgressTracker {
+
+        private final int totalLinks;
+        private final AtomicInteger checkedLinks = new AtomicInteger();
+
+        ProgressTracker(int totalLinks) {
+            this.totalLinks = totalLinks;
+            if (progressMonitor != null) {
+                progressMonitor.reset();
+            }
+        }
+
+        void linkChecked() {
+            int checked = checkedLinks.incrementAndGet();
+            logger.debug("checked link " +checked+ " of " +totalLinks);
+
+            if (progressMonitor != null) {
+                synchronized (progressMonitor) {
+                    progressMonitor.onUpdateProgress((float) checked / totalLinks);
+                }
+            }
+        }
+
+        void finish() {
+            if (progressMonitor != null) {
+                progressMonitor.onFinish();
+            }
+        }
+    }
+
+}
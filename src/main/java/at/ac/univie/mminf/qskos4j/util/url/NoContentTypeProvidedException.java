@@ -1,6 +0,0 @@
-package at.ac.univie.mminf.qskos4j.util.url;
-
-@SuppressWarnings("serial")
-public class NoContentTypeProvidedException extends Exception {
-
-}
@@ -1,87 +1,238 @@
 package at.ac.univie.mminf.qskos4j.util.url;
 
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.AbstractHttpClient;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.params.ClientPNames;
 import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.params.CoreConnectionPNames;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Checks whether URLs can be dereferenced. All requests share a pool of keep-alive connections, so consecutive
+ * requests to the same host reuse their connection. Instances are thread-safe and should be shut down after use.
+ *
+ * Each URL is probed with a HEAD request first. If the response is not successful or lacks a content type, a GET
+ * request for the first bytes of the resource is sent. Redirects are followed up to a limit, a redirect that is
+ * not followed counts as success.
+ */
 public class UrlDereferencer {
 
+	public final static int DEFAULT_MAX_CONNECTIONS_PER_HOST = 2;
+	public final static int DEFAULT_MAX_TOTAL_CONNECTIONS = 20;
+	public final static int DEFAULT_MAX_REDIRECTS = 5;
+
+	private final static int CONNECT_TIMEOUT_MILLIS = 10000;
+	private final static int READ_TIMEOUT_MILLIS = 30000;
+	private final static int RANGE_BYTES = 1024;
+
+	// larger response bodies are not read, their connection is closed instead of being reused
+	private final static int MAX_CONSUMED_BYTES = 16 * 1024;
+
 	private final Logger logger = LoggerFactory.getLogger(UrlDereferencer.class);
-	private final int HTTP_GET_TIMOUT_MILLIS = 60000;
-	
-	public String getContentType(URL url) 
-		throws UrlNotDereferencableException, NoContentTypeProvidedException
-	{
-		try {
-			HttpResponse response = sendRequest(url);
-			
-			if (isValidResponse(response)) {
-				Header contentType = response.getFirstHeader("Content-Type");
-				if (contentType == null || contentType.getValue().isEmpty()) {
-					throw new NoContentTypeProvidedException(); 
-				}
-				
-				return contentType.getValue();
-			}
+	private final DefaultHttpClient httpClient;
+	private int maxRedirects = DEFAULT_MAX_REDIRECTS;
+
+	public UrlDereferencer() {
+		this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_TOTAL_CONNECTIONS);
+	}
+
+	/**
+	 * @param maxConnectionsPerHost maximum number of pooled connections to a single host
+	 * @param maxTotalConnections maximum number of pooled connections to all hosts
+	 */
+	public UrlDereferencer(int maxConnectionsPerHost, int maxTotalConnections) {
+		ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager();
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+		connectionManager.setMaxTotal(maxTotalConnections);
+
+		HttpParams params = new BasicHttpParams();
+		HttpConnectionParams.setConnectionTimeout(params, CONNECT_TIMEOUT_MILLIS);
+		HttpConnectionParams.setSoTimeout(params, READ_TIMEOUT_MILLIS);
+		// redirects are followed in followRedirects() to treat exceeding the limit as success
+		params.setBooleanParameter(ClientPNames.HANDLE_REDIRECTS, false);
+
+		httpClient = new DefaultHttpClient(connectionManager, params);
+	}
+
+	public void setMaxRedirects(int maxRedirects) {
+		this.maxRedirects = maxRedirects;
+	}
+
+	/**
+	 * Sends the requests described above. If validators of a previous response are passed, the HEAD request is
+	 * conditional and a {@link Probe#isNotModified() not modified} response is returned as it is.
+	 *
+	 * @param eTag the ETag of a previous response or null
+	 * @param lastModified the Last-Modified date of a previous response or null
+	 * @return the response to the last request
+	 */
+	public Probe probe(URL url, String eTag, String lastModified) throws IOException, URISyntaxException {
+		Map<String, String> conditionalHeaders = new HashMap<String, String>();
+		if (eTag != null) {
+			conditionalHeaders.put("If-None-Match", eTag);
 		}
-		catch (Exception e) {
-			// fall through
+		if (lastModified != null) {
+			conditionalHeaders.put("If-Modified-Since", lastModified);
 		}
-		throw new UrlNotDereferencableException(url);
-	}
-	
-	private HttpResponse sendRequest(URL url) 
-		throws URISyntaxException, IOException
-	{
-		logger.debug("dereferencing: " +url.toString());
-		
-		HttpGet httpGet = new HttpGet(url.toURI());
-        httpGet.setHeader("Accept", "text/html,application/xhtml+xml,application/xml,text/plain,*/*;q=0.5");
 
-        AbstractHttpClient httpClient = createParameterizedHttpClient();
-        HttpResponse response = httpClient.execute(httpGet);
-        httpClient.getConnectionManager().shutdown();
+		Probe probe = followRedirects(url.toURI(), true, conditionalHeaders);
+		if (!conditionalHeaders.isEmpty() && probe.isNotModified()) {
+			return probe;
+		}
+		if (!probe.isSuccessful() || probe.contentType == null) {
+			probe = followRedirects(probe.uri, false, Collections.<String, String>emptyMap());
+		}
+		return probe;
+	}
 
-        return response;
+	/**
+	 * Closes all pooled connections
+	 */
+	public void shutdown() {
+		httpClient.getConnectionManager().shutdown();
 	}
-	
-	private AbstractHttpClient createParameterizedHttpClient() {
-		DefaultHttpClient httpClient = new DefaultHttpClient();
-		HttpParams params = httpClient.getParams();
-		params.setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, HTTP_GET_TIMOUT_MILLIS);
-		params.setIntParameter(CoreConnectionPNames.SO_TIMEOUT, HTTP_GET_TIMOUT_MILLIS);
-		
-		return httpClient;
+
+	private Probe followRedirects(URI uri, boolean head, Map<String, String> headers) throws IOException {
+		Probe probe = sendRequest(uri, head, headers);
+
+		for (int redirects = 0; probe.isRedirect() && probe.location != null && redirects < maxRedirects; redirects++) {
+			try {
+				probe = sendRequest(probe.uri.resolve(probe.location), head, headers);
+			}
+			catch (IllegalArgumentException e) {
+				logger.debug("invalid redirect location: " +probe.location);
+				break;
+			}
+		}
+
+		return probe;
 	}
-	
-	private boolean isValidResponse(HttpResponse response)
+
+	private Probe sendRequest(URI uri, boolean head, Map<String, String> headers) throws IOException
 	{
-		int statusCode = response.getStatusLine().getStatusCode();
-		logger.debug("response status: " +statusCode);
-		
-		if (Integer.toString(statusCode).startsWith("4") || 
-			Integer.toString(statusCode).startsWith("5")) 
-		{
-			return false;
+		logger.debug("dereferencing (" +(head ? "HEAD" : "GET")+ "): " +uri);
+
+		HttpRequestBase request;
+		if (head) {
+			request = new HttpHead(uri);
 		}
 		else {
-			switch (statusCode) {
-			case 200:
-				return true;
-			default:
-				throw new UnhandledHTTPResponseException(statusCode);
+			request = new HttpGet(uri);
+			request.setHeader("Range", "bytes=0-" +(RANGE_BYTES - 1));
+		}
+		request.setHeader("Accept", "text/html,application/xhtml+xml,application/xml,text/plain,*/*;q=0.5");
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			request.setHeader(header.getKey(), header.getValue());
+		}
+
+		HttpResponse response = httpClient.execute(request);
+		try {
+			int statusCode = response.getStatusLine().getStatusCode();
+			logger.debug("response status: " +statusCode);
+
+			return new Probe(
+				uri,
+				statusCode,
+				getHeaderValue(response, "Content-Type"),
+				getHeaderValue(response, "Location"),
+				getHeaderValue(response, "ETag"),
+				getHeaderValue(response, "Last-Modified"));
+		}
+		finally {
+			release(request, response);
+		}
+	}
+
+	private String getHeaderValue(HttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		return header != null ? header.getValue() : null;
+	}
+
+	/**
+	 * Returns the connection to the pool, which requires the response body to be read completely
+	 */
+	private void release(HttpRequestBase request, HttpResponse response) {
+		HttpEntity entity = response.getEntity();
+		if (entity == null) return;
+
+		long contentLength = entity.getContentLength();
+		if (contentLength >= 0 && contentLength <= MAX_CONSUMED_BYTES) {
+			try {
+				EntityUtils.consume(entity);
+				return;
+			}
+			catch (IOException e) {
+				// connection can't be reused
 			}
 		}
+		request.abort();
+	}
+
+	/**
+	 * The response to the last request sent for a URL
+	 */
+	public static class Probe {
+
+		private final URI uri;
+		private final int statusCode;
+		private final String contentType, location, eTag, lastModified;
+
+		Probe(URI uri, int statusCode, String contentType, String location, String eTag, String lastModified) {
+			this.uri = uri;
+			this.statusCode = statusCode;
+			this.contentType = contentType;
+			this.location = location;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+		}
+
+		boolean isRedirect() {
+			return statusCode >= 300 && statusCode < 400 && statusCode != 304;
+		}
+
+		public boolean isNotModified() {
+			return statusCode == 304;
+		}
+
+		/**
+		 * Partial content responses to ranged requests and redirects count as success
+		 */
+		public boolean isSuccessful() {
+			return statusCode >= 200 && statusCode < 400;
+		}
+
+		public int getStatusCode() {
+			return statusCode;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
 	}
-	
+
 }
@@ -0,0 +1,98 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.openrdf.model.Statement;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds the statements reported by a parser to a repository in batches. The connection must not be in autocommit
+ * mode. Optionally, SKOS lexical labels are derived from SKOS-XL labels (see {@link SkosXlLabelJoin}) and added
+ * along with the parsed statements.
+ */
+public class BatchingRDFInserter extends RDFHandlerBase {
+
+    public final static int DEFAULT_BATCH_SIZE = 10000;
+
+    private final RepositoryConnection repCon;
+    private final int batchSize;
+    private final boolean commitBatches;
+    private SkosXlLabelJoin skosXlLabelJoin;
+
+    private List<Statement> batch;
+    private long statementCount = 0;
+
+    /**
+     * @param batchSize the number of statements added per transaction, or 0 to add all statements in one
+     * transaction that is committed by the caller
+     */
+    public BatchingRDFInserter(RepositoryConnection repCon, int batchSize) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("batch size must not be negative");
+        }
+
+        this.repCon = repCon;
+        this.commitBatches = batchSize > 0;
+        this.batchSize = commitBatches ? batchSize : DEFAULT_BATCH_SIZE;
+        batch = new ArrayList<Statement>(this.batchSize);
+    }
+
+    /**
+     * Enables deriving SKOS lexical labels from SKOS-XL labels during insertion.
+     */
+    public void setSkosXlSupport(boolean skosXlSupport) {
+        skosXlLabelJoin = skosXlSupport ? new SkosXlLabelJoin() : null;
+    }
+
+    @Override
+    public void handleStatement(Statement statement) throws RDFHandlerException {
+        add(statement);
+
+        if (skosXlLabelJoin != null) {
+            for (Statement lexicalLabel : skosXlLabelJoin.join(statement)) {
+                add(lexicalLabel);
+            }
+        }
+    }
+
+    private void add(Statement statement) throws RDFHandlerException {
+        batch.add(statement);
+        statementCount++;
+
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        flush();
+    }
+
+    private void flush() throws RDFHandlerException {
+        if (batch.isEmpty()) return;
+
+        try {
+            repCon.add(batch);
+            if (commitBatches) {
+                repCon.commit();
+            }
+        }
+        catch (RepositoryException e) {
+            throw new RDFHandlerException(e);
+        }
+        batch = new ArrayList<Statement>(batchSize);
+    }
+
+    /**
+     * @return the number of statements added so far, including derived lexical labels
+     */
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+}
@@ -0,0 +1,307 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import at.ac.univie.mminf.qskos4j.util.DaemonThreadFactory;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Statement;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses N-Triples files using several threads. As N-Triples is line-based, the memory-mapped file is split into
+ * chunks at line boundaries. Each chunk is parsed by its own parser, and the parsed statements are passed in batches
+ * to the calling thread, which reports them to an {@link RDFHandler} (e.g., a {@link BatchingRDFInserter}). Blank
+ * node identifiers are preserved, so that blank nodes occurring in several chunks are identified correctly.
+ */
+public class ParallelNTriplesLoader {
+
+    private final Logger logger = LoggerFactory.getLogger(ParallelNTriplesLoader.class);
+
+    private final static long MIN_CHUNK_SIZE = 1024 * 1024;
+    private final static long MAX_CHUNK_SIZE = 1024 * 1024 * 1024;
+
+    private final int parallelism;
+    private int batchSize = BatchingRDFInserter.DEFAULT_BATCH_SIZE;
+
+    /**
+     * @param parallelism the number of parser threads
+     */
+    public ParallelNTriplesLoader(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reports all statements of the passed N-Triples file to the passed handler. The handler is only called by the
+     * calling thread.
+     *
+     * @return the number of statements read from the file
+     */
+    public long load(File ntriplesFile, RDFHandler handler) throws OpenRDFException, IOException {
+        RandomAccessFile file = new RandomAccessFile(ntriplesFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            List<ByteBuffer> chunks = mapChunks(channel);
+            logger.debug("Loading " +ntriplesFile+ " in " +chunks.size()+ " chunks using " +parallelism+ " threads");
+
+            return load(chunks, ntriplesFile.toURI().toString(), handler);
+        }
+        finally {
+            file.close();
+        }
+    }
+
+    private List<ByteBuffer> mapChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunkCount = Math.max(
+            Math.min(parallelism, size / MIN_CHUNK_SIZE),
+            (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        chunkCount = Math.max(chunkCount, 1);
+
+        List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        long start = 0;
+        for (long chunk = 1; chunk <= chunkCount && start < size; chunk++) {
+            long end = chunk == chunkCount ? size : findLineEnd(channel, size * chunk / chunkCount);
+            if (end > start) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the position after the first line break at or after the passed position, or the file size if there
+     * is no such line break
+     */
+    private long findLineEnd(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long size = channel.size();
+
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+
+        return size;
+    }
+
+    private long load(List<ByteBuffer> chunks, final String baseURI, RDFHandler handler)
+        throws OpenRDFException
+    {
+        final BlockingQueue<List<Statement>> batches = new ArrayBlockingQueue<List<Statement>>(parallelism * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(parallelism, chunks.size()),
+            new DaemonThreadFactory("qskos-load"));
+
+        try {
+            List<Future<Long>> chunkParsers = new ArrayList<Future<Long>>();
+            for (int chunk = 0; chunk < chunks.size(); chunk++) {
+                chunkParsers.add(executor.submit(new ChunkParser(chunk, chunks.get(chunk), baseURI, batches)));
+            }
+
+            handler.startRDF();
+            while (!(allDone(chunkParsers) && batches.isEmpty())) {
+                List<Statement> batch = batches.poll(100, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    for (Statement statement : batch) {
+                        handler.handleStatement(statement);
+                    }
+                }
+                else {
+                    checkFailures(chunkParsers);
+                }
+            }
+
+            handler.endRDF();
+
+            long statementCount = 0;
+            for (Future<Long> chunkParser : chunkParsers) {
+                statementCount += chunkParser.get();
+            }
+            return statementCount;
+        }
+        catch (ExecutionException e) {
+            throw asOpenRDFException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while loading N-Triples", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean allDone(List<Future<Long>> futures) {
+        for (Future<Long> future : futures) {
+            if (!future.isDone()) return false;
+        }
+        return true;
+    }
+
+    private void checkFailures(List<Future<Long>> futures) throws ExecutionException, InterruptedException {
+        for (Future<Long> future : futures) {
+            if (future.isDone()) {
+                future.get();
+            }
+        }
+    }
+
+    private OpenRDFException asOpenRDFException(Throwable cause) {
+        if (cause instanceof OpenRDFException) {
+            return (OpenRDFException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RDFParseException(cause);
+    }
+
+    private class ChunkParser implements Callable<Long> {
+
+        private final int chunkNumber;
+        private final ByteBuffer chunk;
+        private final String baseURI;
+        private final BlockingQueue<List<Statement>> batches;
+
+        ChunkParser(int chunkNumber, ByteBuffer chunk, String baseURI, BlockingQueue<List<Statement>> batches) {
+            this.chunkNumber = chunkNumber;
+            this.chunk = chunk;
+            this.baseURI = baseURI;
+            this.batches = batches;
+        }
+
+        @Override
+        public Long call() throws OpenRDFException, IOException {
+            BatchingHandler handler = new BatchingHandler(batches);
+
+            RDFParser parser = Rio.createParser(RDFFormat.NTRIPLES, ValueFactoryImpl.getInstance());
+            parser.setPreserveBNodeIDs(true);
+            parser.setRDFHandler(handler);
+
+            try {
+                parser.parse(new ByteBufferInputStream(chunk), baseURI);
+            }
+            catch (RDFParseException e) {
+                throw new RDFParseException("Chunk " +chunkNumber+ ": " +e.getMessage());
+            }
+
+            return handler.statementCount;
+        }
+    }
+
+    private class BatchingHandler extends RDFHandlerBase {
+
+        private final BlockingQueue<List<Statement>> batches;
+        private List<Statement> batch = new ArrayList<Statement>(batchSize);
+        private long statementCount = 0;
+
+        BatchingHandler(BlockingQueue<List<Statement>> batches) {
+            this.batches = batches;
+        }
+
+        @Override
+        public void handleStatement(Statement statement) throws RDFHandlerException {
+            batch.add(statement);
+            statementCount++;
+
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void endRDF() throws RDFHandlerException {
+            if (!batch.isEmpty()) {
+                flush();
+            }
+        }
+
+        private void flush() throws RDFHandlerException {
+            try {
+                batches.put(batch);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RDFHandlerException("Interrupted while loading N-Triples", e);
+            }
+            batch = new ArrayList<Statement>(batchSize);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
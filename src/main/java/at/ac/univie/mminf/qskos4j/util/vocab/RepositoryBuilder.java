@@ -1,29 +1,123 @@
 package at.ac.univie.mminf.qskos4j.util.vocab;
 
+import at.ac.univie.mminf.qskos4j.util.index.SkosIndex;
 import org.junit.Assert;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.Statement;
-import org.openrdf.query.GraphQuery;
-import org.openrdf.query.GraphQueryResult;
-import org.openrdf.query.QueryLanguage;
+import org.openrdf.model.URI;
 import org.openrdf.repository.Repository;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.RepositoryResult;
 import org.openrdf.repository.sail.SailRepository;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+import org.openrdf.sail.NotifyingSail;
+import org.openrdf.sail.Sail;
+import org.openrdf.sail.SailConnection;
+import org.openrdf.sail.inferencer.InferencerConnection;
 import org.openrdf.sail.inferencer.fc.ForwardChainingRDFSInferencer;
 import org.openrdf.sail.memory.MemoryStore;
+import org.openrdf.sail.nativerdf.NativeStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 
 public class RepositoryBuilder {
 
-    private final Logger logger = LoggerFactory.getLogger(RepositoryBuilder.class);
+    private final static Logger logger = LoggerFactory.getLogger(RepositoryBuilder.class);
+
+    /**
+     * The kind of inferencing applied to the loaded vocabulary.
+     */
+    public enum InferencerType {
+        /**
+         * Full RDFS entailment using the {@link ForwardChainingRDFSInferencer}
+         */
+        RDFS,
+
+        /**
+         * Only the entailments the quality issues depend on, see {@link SkosInferencer}
+         */
+        SKOS,
+
+        /**
+         * No inferencing at all. Sub-properties of SKOS properties are not taken into account, so some issues might
+         * report incomplete results.
+         */
+        NONE
+    }
+
+    /**
+     * Indexes of the native store, supporting lookups by subject, by predicate/object (e.g., all instances of a
+     * type) and by object (e.g., in-links of a resource)
+     */
+    public final static String NATIVE_TRIPLE_INDEXES = "spoc,posc,ospc";
+
+    /**
+     * File created in the directory of a native store once the vocabulary has been loaded completely. Stores without
+     * it, e.g., after a failed load that committed some batches, are cleared and loaded again.
+     */
+    private final static String NATIVE_LOADED_MARKER = "qskos-loaded";
 
     private Repository repository;
+    private InferencerType inferencerType = InferencerType.RDFS;
+    private int loadParallelism = 1;
+    private int batchSize = 0;
+    private boolean skosXlSupport = false;
+    private SnapshotCache snapshotCache;
+
+    public void setInferencerType(InferencerType inferencerType) {
+        this.inferencerType = inferencerType;
+    }
+
+    /**
+     * Sets the number of threads used to parse N-Triples files. Other formats are always parsed by a single thread.
+     */
+    public void setLoadParallelism(int loadParallelism) {
+        if (loadParallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.loadParallelism = loadParallelism;
+    }
+
+    /**
+     * Sets the number of statements added per transaction when loading a vocabulary. By default (0), the whole
+     * vocabulary is loaded in one transaction. Committing smaller batches limits the size of the transaction state
+     * that is kept by the store.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("batch size must not be negative");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * If set, SKOS lexical labels are derived from SKOS-XL labels while a vocabulary is loaded, see
+     * {@link SkosXlLabelJoin}.
+     */
+    public void setSkosXlSupport(boolean skosXlSupport) {
+        this.skosXlSupport = skosXlSupport;
+    }
+
+    /**
+     * If set, vocabularies loaded into memory by {@link #setUpFromFile(File, String, RDFFormat)} are restored from
+     * a snapshot of the loaded and inferred statements if one exists, and a snapshot is stored otherwise. Restored
+     * repositories don't have an inferencer attached, so statements added afterwards are not taken into account for
+     * inferencing.
+     */
+    public void setSnapshotCache(SnapshotCache snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
 
     public Repository setUpFromTestResource(String testFileName) throws RepositoryException
     {
@@ -36,82 +130,378 @@ public class RepositoryBuilder {
 
     public Repository setUpFromFile(File rdfFile, String baseURI, RDFFormat dataFormat) throws RepositoryException
     {
-        createRepositoryForFile();
+        String snapshotKey = createSnapshotKey(rdfFile, baseURI, dataFormat);
+
+        // the memory stores are not persisted, so no data directory is needed that concurrent loads could share
+        if (snapshotKey != null && snapshotCache.contains(snapshotKey) &&
+            restoreSnapshot(new MemoryStore(), snapshotKey))
+        {
+            return repository;
+        }
+
+        createRepository(new MemoryStore());
+        loadFile(rdfFile, baseURI, dataFormat);
+        if (snapshotKey != null) {
+            storeSnapshot(snapshotKey);
+        }
+        return repository;
+    }
+
+    private String createSnapshotKey(File rdfFile, String baseURI, RDFFormat dataFormat) {
+        if (snapshotCache == null) return null;
+
+        String options = "inferencer=" +inferencerType+ ",skosxl=" +skosXlSupport+
+            ",format=" +(dataFormat != null ? dataFormat.getName() : "")+ ",baseURI=" +(baseURI != null ? baseURI : "");
+        try {
+            return snapshotCache.createKey(rdfFile, options);
+        }
+        catch (IOException e) {
+            logger.warn("Could not compute snapshot key for " +rdfFile+ ": " +e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean restoreSnapshot(NotifyingSail store, String snapshotKey) throws RepositoryException {
+        long startTime = System.currentTimeMillis();
+        repository = new SailRepository(store);
+        repository.initialize();
+
+        try {
+            SailConnection sailCon = store.getConnection();
+            try {
+                snapshotCache.restore(snapshotKey, (InferencerConnection) sailCon, store.getValueFactory());
+                sailCon.commit();
+            }
+            catch (IOException e) {
+                sailCon.rollback();
+                throw e;
+            }
+            finally {
+                sailCon.close();
+            }
+        }
+        catch (Exception e) {
+            logger.warn("Could not restore snapshot, loading vocabulary instead: " +e.getMessage());
+            snapshotCache.remove(snapshotKey);
+            repository.shutDown();
+            return false;
+        }
+
         RepositoryConnection repCon = repository.getConnection();
+        try {
+            logLoadStatistics(repCon, System.currentTimeMillis() - startTime);
+        }
+        finally {
+            repCon.close();
+        }
+        return true;
+    }
 
+    private void storeSnapshot(String snapshotKey) {
         try {
-            repCon.add(rdfFile, baseURI, dataFormat);
+            RepositoryConnection repCon = repository.getConnection();
+            try {
+                snapshotCache.store(snapshotKey, repCon);
+            }
+            finally {
+                repCon.close();
+            }
         }
         catch (Exception e) {
-            logger.error("Could not add RDF data from file to temporary repository");
+            logger.warn("Could not store snapshot: " +e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a disk-based repository for vocabularies that are too large to be kept in memory. If the passed data
+     * directory already contains a store, e.g., from a previous run, it is reused and the RDF file is not parsed
+     * again, unless the store has not been loaded completely. Note that a reused store keeps the inferred statements
+     * of the inferencer it has been created with, and contains SKOS lexical labels derived from SKOS-XL labels only
+     * if SKOS-XL support was set when it was created.
+     *
+     * @param dataDir the directory of the native store or null to create the store in a new temporary directory,
+     * which is deleted when the repository is shut down or, at the latest, when the JVM exits
+     * @param rdfFile the vocabulary that is loaded into a newly created store
+     */
+    public Repository setUpNative(File dataDir, File rdfFile, String baseURI, RDFFormat dataFormat)
+        throws RepositoryException
+    {
+        if (dataDir == null) {
+            File tempDir = createTempDataDir();
+            repository = new TemporaryRepository(createSail(new NativeStore(tempDir, NATIVE_TRIPLE_INDEXES)), tempDir);
+            repository.initialize();
+            loadFile(rdfFile, baseURI, dataFormat);
+            return repository;
+        }
+        createRepository(new NativeStore(dataDir, NATIVE_TRIPLE_INDEXES));
+
+        File loadedMarker = new File(dataDir, NATIVE_LOADED_MARKER);
+        RepositoryConnection repCon = repository.getConnection();
+        try {
+            if (!repCon.isEmpty()) {
+                if (loadedMarker.isFile()) {
+                    logger.info("Reusing native store in " +dataDir+ " containing " +repCon.size()+ " explicit statements");
+                    return repository;
+                }
+
+                logger.warn("Native store in " +dataDir+ " has not been loaded completely, loading vocabulary again");
+                repCon.clear();
+            }
         }
         finally {
             repCon.close();
         }
 
+        loadFile(rdfFile, baseURI, dataFormat);
+        createLoadedMarker(loadedMarker);
         return repository;
     }
 
-    private void createRepositoryForFile() throws RepositoryException {
-        File tempDir = new File(createDataDirName());
-        repository = new SailRepository(new ForwardChainingRDFSInferencer(new MemoryStore(tempDir)));
+    private void createLoadedMarker(File loadedMarker) throws RepositoryException {
+        try {
+            if (!loadedMarker.createNewFile() && !loadedMarker.isFile()) {
+                throw new IOException("file could not be created");
+            }
+        }
+        catch (IOException e) {
+            throw new RepositoryException("Could not mark native store as loaded: " +e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses the passed file and reports its statements to the passed handler, without storing them in a
+     * repository. Memory usage is thus determined by the handler rather than by the size of the vocabulary.
+     *
+     * @param dataFormat format of the file or null to guess it from the file name
+     */
+    public static void streamFile(File rdfFile, String baseURI, RDFFormat dataFormat, RDFHandler handler)
+        throws OpenRDFException, IOException
+    {
+        if (dataFormat == null) {
+            dataFormat = RDFFormat.forFileName(rdfFile.getName(), RDFFormat.RDFXML);
+        }
+
+        RDFParser parser = Rio.createParser(dataFormat);
+        parser.setRDFHandler(handler);
+
+        long startTime = System.currentTimeMillis();
+        InputStream in = new BufferedInputStream(new FileInputStream(rdfFile));
+        try {
+            parser.parse(in, baseURI != null ? baseURI : rdfFile.toURI().toString());
+        }
+        finally {
+            in.close();
+        }
+        logger.info("Streamed " +rdfFile+ " in " +(System.currentTimeMillis() - startTime)+ " ms");
+    }
+
+    private void createRepository(NotifyingSail store) throws RepositoryException {
+        repository = new SailRepository(createSail(store));
         repository.initialize();
     }
 
-    private String createDataDirName() {
-        return System.getProperty("java.io.tmpdir") +
-                File.separator +
-                System.currentTimeMillis();
+    /**
+     * @throws RepositoryException if the file could not be read or parsed. The repository is shut down in this case.
+     */
+    private void loadFile(File rdfFile, String baseURI, RDFFormat dataFormat) throws RepositoryException {
+        RepositoryConnection repCon = repository.getConnection();
+
+        try {
+            long startTime = System.currentTimeMillis();
+
+            // unless a batch size is set, one transaction so that stores and inferencers process the whole
+            // vocabulary at once
+            repCon.setAutoCommit(false);
+            BatchingRDFInserter inserter = new BatchingRDFInserter(repCon, batchSize);
+            inserter.setSkosXlSupport(skosXlSupport);
+
+            if (loadParallelism > 1 && isNTriples(rdfFile, dataFormat)) {
+                new ParallelNTriplesLoader(loadParallelism).load(rdfFile, inserter);
+            }
+            else {
+                parseFile(rdfFile, baseURI, dataFormat, repCon, inserter);
+            }
+            repCon.commit();
+
+            logLoadStatistics(repCon, System.currentTimeMillis() - startTime);
+        }
+        catch (Exception e) {
+            logger.error("Could not add RDF data from file to temporary repository");
+            repCon.rollback();
+            repCon.close();
+            repository.shutDown();
+            throw new RepositoryException("Could not load vocabulary from " +rdfFile+ ": " +e.getMessage(), e);
+        }
+        finally {
+            if (repCon.isOpen()) {
+                repCon.close();
+            }
+        }
+    }
+
+    private void parseFile(
+        File rdfFile,
+        String baseURI,
+        RDFFormat dataFormat,
+        RepositoryConnection repCon,
+        RDFHandler handler) throws OpenRDFException, IOException
+    {
+        if (dataFormat == null) {
+            dataFormat = RDFFormat.forFileName(rdfFile.getName(), RDFFormat.RDFXML);
+        }
+
+        RDFParser parser = Rio.createParser(dataFormat, repCon.getValueFactory());
+        parser.setRDFHandler(handler);
+
+        InputStream in = new BufferedInputStream(new FileInputStream(rdfFile));
+        try {
+            parser.parse(in, baseURI != null ? baseURI : rdfFile.toURI().toString());
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private boolean isNTriples(File rdfFile, RDFFormat dataFormat) {
+        if (dataFormat == null) {
+            dataFormat = RDFFormat.forFileName(rdfFile.getName());
+        }
+        return RDFFormat.NTRIPLES.equals(dataFormat);
+    }
+
+    private NotifyingSail createSail(NotifyingSail store) {
+        switch (inferencerType) {
+            case SKOS:
+                return new SkosInferencer(store);
+
+            case NONE:
+                return store;
+
+            default:
+                return new ForwardChainingRDFSInferencer(store);
+        }
+    }
+
+    private void logLoadStatistics(RepositoryConnection repCon, long loadTime) throws RepositoryException {
+        if (!logger.isInfoEnabled()) return;
+
+        Runtime runtime = Runtime.getRuntime();
+        long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+        logger.info("Loaded " +repCon.size()+ " explicit statements (" +inferencerType+ " inferencing) in " +loadTime+ " ms, " +
+            "heap used: " +(usedHeap / (1024 * 1024))+ " MB");
+    }
+
+    /**
+     * Creates a new, empty directory. Stores set up concurrently thus never share their data directory.
+     */
+    private File createTempDataDir() throws RepositoryException {
+        try {
+            File tempDir = File.createTempFile("qskos-", ".store");
+            if (!tempDir.delete() || !tempDir.mkdir()) {
+                throw new IOException("Could not create directory " +tempDir);
+            }
+            return tempDir;
+        }
+        catch (IOException e) {
+            throw new RepositoryException("Could not create temporary data directory: " +e.getMessage(), e);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
     }
 
     /**
      * If this is called, the local repository is complemented with SKOS lexical labels inferred from SKOSXL definitions
      * as described in the SKOS <a href="http://www.w3.org/TR/skos-reference/#S55">reference document</a> by the axioms
-     * S55-S57
+     * S55-S57. The SKOS-XL statements are joined in a single pass over the repository. When loading a vocabulary,
+     * {@link #setSkosXlSupport(boolean)} avoids this additional pass.
      *
      * @throws org.openrdf.OpenRDFException if errors when initializing local repository
      */
     public void enableSkosXlSupport()
             throws OpenRDFException
-    {
-        addSkosXlLabels("skosxl:prefLabel", "skos:prefLabel");
-        addSkosXlLabels("skosxl:altLabel", "skos:altLabel");
-        addSkosXlLabels("skosxl:hiddenLabel", "skos:hiddenLabel");
-    }
-
-    private void addSkosXlLabels(String skosXlProperty, String skosProperty) throws OpenRDFException
     {
         RepositoryConnection repCon = repository.getConnection();
 
         try {
-            GraphQuery graphQuery = createSkosXlGraphQuery(repCon, skosXlProperty, skosProperty);
-            GraphQueryResult result = graphQuery.evaluate();
+            repCon.setAutoCommit(false);
+            SkosXlLabelJoin skosXlLabelJoin = new SkosXlLabelJoin();
 
-            while (result.hasNext()) {
-                Statement statement = result.next();
-                repCon.add(statement);
+            for (URI property : SkosXlLabelJoin.getJoinedProperties()) {
+                RepositoryResult<Statement> result = repCon.getStatements(null, property, null, true);
+                try {
+                    while (result.hasNext()) {
+                        repCon.add(skosXlLabelJoin.join(result.next()));
+                    }
+                }
+                finally {
+                    result.close();
+                }
             }
+
+            repCon.commit();
+        }
+        catch (OpenRDFException e) {
+            repCon.rollback();
+            throw e;
         }
         finally {
             repCon.close();
         }
+
+        SkosIndex.invalidate(repository);
     }
 
-    private GraphQuery createSkosXlGraphQuery(
-            RepositoryConnection connection,
-            String skosXlProperty,
-            String skosProperty) throws OpenRDFException
-    {
-        return connection.prepareGraphQuery(
-                QueryLanguage.SPARQL,
-
-                SparqlPrefix.SKOS +" "+ SparqlPrefix.SKOSXL+
-                        "CONSTRUCT { ?concept "+skosProperty+" ?label }"+
-                        "WHERE {"+
-                        "?concept " +skosXlProperty+ " ?xLabel ."+
-                        "?xLabel skosxl:literalForm ?label"+
-                        "}"
-        );
+    /**
+     * Repository whose data directory is deleted when it is shut down. Repositories that are not shut down
+     * explicitly are shut down and deleted when the JVM exits.
+     */
+    private static class TemporaryRepository extends SailRepository {
+
+        private final File dataDir;
+        private final Thread shutdownHook;
+
+        TemporaryRepository(Sail sail, File dataDir) {
+            super(sail);
+            this.dataDir = dataDir;
+
+            shutdownHook = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        TemporaryRepository.super.shutDown();
+                    }
+                    catch (RepositoryException e) {
+                        // the JVM exits anyway, just delete the data
+                    }
+                    deleteRecursively(TemporaryRepository.this.dataDir);
+                }
+            };
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+
+        @Override
+        public void shutDown() throws RepositoryException {
+            try {
+                super.shutDown();
+            }
+            finally {
+                deleteRecursively(dataDir);
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                }
+                catch (IllegalStateException e) {
+                    // the JVM is already exiting
+                }
+            }
+        }
     }
 
 }
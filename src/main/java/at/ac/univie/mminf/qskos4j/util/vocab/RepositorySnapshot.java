@@ -0,0 +1,247 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.sail.SailException;
+import org.openrdf.sail.inferencer.InferencerConnection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary dump of the explicit and inferred statements of a repository. Restoring a snapshot does not require
+ * parsing or inferencing, so it is considerably faster than loading the original vocabulary.
+ *
+ * Each value is written once and referenced by its number afterwards. Every statement is preceded by a marker
+ * telling whether it is explicit or inferred, the end of the snapshot is marked by {@link #END}.
+ */
+public class RepositorySnapshot {
+
+    private final static int MAGIC = 0x51534b53; // "QSKS"
+    public final static int FORMAT_VERSION = 1;
+
+    private final static byte END = 0, EXPLICIT = 1, INFERRED = 2;
+    private final static byte NULL = 0, REFERENCE = 1, URI_VALUE = 2, BNODE_VALUE = 3,
+        PLAIN_LITERAL = 4, LANGUAGE_LITERAL = 5, TYPED_LITERAL = 6;
+
+    private RepositorySnapshot() {
+    }
+
+    /**
+     * Writes all statements of the repository. Whether a statement is inferred is looked up in the repository, so
+     * no statements are held in memory while writing.
+     *
+     * @return the number of written statements
+     */
+    public static long write(RepositoryConnection repCon, DataOutput out) throws RepositoryException, IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+
+        Map<Value, Integer> valueIds = new HashMap<Value, Integer>();
+        long statementCount = 0;
+
+        RepositoryResult<Statement> result = repCon.getStatements(null, null, null, false);
+        try {
+            while (result.hasNext()) {
+                writeStatement(EXPLICIT, result.next(), valueIds, out);
+                statementCount++;
+            }
+        }
+        finally {
+            result.close();
+        }
+
+        result = repCon.getStatements(null, null, null, true);
+        try {
+            while (result.hasNext()) {
+                Statement statement = result.next();
+                if (!isExplicit(repCon, statement)) {
+                    writeStatement(INFERRED, statement, valueIds, out);
+                    statementCount++;
+                }
+            }
+        }
+        finally {
+            result.close();
+        }
+
+        out.writeByte(END);
+        return statementCount;
+    }
+
+    private static boolean isExplicit(RepositoryConnection repCon, Statement statement) throws RepositoryException {
+        // a null context restricts the lookup to the default graph, unlike passing no context at all
+        return repCon.hasStatement(
+            statement.getSubject(),
+            statement.getPredicate(),
+            statement.getObject(),
+            false,
+            statement.getContext());
+    }
+
+    private static void writeStatement(byte kind, Statement statement, Map<Value, Integer> valueIds, DataOutput out)
+        throws IOException
+    {
+        out.writeByte(kind);
+        writeValue(statement.getSubject(), valueIds, out);
+        writeValue(statement.getPredicate(), valueIds, out);
+        writeValue(statement.getObject(), valueIds, out);
+        writeValue(statement.getContext(), valueIds, out);
+    }
+
+    private static void writeValue(Value value, Map<Value, Integer> valueIds, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+
+        Integer id = valueIds.get(value);
+        if (id != null) {
+            out.writeByte(REFERENCE);
+            out.writeInt(id);
+            return;
+        }
+        valueIds.put(value, valueIds.size());
+
+        if (value instanceof URI) {
+            out.writeByte(URI_VALUE);
+            writeString(value.stringValue(), out);
+        }
+        else if (value instanceof BNode) {
+            out.writeByte(BNODE_VALUE);
+            writeString(((BNode) value).getID(), out);
+        }
+        else {
+            Literal literal = (Literal) value;
+            if (literal.getLanguage() != null) {
+                out.writeByte(LANGUAGE_LITERAL);
+                writeString(literal.getLabel(), out);
+                writeString(literal.getLanguage(), out);
+            }
+            else if (literal.getDatatype() != null) {
+                out.writeByte(TYPED_LITERAL);
+                writeString(literal.getLabel(), out);
+                writeString(literal.getDatatype().stringValue(), out);
+            }
+            else {
+                out.writeByte(PLAIN_LITERAL);
+                writeString(literal.getLabel(), out);
+            }
+        }
+    }
+
+    private static void writeString(String string, DataOutput out) throws IOException {
+        // not writeUTF(), which is limited to 64k bytes
+        byte[] bytes = string.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Adds the statements of a snapshot to a store, inferred statements are added as such. The connection is not
+     * committed.
+     *
+     * @return the number of read statements
+     */
+    public static long read(DataInput in, InferencerConnection sailCon, ValueFactory valueFactory)
+        throws IOException, SailException
+    {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a repository snapshot");
+        }
+        int version = in.readUnsignedShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " +version);
+        }
+
+        List<Value> values = new ArrayList<Value>();
+        long statementCount = 0;
+
+        for (byte kind = in.readByte(); kind != END; kind = in.readByte()) {
+            Resource subject = (Resource) readValue(in, values, valueFactory);
+            URI predicate = (URI) readValue(in, values, valueFactory);
+            Value object = readValue(in, values, valueFactory);
+            Resource context = (Resource) readValue(in, values, valueFactory);
+            Resource[] contexts = context == null ? new Resource[0] : new Resource[] {context};
+
+            switch (kind) {
+                case EXPLICIT:
+                    sailCon.addStatement(subject, predicate, object, contexts);
+                    break;
+
+                case INFERRED:
+                    sailCon.addInferredStatement(subject, predicate, object, contexts);
+                    break;
+
+                default:
+                    throw new IOException("Invalid statement kind " +kind);
+            }
+            statementCount++;
+        }
+
+        return statementCount;
+    }
+
+    private static Value readValue(DataInput in, List<Value> values, ValueFactory valueFactory) throws IOException {
+        byte kind = in.readByte();
+        Value value;
+
+        switch (kind) {
+            case NULL:
+                return null;
+
+            case REFERENCE:
+                int id = in.readInt();
+                if (id < 0 || id >= values.size()) {
+                    throw new IOException("Invalid value reference " +id);
+                }
+                return values.get(id);
+
+            case URI_VALUE:
+                value = valueFactory.createURI(readString(in));
+                break;
+
+            case BNODE_VALUE:
+                value = valueFactory.createBNode(readString(in));
+                break;
+
+            case PLAIN_LITERAL:
+                value = valueFactory.createLiteral(readString(in));
+                break;
+
+            case LANGUAGE_LITERAL:
+                value = valueFactory.createLiteral(readString(in), readString(in));
+                break;
+
+            case TYPED_LITERAL:
+                value = valueFactory.createLiteral(readString(in), valueFactory.createURI(readString(in)));
+                break;
+
+            default:
+                throw new IOException("Invalid value kind " +kind);
+        }
+
+        values.add(value);
+        return value;
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+}
@@ -0,0 +1,206 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.repository.RepositoryConnection;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The parts of the SKOS reference document that are needed to evaluate a vocabulary: the sub-properties of
+ * skos:semanticRelation, the textual properties (sub-properties of rdfs:label and skos:note) and all terms defined
+ * by SKOS. Annotations such as definitions or comments are not part of this structure.
+ *
+ * A precompiled copy is bundled as the resource {@link #BUNDLED_RESOURCE} and can be (re-)generated using
+ * {@link SkosCoreCompiler}. Instances are immutable.
+ */
+public class SkosCore {
+
+    public final static String BUNDLED_RESOURCE = "skos-core.bin";
+
+    private final static int MAGIC = 0x51534b43; // "QSKC"
+    private final static int FORMAT_VERSION = 1;
+    private final static byte SKOS_TERM = 0, OTHER_TERM = 1;
+
+    private final Set<URI> semanticRelationSubProperties, textualProperties, definedTerms;
+
+    public SkosCore(Set<URI> semanticRelationSubProperties, Set<URI> textualProperties, Set<URI> definedTerms) {
+        this.semanticRelationSubProperties = immutableCopy(semanticRelationSubProperties);
+        this.textualProperties = immutableCopy(textualProperties);
+        this.definedTerms = immutableCopy(definedTerms);
+    }
+
+    private static Set<URI> immutableCopy(Set<URI> uris) {
+        return Collections.unmodifiableSet(new HashSet<URI>(uris));
+    }
+
+    /**
+     * Loads the copy bundled with qSKOS.
+     *
+     * @throws IllegalStateException if the resource is missing or corrupt, i.e., qSKOS has not been packaged properly
+     */
+    public static SkosCore loadBundled() {
+        InputStream in = SkosCore.class.getResourceAsStream(BUNDLED_RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("Bundled SKOS ontology '" +BUNDLED_RESOURCE+ "' not found");
+        }
+
+        try {
+            try {
+                return read(new DataInputStream(new BufferedInputStream(in)));
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Error reading bundled SKOS ontology", e);
+        }
+    }
+
+    public static SkosCore read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a precompiled SKOS ontology");
+        }
+        int version = in.readUnsignedShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported format version " +version);
+        }
+
+        Set<URI> semanticRelationSubProperties = readTerms(in);
+        Set<URI> textualProperties = readTerms(in);
+        Set<URI> definedTerms = readTerms(in);
+        return new SkosCore(semanticRelationSubProperties, textualProperties, definedTerms);
+    }
+
+    private static Set<URI> readTerms(DataInput in) throws IOException {
+        int count = in.readInt();
+        Set<URI> terms = new HashSet<URI>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            byte kind = in.readByte();
+            String name = in.readUTF();
+
+            switch (kind) {
+                case SKOS_TERM:
+                    terms.add(new URIImpl(SparqlPrefix.SKOS.getNameSpace() + name));
+                    break;
+
+                case OTHER_TERM:
+                    terms.add(new URIImpl(name));
+                    break;
+
+                default:
+                    throw new IOException("Invalid term kind " +kind);
+            }
+        }
+
+        return terms;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+
+        writeTerms(semanticRelationSubProperties, out);
+        writeTerms(textualProperties, out);
+        writeTerms(definedTerms, out);
+    }
+
+    private void writeTerms(Set<URI> terms, DataOutput out) throws IOException {
+        // sorted so that the generated resource does not change between runs
+        Set<String> sortedTerms = new TreeSet<String>();
+        for (URI term : terms) {
+            sortedTerms.add(term.stringValue());
+        }
+
+        out.writeInt(sortedTerms.size());
+        String skosNamespace = SparqlPrefix.SKOS.getNameSpace();
+        for (String term : sortedTerms) {
+            if (term.startsWith(skosNamespace)) {
+                out.writeByte(SKOS_TERM);
+                out.writeUTF(term.substring(skosNamespace.length()));
+            }
+            else {
+                out.writeByte(OTHER_TERM);
+                out.writeUTF(term);
+            }
+        }
+    }
+
+    /**
+     * Extracts the structure from a repository containing the SKOS reference document.
+     */
+    public static SkosCore create(RepositoryConnection skosRepCon) throws OpenRDFException {
+        return new SkosCore(
+            queryURIs(skosRepCon,
+                SparqlPrefix.SKOS +" "+ SparqlPrefix.RDFS +
+                "SELECT ?term WHERE {" +
+                    "?term rdfs:subPropertyOf+ skos:semanticRelation" +
+                "}"),
+            queryURIs(skosRepCon,
+                SparqlPrefix.SKOS +" "+ SparqlPrefix.RDFS +
+                "SELECT ?term WHERE {" +
+                    "{?term rdfs:subPropertyOf* rdfs:label}" +
+                    "UNION" +
+                    "{?term rdfs:subPropertyOf* skos:note}" +
+                "}"),
+            queryURIs(skosRepCon,
+                "SELECT ?term WHERE {" +
+                    "?term ?p ?o . " +
+                    "FILTER isIRI(?term)"+
+                "}"));
+    }
+
+    private static Set<URI> queryURIs(RepositoryConnection repCon, String query) throws OpenRDFException {
+        Set<URI> uris = new HashSet<URI>();
+        TupleQueryResult result = repCon.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate();
+        try {
+            while (result.hasNext()) {
+                Value value = result.next().getValue("term");
+                if (value instanceof URI) {
+                    uris.add((URI) value);
+                }
+            }
+        }
+        finally {
+            result.close();
+        }
+        return uris;
+    }
+
+    /**
+     * @return all properties that are (directly or indirectly) sub-properties of skos:semanticRelation
+     */
+    public Set<URI> getSemanticRelationSubProperties() {
+        return semanticRelationSubProperties;
+    }
+
+    /**
+     * @return rdfs:label, skos:note and all their sub-properties
+     */
+    public Set<URI> getTextualProperties() {
+        return textualProperties;
+    }
+
+    /**
+     * @return all IRIs that are described (i.e., occur as subject) in the SKOS ontology
+     */
+    public Set<URI> getDefinedTerms() {
+        return definedTerms;
+    }
+
+}
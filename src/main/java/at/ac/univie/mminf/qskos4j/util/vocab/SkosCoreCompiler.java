@@ -0,0 +1,41 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+
+/**
+ * Precompiles the SKOS reference document into the binary form read by {@link SkosCore#loadBundled()}. Used to
+ * regenerate the bundled resource, e.g.:
+ *
+ * <pre>
+ * java -cp qSKOS.jar at.ac.univie.mminf.qskos4j.util.vocab.SkosCoreCompiler \
+ *     src/main/resources/at/ac/univie/mminf/qskos4j/util/vocab/skos-core.bin [skos.rdf URL]
+ * </pre>
+ */
+public class SkosCoreCompiler {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: SkosCoreCompiler <output file> [SKOS RDF/XML URL]");
+            System.exit(1);
+        }
+
+        String skosUrl = args.length > 1 ? args[1] : SkosOntology.SKOS_GRAPH_URL;
+        SkosCore skosCore = SkosOntology.fetchSkosCore(skosUrl);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(args[0])));
+        try {
+            skosCore.write(out);
+        }
+        finally {
+            out.close();
+        }
+
+        System.out.println(
+            skosCore.getSemanticRelationSubProperties().size() + " semantic relations, " +
+            skosCore.getTextualProperties().size() + " textual properties, " +
+            skosCore.getDefinedTerms().size() + " defined terms written to " +args[0]);
+    }
+
+}
@@ -0,0 +1,222 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import info.aduna.iteration.CloseableIteration;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.sail.NotifyingSail;
+import org.openrdf.sail.SailConnectionListener;
+import org.openrdf.sail.SailException;
+import org.openrdf.sail.helpers.NotifyingSailWrapper;
+import org.openrdf.sail.inferencer.InferencerConnection;
+import org.openrdf.sail.inferencer.InferencerConnectionWrapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A lightweight alternative to the {@link org.openrdf.sail.inferencer.fc.ForwardChainingRDFSInferencer} that only
+ * materializes the entailments the quality issues depend on:
+ * <ul>
+ *     <li>rdfs:subPropertyOf is reflexive for all used properties and transitive (rdfs5, rdfs6)</li>
+ *     <li>statements using a property also hold for all its super-properties (rdfs7)</li>
+ *     <li>rdfs:subClassOf is transitive and resources are instances of all super-classes of their types (rdfs9, rdfs11)</li>
+ * </ul>
+ * In particular, rdf:type rdfs:Resource statements and domain/range entailments are not created. Inverse SKOS
+ * properties (e.g., skos:broader/skos:narrower) are not materialized either, because omitted inverse relations are
+ * themselves a quality issue.
+ */
+public class SkosInferencer extends NotifyingSailWrapper {
+
+    public SkosInferencer(NotifyingSail baseSail) {
+        super(baseSail);
+    }
+
+    @Override
+    public SkosInferencerConnection getConnection() throws SailException {
+        try {
+            return new SkosInferencerConnection((InferencerConnection) super.getConnection());
+        }
+        catch (ClassCastException e) {
+            throw new SailException(e.getMessage(), e);
+        }
+    }
+
+    public static class SkosInferencerConnection extends InferencerConnectionWrapper implements SailConnectionListener {
+
+        private List<Statement> newStatements = new ArrayList<Statement>();
+        private boolean schemaChanged = false, inferring = false;
+
+        private SkosInferencerConnection(InferencerConnection con) {
+            super(con);
+            con.addConnectionListener(this);
+        }
+
+        @Override
+        public void statementAdded(Statement st) {
+            if (inferring || schemaChanged) return;
+
+            if (st.getPredicate().equals(RDFS.SUBPROPERTYOF) || st.getPredicate().equals(RDFS.SUBCLASSOF)) {
+                // previously added statements might have new super-properties or super-classes
+                schemaChanged = true;
+                newStatements.clear();
+            }
+            else {
+                newStatements.add(st);
+            }
+        }
+
+        @Override
+        public void statementRemoved(Statement st) {
+            if (inferring) return;
+
+            schemaChanged = true;
+            newStatements.clear();
+        }
+
+        @Override
+        public void flushUpdates() throws SailException {
+            super.flushUpdates();
+            if (!schemaChanged && newStatements.isEmpty()) return;
+
+            inferring = true;
+            try {
+                if (schemaChanged) {
+                    getWrappedConnection().clearInferred();
+                    newStatements = getExplicitStatements(null);
+                }
+                doInferencing();
+            }
+            finally {
+                inferring = false;
+                schemaChanged = false;
+                newStatements = new ArrayList<Statement>();
+            }
+        }
+
+        private void doInferencing() throws SailException {
+            Map<Value, Set<Value>> superProperties = getTransitiveClosure(RDFS.SUBPROPERTYOF);
+            Map<Value, Set<Value>> superClasses = getTransitiveClosure(RDFS.SUBCLASSOF);
+            Set<URI> properties = new HashSet<URI>();
+
+            for (Statement st : newStatements) {
+                addProperty(st.getPredicate(), properties);
+                inferSuperProperties(st, superProperties, properties);
+
+                if (st.getPredicate().equals(RDF.TYPE)) {
+                    for (Value superClass : getSuperValues(st.getObject(), superClasses)) {
+                        addInferredStatement(st.getSubject(), RDF.TYPE, superClass);
+                    }
+                }
+            }
+
+            inferSchema(RDFS.SUBPROPERTYOF, superProperties, properties);
+            inferSchema(RDFS.SUBCLASSOF, superClasses, null);
+        }
+
+        private void inferSuperProperties(Statement st, Map<Value, Set<Value>> superProperties, Set<URI> properties)
+            throws SailException
+        {
+            for (Value superProperty : getSuperValues(st.getPredicate(), superProperties)) {
+                if (superProperty instanceof URI) {
+                    addProperty((URI) superProperty, properties);
+                    addInferredStatement(st.getSubject(), (URI) superProperty, st.getObject());
+                }
+            }
+        }
+
+        private void addProperty(URI property, Set<URI> properties) throws SailException {
+            if (properties.add(property)) {
+                addInferredStatement(property, RDFS.SUBPROPERTYOF, property);
+            }
+        }
+
+        /**
+         * Adds the transitive closure of the passed schema property and, if properties are given, makes its subjects
+         * and objects properties.
+         */
+        private void inferSchema(URI schemaProperty, Map<Value, Set<Value>> closure, Set<URI> properties)
+            throws SailException
+        {
+            for (Map.Entry<Value, Set<Value>> entry : closure.entrySet()) {
+                if (!(entry.getKey() instanceof Resource)) continue;
+                Resource subject = (Resource) entry.getKey();
+
+                if (properties != null && subject instanceof URI) {
+                    addProperty((URI) subject, properties);
+                }
+                for (Value superValue : entry.getValue()) {
+                    addInferredStatement(subject, schemaProperty, superValue);
+                    if (properties != null && superValue instanceof URI) {
+                        addProperty((URI) superValue, properties);
+                    }
+                }
+            }
+        }
+
+        private Set<Value> getSuperValues(Value value, Map<Value, Set<Value>> closure) {
+            Set<Value> superValues = closure.get(value);
+            return superValues != null ? superValues : Collections.<Value>emptySet();
+        }
+
+        private Map<Value, Set<Value>> getTransitiveClosure(URI schemaProperty) throws SailException {
+            Map<Value, Set<Value>> directSuperValues = new HashMap<Value, Set<Value>>();
+            for (Statement st : getExplicitStatements(schemaProperty)) {
+                if (st.getSubject().equals(st.getObject())) continue;
+                getOrCreate(directSuperValues, st.getSubject()).add(st.getObject());
+            }
+
+            Map<Value, Set<Value>> closure = new HashMap<Value, Set<Value>>();
+            for (Value value : directSuperValues.keySet()) {
+                Set<Value> superValues = new HashSet<Value>();
+                List<Value> queue = new ArrayList<Value>(directSuperValues.get(value));
+                while (!queue.isEmpty()) {
+                    Value superValue = queue.remove(queue.size() - 1);
+                    if (!superValue.equals(value) && superValues.add(superValue)) {
+                        queue.addAll(getSuperValues(superValue, directSuperValues));
+                    }
+                }
+                closure.put(value, superValues);
+            }
+            return closure;
+        }
+
+        private Set<Value> getOrCreate(Map<Value, Set<Value>> map, Value key) {
+            Set<Value> values = map.get(key);
+            if (values == null) {
+                values = new HashSet<Value>();
+                map.put(key, values);
+            }
+            return values;
+        }
+
+        private List<Statement> getExplicitStatements(URI predicate) throws SailException {
+            List<Statement> statements = new ArrayList<Statement>();
+            CloseableIteration<? extends Statement, SailException> it =
+                getWrappedConnection().getStatements(null, predicate, null, false);
+            try {
+                while (it.hasNext()) {
+                    statements.add(it.next());
+                }
+            }
+            finally {
+                it.close();
+            }
+            return statements;
+        }
+
+        private void addInferredStatement(Resource subject, URI predicate, Value object) throws SailException {
+            getWrappedConnection().addInferredStatement(subject, predicate, object);
+        }
+
+    }
+
+}
@@ -1,13 +1,11 @@
 package at.ac.univie.mminf.qskos4j.util.vocab;
 
-import at.ac.univie.mminf.qskos4j.util.TupleQueryResultUtil;
 import org.openrdf.OpenRDFException;
 import org.openrdf.model.URI;
 import org.openrdf.model.impl.URIImpl;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQuery;
 import org.openrdf.repository.Repository;
 import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
 import org.openrdf.repository.sail.SailRepository;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.sail.memory.MemoryStore;
@@ -42,63 +40,110 @@ public class SkosOntology {
             new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "relatedMatch")
     };
 
-    private final String SKOS_GRAPH_URL = "http://www.w3.org/2009/08/skos-reference/skos.rdf";
-    private final String SKOS_BASE_URI = "http://www.w3.org/2004/02/skos/core";
+    public final static URI[] SKOS_MAPPING_PROPERTIES = {
+            new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "mappingRelation"),
+            new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "closeMatch"),
+            new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "exactMatch"),
+            new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "broadMatch"),
+            new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "narrowMatch"),
+            new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "relatedMatch")
+    };
+
+    /**
+     * System property that enables {@link #setRemoteFetchEnabled(boolean) remote fetching} of the SKOS ontology
+     * if set to "true".
+     */
+    public final static String REMOTE_FETCH_PROPERTY = "qskos.skos.fetchRemote";
+
+    final static String SKOS_GRAPH_URL = "http://www.w3.org/2009/08/skos-reference/skos.rdf";
+    private final static String SKOS_BASE_URI = "http://www.w3.org/2004/02/skos/core";
 
     private static SkosOntology ourInstance = new SkosOntology();
-    private static Repository skosRepo;
+
+    private boolean remoteFetchEnabled = Boolean.getBoolean(REMOTE_FETCH_PROPERTY);
+    private SkosVocabularyModel vocabularyModel;
+    private Repository skosRepo;
 
     public static SkosOntology getInstance() {
-        if (skosRepo == null) {
+        return ourInstance;
+    }
+
+    private SkosOntology() {
+    }
+
+    /**
+     * By default, the SKOS ontology is read from the precompiled copy bundled with qSKOS and no network access is
+     * needed. If remote fetching is enabled, the ontology is instead downloaded from the W3C on first use.
+     */
+    public synchronized void setRemoteFetchEnabled(boolean remoteFetchEnabled) {
+        if (this.remoteFetchEnabled != remoteFetchEnabled) {
+            this.remoteFetchEnabled = remoteFetchEnabled;
+            vocabularyModel = null;
+        }
+    }
+
+    public synchronized boolean isRemoteFetchEnabled() {
+        return remoteFetchEnabled;
+    }
+
+    /**
+     * @return the property sets and filter expressions derived from the SKOS ontology. They are computed only once
+     * and shared by all callers.
+     */
+    public synchronized SkosVocabularyModel getVocabularyModel() throws OpenRDFException {
+        if (vocabularyModel == null) {
+            vocabularyModel = new SkosVocabularyModel(loadSkosCore());
+        }
+        return vocabularyModel;
+    }
+
+    private SkosCore loadSkosCore() throws OpenRDFException {
+        if (remoteFetchEnabled) {
+            RepositoryConnection repCon = getRepository().getConnection();
             try {
-                ourInstance.createSkosRepo();
+                return SkosCore.create(repCon);
             }
-            catch (Exception e) {
-                logger.error("Error creating SKOS repository", e);
+            finally {
+                repCon.close();
             }
         }
-        return ourInstance;
+        return SkosCore.loadBundled();
     }
 
-    private void createSkosRepo() throws OpenRDFException, IOException {
-        skosRepo = new SailRepository(new MemoryStore());
-        skosRepo.initialize();
-
-        RepositoryConnection repCon = skosRepo.getConnection();
+    static SkosCore fetchSkosCore(String skosUrl) throws OpenRDFException, IOException {
+        Repository repository = createSkosRepo(skosUrl);
         try {
-            repCon.add(new URL(SKOS_GRAPH_URL),
-                        SKOS_BASE_URI,
-                        RDFFormat.RDFXML,
-                        new URIImpl(SKOS_GRAPH_URL));
+            RepositoryConnection repCon = repository.getConnection();
+            try {
+                return SkosCore.create(repCon);
+            }
+            finally {
+                repCon.close();
+            }
         }
         finally {
-            repCon.close();
+            repository.shutDown();
         }
     }
 
-    private SkosOntology() {
-    }
+    private static Repository createSkosRepo(String skosUrl) throws OpenRDFException, IOException {
+        logger.info("Fetching SKOS ontology from " +skosUrl);
 
-    public String getSubPropertiesOfSemanticRelationsFilter(String bindingName) throws OpenRDFException
-    {
-        RepositoryConnection repCon = skosRepo.getConnection();
-        try {
-            TupleQuery tupleQuery = repCon.prepareTupleQuery(
-                QueryLanguage.SPARQL,
-                createSubPropertiesOfSemanticRelationsQuery(bindingName));
+        Repository repository = new SailRepository(new MemoryStore());
+        repository.initialize();
 
-            return TupleQueryResultUtil.getFilterForBindingName(tupleQuery.evaluate(), bindingName);
+        RepositoryConnection repCon = repository.getConnection();
+        try {
+            repCon.add(new URL(skosUrl),
+                        SKOS_BASE_URI,
+                        RDFFormat.RDFXML,
+                        new URIImpl(skosUrl));
         }
         finally {
             repCon.close();
         }
-    }
 
-    private String createSubPropertiesOfSemanticRelationsQuery(String bindingName) {
-        return SparqlPrefix.SKOS +" "+ SparqlPrefix.RDFS +
-            "SELECT ?" +bindingName+ " WHERE {" +
-                "?" +bindingName+ " rdfs:subPropertyOf+ skos:semanticRelation" +
-            "}";
+        return repository;
     }
 
     public String getHierarchicalPropertiesPath(HierarchyType hierarchyType)
@@ -134,7 +179,23 @@ public class SkosOntology {
         throw new IllegalArgumentException("Predicate not a hierarchical property");
     }
 
-    public Repository getRepository() {
+    /**
+     * @return a repository containing the complete SKOS reference document, downloaded on first use
+     * @throws IllegalStateException if {@link #setRemoteFetchEnabled(boolean) remote fetching} is disabled
+     */
+    public synchronized Repository getRepository() throws OpenRDFException {
+        if (!remoteFetchEnabled) {
+            throw new IllegalStateException("Remote fetching of the SKOS ontology is disabled");
+        }
+
+        if (skosRepo == null) {
+            try {
+                skosRepo = createSkosRepo(SKOS_GRAPH_URL);
+            }
+            catch (IOException e) {
+                throw new RepositoryException("Error fetching SKOS ontology", e);
+            }
+        }
         return skosRepo;
     }
 
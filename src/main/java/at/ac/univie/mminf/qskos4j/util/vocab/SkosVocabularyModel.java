@@ -0,0 +1,97 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.openrdf.model.URI;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The sets of SKOS properties and terms the issues work with, together with SPARQL filter expressions derived from
+ * them. Instances are immutable and can be shared by all issues and threads; use
+ * {@link SkosOntology#getVocabularyModel()} to obtain the one of the current SKOS ontology.
+ */
+public class SkosVocabularyModel {
+
+    private final Set<URI> semanticRelations, textualProperties, definedTerms;
+    private final String semanticRelationsList, textualPropertiesList, definedTermsList;
+
+    public SkosVocabularyModel(SkosCore skosCore) {
+        semanticRelations = skosCore.getSemanticRelationSubProperties();
+        textualProperties = skosCore.getTextualProperties();
+        definedTerms = skosCore.getDefinedTerms();
+
+        semanticRelationsList = createValueList(semanticRelations);
+        textualPropertiesList = createValueList(textualProperties);
+        definedTermsList = createValueList(definedTerms);
+    }
+
+    private static String createValueList(Set<URI> uris) {
+        // sorted so that the generated queries do not depend on hash order
+        Set<String> sortedUris = new TreeSet<String>();
+        for (URI uri : uris) {
+            sortedUris.add(uri.stringValue());
+        }
+
+        StringBuilder valueList = new StringBuilder("(");
+        for (String uri : sortedUris) {
+            if (valueList.length() > 1) valueList.append(",");
+            valueList.append("<").append(uri).append(">");
+        }
+        return valueList.append(")").toString();
+    }
+
+    private static String createFilter(String bindingName, String valueList) {
+        return "FILTER (?" +bindingName+ " IN " +valueList+ ")";
+    }
+
+    /**
+     * @return all properties that are (directly or indirectly) sub-properties of skos:semanticRelation
+     */
+    public Set<URI> getSemanticRelations() {
+        return semanticRelations;
+    }
+
+    public boolean isSemanticRelation(URI property) {
+        return semanticRelations.contains(property);
+    }
+
+    /**
+     * @return a SPARQL filter expression that restricts the passed binding to {@link #getSemanticRelations()}
+     */
+    public String getSemanticRelationsFilter(String bindingName) {
+        return createFilter(bindingName, semanticRelationsList);
+    }
+
+    /**
+     * @return rdfs:label, skos:note and all their sub-properties
+     */
+    public Set<URI> getTextualProperties() {
+        return textualProperties;
+    }
+
+    /**
+     * @return a SPARQL filter expression that restricts the passed binding to {@link #getTextualProperties()}
+     */
+    public String getTextualPropertiesFilter(String bindingName) {
+        return createFilter(bindingName, textualPropertiesList);
+    }
+
+    /**
+     * @return all IRIs that are described (i.e., occur as subject) in the SKOS ontology
+     */
+    public Set<URI> getDefinedTerms() {
+        return definedTerms;
+    }
+
+    public boolean isDefinedTerm(URI term) {
+        return definedTerms.contains(term);
+    }
+
+    /**
+     * @return a SPARQL filter expression that restricts the passed binding to {@link #getDefinedTerms()}
+     */
+    public String getDefinedTermsFilter(String bindingName) {
+        return createFilter(bindingName, definedTermsList);
+    }
+
+}
@@ -0,0 +1,99 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.StatementImpl;
+import org.openrdf.model.impl.URIImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives SKOS lexical labels from SKOS-XL labels as described in the SKOS
+ * <a href="http://www.w3.org/TR/skos-reference/#S55">reference document</a> by the axioms S55-S57, e.g., a resource
+ * has the skos:prefLabel L if it has a skosxl:prefLabel whose skosxl:literalForm is L. Statements are joined in a
+ * single pass, regardless of the order in which they are passed. Memory usage grows with the number of SKOS-XL
+ * labels, not with the number of statements.
+ */
+public class SkosXlLabelJoin {
+
+    public final static URI LITERAL_FORM = new URIImpl(SparqlPrefix.SKOSXL.getNameSpace() + "literalForm");
+
+    private final static Map<URI, URI> LABEL_PROPERTIES = new HashMap<URI, URI>();
+    static {
+        for (String labelType : new String[] {"prefLabel", "altLabel", "hiddenLabel"}) {
+            LABEL_PROPERTIES.put(
+                new URIImpl(SparqlPrefix.SKOSXL.getNameSpace() + labelType),
+                new URIImpl(SparqlPrefix.SKOS.getNameSpace() + labelType));
+        }
+    }
+
+    private final Map<Value, List<Statement>> labelsByXLabel = new HashMap<Value, List<Statement>>();
+    private final Map<Value, List<Value>> literalFormsByXLabel = new HashMap<Value, List<Value>>();
+
+    /**
+     * @return the SKOS-XL label properties (skosxl:prefLabel, skosxl:altLabel, skosxl:hiddenLabel) and
+     * skosxl:literalForm, i.e., the properties of all statements that take part in the join
+     */
+    public static List<URI> getJoinedProperties() {
+        List<URI> properties = new ArrayList<URI>(LABEL_PROPERTIES.keySet());
+        properties.add(LITERAL_FORM);
+        return properties;
+    }
+
+    /**
+     * @return the lexical labels that can be derived now that the passed statement is known, in most cases none
+     */
+    public List<Statement> join(Statement statement) {
+        URI predicate = statement.getPredicate();
+
+        if (predicate.equals(LITERAL_FORM)) {
+            Value xLabel = statement.getSubject();
+            add(literalFormsByXLabel, xLabel, statement.getObject());
+            return deriveLabels(getOrEmpty(labelsByXLabel, xLabel), Collections.singletonList(statement.getObject()));
+        }
+
+        if (LABEL_PROPERTIES.containsKey(predicate)) {
+            Value xLabel = statement.getObject();
+            add(labelsByXLabel, xLabel, statement);
+            return deriveLabels(Collections.singletonList(statement), getOrEmpty(literalFormsByXLabel, xLabel));
+        }
+
+        return Collections.emptyList();
+    }
+
+    private List<Statement> deriveLabels(List<Statement> labelStatements, List<Value> literalForms) {
+        if (labelStatements.isEmpty() || literalForms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Statement> lexicalLabels = new ArrayList<Statement>();
+        for (Statement labelStatement : labelStatements) {
+            URI skosProperty = LABEL_PROPERTIES.get(labelStatement.getPredicate());
+            for (Value literalForm : literalForms) {
+                lexicalLabels.add(new StatementImpl(labelStatement.getSubject(), skosProperty, literalForm));
+            }
+        }
+        return lexicalLabels;
+    }
+
+    private <T> void add(Map<Value, List<T>> map, Value key, T value) {
+        List<T> values = map.get(key);
+        if (values == null) {
+            values = new ArrayList<T>(1);
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    private <T> List<T> getOrEmpty(Map<Value, List<T>> map, Value key) {
+        List<T> values = map.get(key);
+        return values != null ? values : Collections.<T>emptyList();
+    }
+
+}
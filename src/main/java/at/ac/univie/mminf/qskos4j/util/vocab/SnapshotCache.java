@@ -0,0 +1,194 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.openrdf.model.ValueFactory;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.sail.SailException;
+import org.openrdf.sail.inferencer.InferencerConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Directory of {@link RepositorySnapshot}s. Snapshots are identified by a key that is derived from the content of
+ * the vocabulary file, the qSKOS version and the options that affect the loaded statements (e.g., the inferencer),
+ * so a changed vocabulary or a different configuration never hits a stale snapshot. Only the most recently used
+ * snapshots are kept.
+ */
+public class SnapshotCache {
+
+    private final static Logger logger = LoggerFactory.getLogger(SnapshotCache.class);
+
+    public final static int DEFAULT_MAX_ENTRIES = 10;
+
+    private final static String SNAPSHOT_SUFFIX = ".snapshot";
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+    private final File cacheDir;
+    private final int maxEntries;
+
+    /**
+     * @param maxEntries the number of snapshots kept, older ones are deleted whenever a snapshot is stored
+     */
+    public SnapshotCache(File cacheDir, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maximum number of entries must be at least 1");
+        }
+        this.cacheDir = cacheDir;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param options a description of all settings that affect the statements contained in the repository
+     * @return the SHA-256 hash of the qSKOS version, the options and the content of the passed file as hex string
+     */
+    public String createKey(File rdfFile, String options) throws IOException {
+        MessageDigest digest = createDigest();
+        digest.update((getVersion() + "\n" + RepositorySnapshot.FORMAT_VERSION + "\n" + options + "\n").getBytes("UTF-8"));
+
+        InputStream in = new FileInputStream(rdfFile);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String getVersion() {
+        String version = SnapshotCache.class.getPackage().getImplementationVersion();
+        return version != null ? version : "dev";
+    }
+
+    public boolean contains(String key) {
+        return getSnapshotFile(key).isFile();
+    }
+
+    /**
+     * Adds the statements of the snapshot for the passed key to a store. The connection is not committed.
+     *
+     * @return false if there is no snapshot for the passed key
+     */
+    public boolean restore(String key, InferencerConnection sailCon, ValueFactory valueFactory)
+        throws IOException, SailException
+    {
+        File snapshotFile = getSnapshotFile(key);
+        if (!snapshotFile.isFile()) {
+            logger.debug("No snapshot for key " +key);
+            return false;
+        }
+
+        // marks the snapshot as recently used
+        snapshotFile.setLastModified(System.currentTimeMillis());
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), BUFFER_SIZE));
+        try {
+            long statementCount = RepositorySnapshot.read(in, sailCon, valueFactory);
+            logger.info("Restored " +statementCount+ " statements from snapshot " +snapshotFile);
+            return true;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Creates the snapshot for the passed key from the statements of a repository. The snapshot becomes visible only
+     * after it has been written completely, then the least recently used snapshots are evicted.
+     */
+    public void store(String key, RepositoryConnection repCon) throws IOException, RepositoryException {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IOException("Could not create cache directory " +cacheDir);
+        }
+
+        File snapshotFile = getSnapshotFile(key);
+        File tempFile = File.createTempFile(key, ".tmp", cacheDir);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+            try {
+                long statementCount = RepositorySnapshot.write(repCon, out);
+                logger.info("Stored " +statementCount+ " statements in snapshot " +snapshotFile);
+            }
+            finally {
+                out.close();
+            }
+
+            snapshotFile.delete();
+            if (!tempFile.renameTo(snapshotFile)) {
+                throw new IOException("Could not create snapshot " +snapshotFile);
+            }
+        }
+        finally {
+            tempFile.delete();
+        }
+
+        evict();
+    }
+
+    private void evict() {
+        File[] snapshotFiles = cacheDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(SNAPSHOT_SUFFIX);
+            }
+        });
+        if (snapshotFiles == null || snapshotFiles.length <= maxEntries) return;
+
+        Arrays.sort(snapshotFiles, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.valueOf(file2.lastModified()).compareTo(file1.lastModified());
+            }
+        });
+
+        for (int i = maxEntries; i < snapshotFiles.length; i++) {
+            logger.debug("Evicting snapshot " +snapshotFiles[i]);
+            snapshotFiles[i].delete();
+        }
+    }
+
+    /**
+     * Deletes the snapshot for the passed key, e.g., because it could not be read.
+     */
+    public void remove(String key) {
+        getSnapshotFile(key).delete();
+    }
+
+    private File getSnapshotFile(String key) {
+        return new File(cacheDir, key + SNAPSHOT_SUFFIX);
+    }
+
+}
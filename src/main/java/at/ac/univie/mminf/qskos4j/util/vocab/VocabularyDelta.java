@@ -0,0 +1,158 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.RepositoryResult;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The explicit statements that have been added and removed between two versions of a vocabulary. Resources
+ * occurring as subject or object of such a statement are "touched", everything an issue derives from untouched
+ * resources only is the same in both versions, provided the delta does not change the schema (see
+ * {@link #isSchemaChange()}), i.e., inferencing yields the same statements for untouched resources.
+ *
+ * Blank nodes are compared by their identifiers, which usually differ between two parsed files. Statements
+ * containing blank nodes are then reported as removed and added again, so the delta is larger than necessary but
+ * still complete.
+ */
+public class VocabularyDelta {
+
+    private final static String RDF_NAMESPACE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private final static String RDFS_NAMESPACE = "http://www.w3.org/2000/01/rdf-schema#";
+    private final static String OWL_NAMESPACE = "http://www.w3.org/2002/07/owl#";
+    private final static String RDF_TYPE = RDF_NAMESPACE + "type";
+
+    private final Set<Statement> addedStatements, removedStatements;
+    private final Set<Resource> touchedResources = new HashSet<Resource>();
+    private final boolean schemaChange;
+
+    public VocabularyDelta(Set<Statement> addedStatements, Set<Statement> removedStatements) {
+        this.addedStatements = Collections.unmodifiableSet(addedStatements);
+        this.removedStatements = Collections.unmodifiableSet(removedStatements);
+
+        boolean schemaChange = false;
+        for (Set<Statement> statements : Arrays.asList(addedStatements, removedStatements)) {
+            for (Statement statement : statements) {
+                touchedResources.add(statement.getSubject());
+                if (statement.getObject() instanceof Resource) {
+                    touchedResources.add((Resource) statement.getObject());
+                }
+                schemaChange |= isSchemaStatement(statement);
+            }
+        }
+        this.schemaChange = schemaChange;
+    }
+
+    /**
+     * Computes the delta between the explicit statements of two repositories. The statements of the previous
+     * version are held in memory during the computation.
+     */
+    public static VocabularyDelta compute(RepositoryConnection previousRepCon, RepositoryConnection currentRepCon)
+        throws RepositoryException
+    {
+        Set<Statement> removedStatements = new HashSet<Statement>();
+        RepositoryResult<Statement> result = previousRepCon.getStatements(null, null, null, false);
+        try {
+            while (result.hasNext()) {
+                removedStatements.add(result.next());
+            }
+        }
+        finally {
+            result.close();
+        }
+
+        Set<Statement> addedStatements = new HashSet<Statement>();
+        result = currentRepCon.getStatements(null, null, null, false);
+        try {
+            while (result.hasNext()) {
+                Statement statement = result.next();
+                if (!removedStatements.remove(statement)) {
+                    addedStatements.add(statement);
+                }
+            }
+        }
+        finally {
+            result.close();
+        }
+
+        return new VocabularyDelta(addedStatements, removedStatements);
+    }
+
+    /**
+     * Statements about properties or classes (e.g., rdfs:subPropertyOf) can change the inferred statements of
+     * resources that are not touched by the delta.
+     */
+    private boolean isSchemaStatement(Statement statement) {
+        String predicate = statement.getPredicate().stringValue();
+        if (predicate.startsWith(RDFS_NAMESPACE) || predicate.startsWith(OWL_NAMESPACE)) {
+            return true;
+        }
+
+        Value object = statement.getObject();
+        return predicate.equals(RDF_TYPE) && object instanceof URI && (
+            object.stringValue().startsWith(RDF_NAMESPACE) ||
+            object.stringValue().startsWith(RDFS_NAMESPACE) ||
+            object.stringValue().startsWith(OWL_NAMESPACE));
+    }
+
+    public Set<Statement> getAddedStatements() {
+        return addedStatements;
+    }
+
+    public Set<Statement> getRemovedStatements() {
+        return removedStatements;
+    }
+
+    /**
+     * @return the subjects and objects of all added or removed statements
+     */
+    public Set<Resource> getTouchedResources() {
+        return Collections.unmodifiableSet(touchedResources);
+    }
+
+    public boolean isTouched(Value value) {
+        return touchedResources.contains(value);
+    }
+
+    /**
+     * @return true if at least one of the passed values is touched by this delta
+     */
+    public boolean isAnyTouched(Collection<? extends Value> values) {
+        for (Value value : values) {
+            if (touchedResources.contains(value)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the delta contains statements that define properties or classes, such as rdfs:subPropertyOf
+     * statements. Results can then not be updated incrementally.
+     */
+    public boolean isSchemaChange() {
+        return schemaChange;
+    }
+
+    public boolean isEmpty() {
+        return addedStatements.isEmpty() && removedStatements.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "VocabularyDelta{" +
+            "added=" + addedStatements.size() +
+            ", removed=" + removedStatements.size() +
+            ", touchedResources=" + touchedResources.size() +
+            ", schemaChange=" + schemaChange +
+            '}';
+    }
+
+}
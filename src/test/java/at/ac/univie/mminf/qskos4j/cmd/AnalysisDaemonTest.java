@@ -0,0 +1,140 @@
+package at.ac.univie.mminf.qskos4j.cmd;
+
+import at.ac.univie.mminf.qskos4j.BatchEvaluation;
+import at.ac.univie.mminf.qskos4j.QSkos;
+import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.Repository;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+
+public class AnalysisDaemonTest {
+
+    private AnalysisDaemon daemon;
+
+    @Before
+    public void setUp() throws IOException {
+        daemon = new AnalysisDaemon(new BatchEvaluation.Setup() {
+            @Override
+            public Repository createRepository(File vocabFile) throws OpenRDFException {
+                return new RepositoryBuilder().setUpFromFile(vocabFile, null, RDFFormat.RDFXML);
+            }
+
+            @Override
+            public Collection<Issue> configure(QSkos qskos) throws OpenRDFException {
+                return Arrays.<Issue>asList(qskos.getOrphanConcepts());
+            }
+        }, new File(System.getProperty("java.io.tmpdir"), "qskos-daemon-test"));
+        daemon.start(0, 2);
+    }
+
+    @After
+    public void tearDown() {
+        daemon.stop();
+    }
+
+    @Test
+    public void testRegisterLocalFile() throws IOException {
+        HttpURLConnection register = request("PUT", "/vocabularies/components.rdf?file=" +getTestFile("components.rdf"));
+        Assert.assertEquals(200, register.getResponseCode());
+
+        Assert.assertEquals("components.rdf\n", read(request("GET", "/vocabularies")));
+
+        String report = read(request("GET", "/vocabularies/components.rdf/report"));
+        Assert.assertTrue(report.contains("--- Orphan Concepts"));
+
+        // results are kept, the second report is identical
+        Assert.assertEquals(report, read(request("GET", "/vocabularies/components.rdf/report")));
+    }
+
+    @Test
+    public void testUploadNewVersion() throws IOException {
+        upload("vocab.rdf", getTestFile("components.rdf"));
+        String componentsReport = read(request("GET", "/vocabularies/vocab.rdf/report?issues=dcc"));
+
+        upload("vocab.rdf", getTestFile("concepts.rdf"));
+        String conceptsReport = read(request("GET", "/vocabularies/vocab.rdf/report?issues=dcc"));
+
+        Assert.assertFalse(componentsReport.equals(conceptsReport));
+    }
+
+    @Test
+    public void testUnknownVocabularyAndIssue() throws IOException, OpenRDFException {
+        Assert.assertEquals(404, request("GET", "/vocabularies/unknown.rdf/report").getResponseCode());
+
+        daemon.register("components.rdf", getTestFile("components.rdf"));
+        Assert.assertEquals(400, request("GET", "/vocabularies/components.rdf/report?issues=bla").getResponseCode());
+
+        Assert.assertEquals(200, request("DELETE", "/vocabularies/components.rdf").getResponseCode());
+        Assert.assertEquals(404, request("GET", "/vocabularies/components.rdf/report").getResponseCode());
+    }
+
+    @Test
+    public void testPathsOutsideContextAreRejected() throws IOException, OpenRDFException {
+        daemon.register("components.rdf", getTestFile("components.rdf"));
+
+        Assert.assertEquals(404, request("GET", "/vocabulariesX/components.rdf/report").getResponseCode());
+        Assert.assertEquals(404, request("DELETE", "/vocabulariesXcomponents.rdf").getResponseCode());
+        Assert.assertEquals(200, request("GET", "/vocabularies/components.rdf/report").getResponseCode());
+    }
+
+    private void upload(String name, File vocabFile) throws IOException {
+        HttpURLConnection connection = request("PUT", "/vocabularies/" +name);
+        connection.setDoOutput(true);
+
+        OutputStream out = connection.getOutputStream();
+        InputStream in = new FileInputStream(vocabFile);
+        try {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        }
+        finally {
+            in.close();
+            out.close();
+        }
+
+        Assert.assertEquals(200, connection.getResponseCode());
+    }
+
+    private HttpURLConnection request(String method, String path) throws IOException {
+        HttpURLConnection connection =
+            (HttpURLConnection) new URL("http://localhost:" +daemon.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        return connection;
+    }
+
+    private String read(HttpURLConnection connection) throws IOException {
+        Assert.assertEquals(200, connection.getResponseCode());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+        try {
+            StringBuilder content = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                content.append(line).append("\n");
+            }
+            return content.toString();
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private File getTestFile(String fileName) {
+        return new File(RepositoryBuilder.class.getResource("/" +fileName).getFile());
+    }
+
+}
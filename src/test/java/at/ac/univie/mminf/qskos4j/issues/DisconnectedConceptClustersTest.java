@@ -11,6 +11,7 @@ import org.openrdf.model.Value;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -39,6 +40,20 @@ public class DisconnectedConceptClustersTest {
         Assert.assertTrue(getVertexCount(components) <= conceptCount);
     }
 
+    @Test
+    public void testComponentCountWithParallelism() throws OpenRDFException {
+        Collection<Set<Value>> expectedComponents = disconnectedConceptClusters.getResult();
+
+        DisconnectedConceptClusters parallelClusters = new DisconnectedConceptClusters(new InvolvedConcepts());
+        parallelClusters.setRepositoryConnection(new RepositoryBuilder().setUpFromTestResource("components.rdf").getConnection());
+        parallelClusters.setParallelism(4);
+        parallelClusters.setMinEdgesPerPartition(1);
+        Collection<Set<Value>> components = parallelClusters.getResult();
+
+        Assert.assertEquals(7, components.size());
+        Assert.assertEquals(new HashSet<Set<Value>>(expectedComponents), new HashSet<Set<Value>>(components));
+    }
+
     private long getVertexCount(Collection<Set<Value>> components) {
         long ret = 0;
 
@@ -1,13 +1,21 @@
 package at.ac.univie.mminf.qskos4j.issues;
 
 import at.ac.univie.mminf.qskos4j.issues.cycles.HierarchicalCycles;
+import at.ac.univie.mminf.qskos4j.report.Report;
 import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
 import junit.framework.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openrdf.OpenRDFException;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.URIImpl;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
 
 /**
  * Created by christian
@@ -37,4 +45,23 @@ public class HierarchicalCyclesTest {
         Assert.assertEquals(3, hierarchicalCyclesForComponents.getResult().size());
     }
 
+    @Test
+    public void testSelfLoop() throws OpenRDFException, IOException {
+        HierarchicalCycles hierarchicalCyclesForSelfLoop = new HierarchicalCycles(new HierarchyGraphBuilder());
+        hierarchicalCyclesForSelfLoop.setRepositoryConnection(
+            new RepositoryBuilder().setUpFromTestResource("selfLoop.rdf").getConnection());
+
+        Collection<Set<Value>> cycles = hierarchicalCyclesForSelfLoop.getResult();
+        Assert.assertEquals(1, cycles.size());
+        Assert.assertEquals(
+            Collections.singleton(new URIImpl("http://myvocab.org/conceptA")),
+            cycles.iterator().next());
+
+        StringWriter dotReport = new StringWriter();
+        BufferedWriter writer = new BufferedWriter(dotReport);
+        hierarchicalCyclesForSelfLoop.getReport().generateReport(writer, Report.ReportFormat.DOT);
+        writer.flush();
+        Assert.assertTrue(dotReport.toString().contains("http://myvocab.org/conceptA"));
+    }
+
 }
@@ -0,0 +1,51 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.util.graph.HierarchyGraph;
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.repository.RepositoryConnection;
+
+public class HierarchyGraphBuilderTest {
+
+    private HierarchyGraphBuilder hierarchyGraphBuilder;
+    private RepositoryConnection repCon;
+
+    @Before
+    public void setUp() throws OpenRDFException {
+        repCon = new RepositoryBuilder().setUpFromTestResource("components.rdf").getConnection();
+        hierarchyGraphBuilder = new HierarchyGraphBuilder();
+        hierarchyGraphBuilder.setRepositoryConnection(repCon);
+    }
+
+    @Test
+    public void testGraphCreatedOnce() throws OpenRDFException {
+        HierarchyGraph graph = hierarchyGraphBuilder.getGraph();
+        int edgeCount = graph.getBroaderEdges().getEdgeCount();
+
+        Assert.assertSame(graph, hierarchyGraphBuilder.getGraph());
+        Assert.assertEquals(edgeCount, hierarchyGraphBuilder.getGraph().getBroaderEdges().getEdgeCount());
+
+        hierarchyGraphBuilder.setRepositoryConnection(repCon);
+        Assert.assertNotSame(graph, hierarchyGraphBuilder.getGraph());
+        Assert.assertEquals(edgeCount, hierarchyGraphBuilder.getGraph().getBroaderEdges().getEdgeCount());
+    }
+
+    @Test
+    public void testBroaderAndNarrowerEdges() throws OpenRDFException {
+        HierarchyGraph graph = hierarchyGraphBuilder.getGraph();
+
+        int conceptB = graph.getId(new URIImpl("http://zbw.eu/stw/conceptB"));
+        int conceptD = graph.getId(new URIImpl("http://zbw.eu/stw/conceptD"));
+        int conceptE = graph.getId(new URIImpl("http://zbw.eu/stw/conceptE"));
+
+        Assert.assertTrue(graph.getBroaderEdges().hasEdge(conceptB, conceptD));
+        Assert.assertTrue(graph.getBroaderEdges().hasEdge(conceptE, conceptD));
+        Assert.assertTrue(graph.isReachable(conceptB, conceptD));
+        Assert.assertFalse(graph.isReachable(conceptD, conceptB));
+    }
+
+}
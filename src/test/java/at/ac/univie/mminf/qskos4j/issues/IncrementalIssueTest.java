@@ -0,0 +1,176 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.QSkos;
+import at.ac.univie.mminf.qskos4j.issues.clusters.DisconnectedConceptClusters;
+import at.ac.univie.mminf.qskos4j.issues.concepts.InvolvedConcepts;
+import at.ac.univie.mminf.qskos4j.issues.labels.OverlappingLabels;
+import at.ac.univie.mminf.qskos4j.issues.labels.util.LabelConflict;
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import at.ac.univie.mminf.qskos4j.util.vocab.SparqlPrefix;
+import at.ac.univie.mminf.qskos4j.util.vocab.VocabularyDelta;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.repository.RepositoryConnection;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IncrementalIssueTest {
+
+    private final static String BASE_URI = "http://zbw.eu/stw/";
+
+    private RepositoryConnection previousRepCon, currentRepCon;
+
+    @Before
+    public void setUp() throws OpenRDFException {
+        previousRepCon = new RepositoryBuilder().setUpFromTestResource("components.rdf").getConnection();
+        currentRepCon = new RepositoryBuilder().setUpFromTestResource("components.rdf").getConnection();
+
+        currentRepCon.remove(concept("conceptB"), skosTerm("broader"), concept("conceptE"));
+        currentRepCon.remove(concept("conceptB"), skosTerm("broader"), concept("conceptD"));
+        currentRepCon.add(concept("conceptA"), skosTerm("related"), concept("conceptF"));
+        currentRepCon.remove(concept("conceptD"), skosTerm("prefLabel"), new LiteralImpl("concept D", "en"));
+        currentRepCon.add(concept("conceptJ"), skosTerm("prefLabel"), new LiteralImpl("concept A", "en"));
+    }
+
+    @Test
+    public void testDelta() throws OpenRDFException {
+        VocabularyDelta delta = VocabularyDelta.compute(previousRepCon, currentRepCon);
+
+        Assert.assertEquals(2, delta.getAddedStatements().size());
+        Assert.assertEquals(3, delta.getRemovedStatements().size());
+        Assert.assertTrue(delta.isTouched(concept("conceptE")));
+        Assert.assertFalse(delta.isTouched(concept("conceptG")));
+        Assert.assertFalse(delta.isSchemaChange());
+    }
+
+    @Test
+    public void testIncrementalResultsEqualFullResults() throws OpenRDFException {
+        QSkos incrementalQSkos = new QSkos();
+        incrementalQSkos.setRepositoryConnection(previousRepCon);
+        incrementalQSkos.getOverlappingLabels().getResult();
+        incrementalQSkos.getDisconnectedConceptClusters().getResult();
+        incrementalQSkos.updateRepositoryConnection(currentRepCon);
+
+        QSkos fullQSkos = new QSkos();
+        fullQSkos.setRepositoryConnection(currentRepCon);
+
+        Assert.assertEquals(
+            getConflictingResources(fullQSkos.getOverlappingLabels().getResult()),
+            getConflictingResources(incrementalQSkos.getOverlappingLabels().getResult()));
+        Assert.assertEquals(
+            new HashSet<Set<Value>>(fullQSkos.getDisconnectedConceptClusters().getResult()),
+            new HashSet<Set<Value>>(incrementalQSkos.getDisconnectedConceptClusters().getResult()));
+    }
+
+    @Test
+    public void testResultsAreUpdatedWithoutFullComputation() throws OpenRDFException {
+        final AtomicInteger clusterComputations = new AtomicInteger();
+        DisconnectedConceptClusters disconnectedConceptClusters = new DisconnectedConceptClusters(new InvolvedConcepts()) {
+            @Override
+            protected Collection<Set<Value>> computeResult() throws OpenRDFException {
+                clusterComputations.incrementAndGet();
+                return super.computeResult();
+            }
+        };
+        final AtomicInteger labelComputations = new AtomicInteger();
+        OverlappingLabels overlappingLabels = new OverlappingLabels(new InvolvedConcepts()) {
+            @Override
+            protected Set<LabelConflict> computeResult() throws OpenRDFException {
+                labelComputations.incrementAndGet();
+                return super.computeResult();
+            }
+        };
+
+        disconnectedConceptClusters.setRepositoryConnection(previousRepCon);
+        overlappingLabels.setRepositoryConnection(previousRepCon);
+        Collection<Set<Value>> previousClusters = disconnectedConceptClusters.getResult();
+        overlappingLabels.getResult();
+
+        VocabularyDelta delta = VocabularyDelta.compute(previousRepCon, currentRepCon);
+        disconnectedConceptClusters.setRepositoryConnection(currentRepCon, delta);
+        overlappingLabels.setRepositoryConnection(currentRepCon, delta);
+        Collection<Set<Value>> updatedClusters = disconnectedConceptClusters.getResult();
+        overlappingLabels.getResult();
+
+        Assert.assertEquals(1, clusterComputations.get());
+        Assert.assertEquals(1, labelComputations.get());
+
+        // clusters without touched concepts are taken over as they are
+        int unchangedClusterCount = 0;
+        for (Set<Value> previousCluster : previousClusters) {
+            if (delta.isAnyTouched(previousCluster)) continue;
+
+            unchangedClusterCount++;
+            Assert.assertTrue(containsInstance(updatedClusters, previousCluster));
+        }
+        Assert.assertTrue(unchangedClusterCount > 0);
+    }
+
+        @Test
+    public void testNonIncrementalIssuesUseUpdatedVocabulary() throws OpenRDFException {
+        currentRepCon.add(concept("conceptC"), skosTerm("broader"), concept("conceptA"));
+        currentRepCon.add(concept("conceptC"), skosTerm("prefLabel"), new LiteralImpl("concept C", "en"));
+        currentRepCon.add(concept("conceptC"), skosTerm("altLabel"), new LiteralImpl("concept C", "en"));
+
+        QSkos updatedQSkos = new QSkos();
+        updatedQSkos.setRepositoryConnection(previousRepCon);
+        Set<Set<Value>> previousCycles = new HashSet<Set<Value>>(updatedQSkos.getHierarchicalCycles().getResult());
+        Set<Literal> previousViolations = new HashSet<Literal>(updatedQSkos.getDisjointLabelsViolations().getResult().keySet());
+        updatedQSkos.updateRepositoryConnection(currentRepCon);
+
+        QSkos fullQSkos = new QSkos();
+        fullQSkos.setRepositoryConnection(currentRepCon);
+
+        Set<Set<Value>> updatedCycles = new HashSet<Set<Value>>(updatedQSkos.getHierarchicalCycles().getResult());
+        Assert.assertFalse(previousCycles.equals(updatedCycles));
+        Assert.assertEquals(new HashSet<Set<Value>>(fullQSkos.getHierarchicalCycles().getResult()), updatedCycles);
+
+        Set<Literal> updatedViolations = new HashSet<Literal>(updatedQSkos.getDisjointLabelsViolations().getResult().keySet());
+        Assert.assertFalse(previousViolations.equals(updatedViolations));
+        Assert.assertEquals(fullQSkos.getDisjointLabelsViolations().getResult().keySet(), updatedViolations);
+    }
+
+    @Test
+    public void testSchemaChange() throws OpenRDFException {
+        currentRepCon.add(
+            new URIImpl("http://localhost/myonto#myBroader"),
+            new URIImpl(SparqlPrefix.RDFS.getNameSpace() + "subPropertyOf"),
+            skosTerm("broader"));
+
+        Assert.assertTrue(VocabularyDelta.compute(previousRepCon, currentRepCon).isSchemaChange());
+    }
+
+    private Set<Set<Value>> getConflictingResources(Collection<LabelConflict> labelConflicts) {
+        Set<Set<Value>> conflictingResources = new HashSet<Set<Value>>();
+        for (LabelConflict labelConflict : labelConflicts) {
+            conflictingResources.add(labelConflict.getAffectedResources());
+        }
+        return conflictingResources;
+    }
+
+    private boolean containsInstance(Collection<Set<Value>> clusters, Set<Value> cluster) {
+        for (Set<Value> otherCluster : clusters) {
+            if (otherCluster == cluster) return true;
+        }
+        return false;
+    }
+
+    private URI concept(String localName) {
+        return new URIImpl(BASE_URI + localName);
+    }
+
+    private URI skosTerm(String localName) {
+        return new URIImpl(SparqlPrefix.SKOS.getNameSpace() + localName);
+    }
+
+}
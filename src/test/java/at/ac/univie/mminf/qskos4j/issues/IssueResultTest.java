@@ -0,0 +1,163 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.report.NumberReport;
+import at.ac.univie.mminf.qskos4j.report.Report;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.query.QueryEvaluationException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IssueResultTest {
+
+    @Test
+    public void testConcurrentCallersComputeOnce() throws Exception {
+        final CountingIssue issue = new CountingIssue(0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        Collection<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 32; i++) {
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return issue.getResult();
+                }
+            }));
+        }
+
+        for (Future<Integer> result : results) {
+            Assert.assertEquals(1, result.get().intValue());
+        }
+        Assert.assertEquals(1, issue.getComputationCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFailedComputationIsRetried() throws OpenRDFException {
+        CountingIssue issue = new CountingIssue(1);
+
+        try {
+            issue.getResult();
+            Assert.fail();
+        }
+        catch (OpenRDFException e) {
+            // expected
+        }
+
+        Assert.assertEquals(2, issue.getResult().intValue());
+        Assert.assertEquals(2, issue.getResult().intValue());
+    }
+
+    @Test
+    public void testAsyncResult() throws Exception {
+        CountingIssue issue = new CountingIssue(0);
+
+        Future<Integer> asyncResult = issue.getResultAsync();
+        Assert.assertEquals(1, asyncResult.get(10, TimeUnit.SECONDS).intValue());
+        Assert.assertEquals(1, issue.getResult().intValue());
+        Assert.assertEquals(1, issue.getComputationCount());
+    }
+
+    @Test
+    public void testRejectedComputationIsRetried() throws Exception {
+        CountingIssue issue = new CountingIssue(0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        try {
+            issue.getResultAsync(executor);
+            Assert.fail();
+        }
+        catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        Assert.assertEquals(1, issue.getResult().intValue());
+    }
+
+    @Test
+    public void testResetCancelsComputation() throws Exception {
+        BlockingIssue issue = new BlockingIssue();
+
+        Future<Integer> asyncResult = issue.getResultAsync();
+        Assert.assertTrue(issue.started.await(10, TimeUnit.SECONDS));
+        issue.setRepositoryConnection(null);
+
+        Assert.assertTrue(asyncResult.isCancelled());
+        Assert.assertTrue(issue.interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    private static class CountingIssue extends Issue<Integer> {
+
+        private final AtomicInteger computationCount = new AtomicInteger();
+        private final int failures;
+
+        CountingIssue(int failures) {
+            super("count", "Counting Issue", "Counts its computations", IssueType.STATISTICAL);
+            this.failures = failures;
+        }
+
+        @Override
+        protected Integer computeResult() throws OpenRDFException {
+            int count = computationCount.incrementAndGet();
+            try {
+                Thread.sleep(20);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (count <= failures) {
+                throw new QueryEvaluationException("computation failed");
+            }
+            return count;
+        }
+
+        @Override
+        protected Report generateReport(Integer preparedData) {
+            return new NumberReport<Integer>(preparedData);
+        }
+
+        int getComputationCount() {
+            return computationCount.get();
+        }
+    }
+
+    private static class BlockingIssue extends Issue<Integer> {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        BlockingIssue() {
+            super("block", "Blocking Issue", "Blocks until interrupted", IssueType.STATISTICAL);
+        }
+
+        @Override
+        protected Integer computeResult() throws OpenRDFException {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return 0;
+        }
+
+        @Override
+        protected Report generateReport(Integer preparedData) {
+            return new NumberReport<Integer>(preparedData);
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.QSkos;
+import at.ac.univie.mminf.qskos4j.report.NumberReport;
+import at.ac.univie.mminf.qskos4j.report.Report;
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.query.QueryEvaluationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IssueSchedulerTest {
+
+    @Test
+    public void testDependenciesEvaluatedFirst() throws Exception {
+        List<String> evaluationOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        RecordingIssue base = new RecordingIssue(null, "base", evaluationOrder, null);
+        RecordingIssue dependent1 = new RecordingIssue(base, "dep1", evaluationOrder, null);
+        RecordingIssue dependent2 = new RecordingIssue(base, "dep2", evaluationOrder, null);
+
+        Map<Issue, Future<?>> futures = new IssueScheduler(4).schedule(Arrays.<Issue>asList(dependent1, dependent2));
+        waitForAll(futures.values());
+
+        Assert.assertEquals(2, futures.size());
+        Assert.assertEquals(3, evaluationOrder.size());
+        Assert.assertEquals("base", evaluationOrder.get(0));
+        Assert.assertEquals(1, base.getEvaluationCount());
+    }
+
+    @Test
+    public void testSharedHelpersNotUsedConcurrently() throws Exception {
+        Object sharedHelper = new Object();
+        AtomicInteger concurrentUsers = new AtomicInteger();
+        List<String> evaluationOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        Collection<Issue> issues = new ArrayList<Issue>();
+        for (int i = 0; i < 8; i++) {
+            issues.add(new RecordingIssue(null, "issue" +i, evaluationOrder, sharedHelper, concurrentUsers));
+        }
+
+        waitForAll(new IssueScheduler(8).schedule(issues).values());
+
+        Assert.assertEquals(8, evaluationOrder.size());
+        for (Issue issue : issues) {
+            Assert.assertFalse(((RecordingIssue) issue).hadConcurrentUser());
+        }
+    }
+
+    @Test
+    public void testResultsMatchSequentialEvaluation() throws OpenRDFException, IOException, InterruptedException {
+        QSkos qskos = new QSkos();
+        qskos.setRepositoryConnection(new RepositoryBuilder().setUpFromTestResource("components.rdf").getConnection());
+        qskos.setParallelism(4);
+
+        Collection<Issue> issues = qskos.getIssues("c,dcc,oc,chr,rc");
+        waitForAll(qskos.evaluate(issues).values());
+
+        Assert.assertEquals(7, qskos.getDisconnectedConceptClusters().getResult().size());
+        Assert.assertEquals(3, qskos.getHierarchicalCycles().getResult().size());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testFailurePropagated() throws Exception {
+        Issue failingIssue = new RecordingIssue(null, "failing", new ArrayList<String>(), null) {
+            @Override
+            protected Integer computeResult() throws OpenRDFException {
+                throw new QueryEvaluationException("failure");
+            }
+        };
+
+        new IssueScheduler(2).schedule(Collections.singleton(failingIssue)).get(failingIssue).get();
+    }
+
+    private void waitForAll(Collection<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            }
+            catch (ExecutionException e) {
+                Assert.fail(e.getCause().getMessage());
+            }
+        }
+    }
+
+    private static class RecordingIssue extends Issue<Integer> {
+
+        private final List<String> evaluationOrder;
+        private final Object sharedHelper;
+        private final AtomicInteger concurrentUsers;
+        private final AtomicInteger evaluationCount = new AtomicInteger();
+        private volatile boolean concurrentUser = false;
+
+        RecordingIssue(Issue dependentIssue, String id, List<String> evaluationOrder, Object sharedHelper) {
+            this(dependentIssue, id, evaluationOrder, sharedHelper, new AtomicInteger());
+        }
+
+        RecordingIssue(
+            Issue dependentIssue,
+            String id,
+            List<String> evaluationOrder,
+            Object sharedHelper,
+            AtomicInteger concurrentUsers)
+        {
+            super(dependentIssue, id, id, id, IssueType.STATISTICAL);
+            this.evaluationOrder = evaluationOrder;
+            this.sharedHelper = sharedHelper;
+            this.concurrentUsers = concurrentUsers;
+        }
+
+        @Override
+        protected Integer computeResult() throws OpenRDFException {
+            if (concurrentUsers.incrementAndGet() > 1) {
+                concurrentUser = true;
+            }
+
+            try {
+                Thread.sleep(20);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            evaluationOrder.add(getId());
+            concurrentUsers.decrementAndGet();
+            return evaluationCount.incrementAndGet();
+        }
+
+        @Override
+        protected Report generateReport(Integer preparedData) {
+            return new NumberReport<Integer>(preparedData);
+        }
+
+        @Override
+        public Collection<Object> getSharedHelpers() {
+            if (sharedHelper == null) {
+                return Collections.emptySet();
+            }
+            return Collections.singleton(sharedHelper);
+        }
+
+        int getEvaluationCount() {
+            return evaluationCount.get();
+        }
+
+        boolean hadConcurrentUser() {
+            return concurrentUser;
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.issues.concepts.AuthoritativeConcepts;
+import at.ac.univie.mminf.qskos4j.issues.concepts.InvolvedConcepts;
+import at.ac.univie.mminf.qskos4j.issues.inlinks.InLinkCache;
+import at.ac.univie.mminf.qskos4j.issues.inlinks.MissingInLinks;
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Value;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.resultio.sparqlxml.SPARQLResultsXMLWriter;
+import org.openrdf.repository.RepositoryConnection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds missing in-links using a SPARQL endpoint that is backed by the test vocabulary
+ */
+public class MissingInLinksEndpointTest {
+
+    private HttpServer server;
+    private RepositoryConnection endpointConnection;
+    private File cacheFile;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger failingRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws OpenRDFException, IOException {
+        endpointConnection = new RepositoryBuilder().setUpFromTestResource("rankConcepts.rdf").getConnection();
+
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/sparql", new EndpointHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        cacheFile = new File(System.getProperty("java.io.tmpdir"), "qskos-inlinks-" +System.nanoTime()+ ".cache");
+    }
+
+    @After
+    public void tearDown() throws OpenRDFException {
+        server.stop(0);
+        endpointConnection.close();
+        cacheFile.delete();
+    }
+
+    @Test
+    public void testConceptsAreQueriedInBatches() throws OpenRDFException {
+        Assert.assertEquals(2, findMissingInLinks("zbw.eu", 20, null).size());
+        Assert.assertEquals(1, requestCount.get());
+
+        requestCount.set(0);
+        Assert.assertEquals(2, findMissingInLinks("zbw.eu", 1, null).size());
+        Assert.assertEquals(2, requestCount.get());
+    }
+
+    @Test
+    public void testFailedQueriesAreRetried() throws OpenRDFException {
+        failingRequests.set(2);
+
+        Assert.assertEquals(1, findMissingInLinks("data.bnf.fr", 20, null).size());
+        Assert.assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    public void testConceptsOfFailedQueriesAreSkipped() throws OpenRDFException {
+        failingRequests.set(4);
+
+        Assert.assertTrue(findMissingInLinks("zbw.eu", 20, null).isEmpty());
+        Assert.assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    public void testCachedCountsAreNotQueriedAgain() throws OpenRDFException {
+        InLinkCache inLinkCache = new InLinkCache(cacheFile, InLinkCache.DEFAULT_TTL_MILLIS, 10);
+        Assert.assertTrue(findMissingInLinks("dbpedia.org", 20, inLinkCache).isEmpty());
+        Assert.assertEquals(1, requestCount.get());
+        Assert.assertTrue(cacheFile.isFile());
+
+        requestCount.set(0);
+        InLinkCache loadedInLinkCache = new InLinkCache(cacheFile, InLinkCache.DEFAULT_TTL_MILLIS, 10);
+        loadedInLinkCache.load();
+        Assert.assertTrue(findMissingInLinks("dbpedia.org", 20, loadedInLinkCache).isEmpty());
+        Assert.assertEquals(0, requestCount.get());
+    }
+
+    private Collection<Value> findMissingInLinks(String authResourceIdentifier, int batchSize, InLinkCache inLinkCache)
+        throws OpenRDFException
+    {
+        AuthoritativeConcepts authoritativeConcepts = new AuthoritativeConcepts(new InvolvedConcepts());
+        authoritativeConcepts.setAuthResourceIdentifier(authResourceIdentifier);
+
+        MissingInLinks missingInLinks = new MissingInLinks(authoritativeConcepts);
+        missingInLinks.setRepositoryConnection(endpointConnection);
+        missingInLinks.setBatchSize(batchSize);
+        missingInLinks.setInLinkCache(inLinkCache);
+        missingInLinks.addSparqlEndPoint(
+            "http://localhost:" +server.getAddress().getPort()+ "/sparql", 0, 2, 10);
+
+        return missingInLinks.getResult();
+    }
+
+    private class EndpointHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requestCount.incrementAndGet();
+
+            if (failingRequests.getAndDecrement() > 0) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+
+            String parameters = exchange.getRequestMethod().equals("POST") ?
+                readBody(exchange.getRequestBody()) :
+                exchange.getRequestURI().getRawQuery();
+
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "application/sparql-results+xml");
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                endpointConnection.prepareTupleQuery(QueryLanguage.SPARQL, getQuery(parameters))
+                    .evaluate(new SPARQLResultsXMLWriter(out));
+                out.close();
+            }
+            catch (OpenRDFException e) {
+                throw new IOException(e);
+            }
+            finally {
+                exchange.close();
+            }
+        }
+
+        private String readBody(InputStream in) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                body.write(buffer, 0, read);
+            }
+            return body.toString("UTF-8");
+        }
+
+        private String getQuery(String parameters) throws IOException {
+            for (String parameter : parameters.split("&")) {
+                if (parameter.startsWith("query=")) {
+                    return URLDecoder.decode(parameter.substring("query=".length()), "UTF-8");
+                }
+            }
+            throw new IOException("no query in request");
+        }
+    }
+
+}
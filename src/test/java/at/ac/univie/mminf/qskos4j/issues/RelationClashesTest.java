@@ -24,4 +24,15 @@ public class RelationClashesTest {
         Assert.assertEquals(10, relationClashes.getResult().size());
     }
 
+    @Test
+    public void testParallelClashDetection() throws OpenRDFException {
+        RelationClashes parallelRelationClashes = new RelationClashes(new HierarchyGraphBuilder());
+        parallelRelationClashes.setRepositoryConnection(
+            new RepositoryBuilder().setUpFromTestResource("relationClashes.rdf").getConnection());
+        parallelRelationClashes.setParallelism(4);
+        parallelRelationClashes.setMinPairsPerPartition(1);
+
+        Assert.assertEquals(relationClashes.getResult(), parallelRelationClashes.getResult());
+    }
+
 }
@@ -0,0 +1,82 @@
+package at.ac.univie.mminf.qskos4j.issues;
+
+import at.ac.univie.mminf.qskos4j.issues.count.SemanticRelations;
+import at.ac.univie.mminf.qskos4j.issues.outlinks.HttpURIs;
+import at.ac.univie.mminf.qskos4j.issues.outlinks.HttpUriSchemeViolations;
+import at.ac.univie.mminf.qskos4j.issues.skosintegrity.UndefinedSkosResources;
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class StatementScanIssueTest {
+
+    private SemanticRelations semanticRelations;
+    private HttpURIs httpURIs;
+    private HttpUriSchemeViolations httpUriSchemeViolations;
+    private UndefinedSkosResources undefinedSkosResources;
+
+    @Before
+    public void setUp() throws OpenRDFException, IOException {
+        RepositoryConnection repCon = new RepositoryBuilder().setUpFromTestResource("concepts.rdf").getConnection();
+
+        semanticRelations = new SemanticRelations();
+        httpURIs = new HttpURIs();
+        httpUriSchemeViolations = new HttpUriSchemeViolations();
+        undefinedSkosResources = new UndefinedSkosResources();
+
+        for (Issue issue : Arrays.<Issue>asList(semanticRelations, httpURIs, httpUriSchemeViolations, undefinedSkosResources)) {
+            issue.setRepositoryConnection(repCon);
+        }
+    }
+
+    @Test
+    public void testFusedScanResults() throws OpenRDFException {
+        StatementScanIssue.fuse(Arrays.<StatementScanIssue<?>>asList(
+            semanticRelations, httpURIs, httpUriSchemeViolations, undefinedSkosResources));
+
+        Assert.assertEquals(21, httpURIs.getResult().size());
+        Assert.assertEquals(1, httpUriSchemeViolations.getResult().size());
+        Assert.assertEquals(3, undefinedSkosResources.getResult().size());
+    }
+
+    @Test
+    public void testFusedEqualsSeparateScan() throws OpenRDFException, IOException {
+        long separateCount = semanticRelations.getResult();
+
+        SemanticRelations fusedSemanticRelations = new SemanticRelations();
+        HttpURIs fusedHttpURIs = new HttpURIs();
+        RepositoryConnection repCon = new RepositoryBuilder().setUpFromTestResource("concepts.rdf").getConnection();
+        fusedSemanticRelations.setRepositoryConnection(repCon);
+        fusedHttpURIs.setRepositoryConnection(repCon);
+        StatementScanIssue.fuse(Arrays.<StatementScanIssue<?>>asList(fusedSemanticRelations, fusedHttpURIs));
+
+        Assert.assertEquals(separateCount, fusedSemanticRelations.getResult().longValue());
+        Assert.assertEquals(httpURIs.getResult(), fusedHttpURIs.getResult());
+    }
+
+    @Test
+    public void testStreamingResults() throws OpenRDFException, IOException {
+        SemanticRelations streamedSemanticRelations = new SemanticRelations();
+        HttpUriSchemeViolations streamedHttpUriSchemeViolations = new HttpUriSchemeViolations();
+        UndefinedSkosResources streamedUndefinedSkosResources = new UndefinedSkosResources();
+
+        File vocabFile = new File(RepositoryBuilder.class.getResource("/concepts.rdf").getFile());
+        RepositoryBuilder.streamFile(vocabFile, null, RDFFormat.RDFXML, StatementScanIssue.createStreamingHandler(
+            Arrays.<StatementScanIssue<?>>asList(
+                streamedSemanticRelations, streamedHttpUriSchemeViolations, streamedUndefinedSkosResources)));
+
+        Assert.assertTrue(streamedSemanticRelations.hasResult());
+        Assert.assertEquals(semanticRelations.getResult(), streamedSemanticRelations.getResult());
+        Assert.assertEquals(httpUriSchemeViolations.getResult(), streamedHttpUriSchemeViolations.getResult());
+        Assert.assertEquals(undefinedSkosResources.getResult(), streamedUndefinedSkosResources.getResult());
+    }
+
+}
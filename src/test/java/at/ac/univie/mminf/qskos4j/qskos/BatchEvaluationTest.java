@@ -0,0 +1,71 @@
+package at.ac.univie.mminf.qskos4j.qskos;
+
+import at.ac.univie.mminf.qskos4j.BatchEvaluation;
+import at.ac.univie.mminf.qskos4j.QSkos;
+import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.Repository;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class BatchEvaluationTest {
+
+    private BatchEvaluation batchEvaluation;
+
+    @Before
+    public void setUp() {
+        batchEvaluation = new BatchEvaluation(new BatchEvaluation.Setup() {
+            @Override
+            public Repository createRepository(File vocabFile) throws OpenRDFException {
+                return new RepositoryBuilder().setUpFromFile(vocabFile, null, RDFFormat.RDFXML);
+            }
+
+            @Override
+            public Collection<Issue> configure(QSkos qskos) throws OpenRDFException {
+                return Arrays.<Issue>asList(qskos.getOrphanConcepts(), qskos.getDisconnectedConceptClusters());
+            }
+        }, 2);
+    }
+
+    @Test
+    public void testReportsInFileOrder() throws InterruptedException {
+        List<BatchEvaluation.VocabularyReport> reports = batchEvaluation.evaluate(
+            Arrays.asList(getTestFile("components.rdf"), getTestFile("concepts.rdf"), getTestFile("components.rdf")));
+
+        Assert.assertEquals(3, reports.size());
+        Assert.assertEquals(getTestFile("concepts.rdf"), reports.get(1).getVocabFile());
+        for (BatchEvaluation.VocabularyReport report : reports) {
+            Assert.assertNull(report.getError());
+            Assert.assertEquals(2, report.getIssueReports().size());
+        }
+
+        // same vocabulary, separate issue instances
+        Assert.assertEquals(
+            reports.get(0).getIssueReports().get(1).getShortReport(),
+            reports.get(2).getIssueReports().get(1).getShortReport());
+    }
+
+    @Test
+    public void testFailedVocabulary() throws InterruptedException {
+        List<BatchEvaluation.VocabularyReport> reports = batchEvaluation.evaluate(
+            Arrays.asList(getTestFile("malformed.rdf"), getTestFile("concepts.rdf")));
+
+        Assert.assertNotNull(reports.get(0).getError());
+        Assert.assertTrue(reports.get(0).getIssueReports().isEmpty());
+        Assert.assertNull(reports.get(1).getError());
+        Assert.assertEquals(2, reports.get(1).getIssueReports().size());
+    }
+
+    private File getTestFile(String fileName) {
+        return new File(RepositoryBuilder.class.getResource("/" +fileName).getFile());
+    }
+
+}
@@ -0,0 +1,40 @@
+package at.ac.univie.mminf.qskos4j.util.graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntUnionFindTest {
+
+    @Test
+    public void testUnion() {
+        IntUnionFind sets = new IntUnionFind(4);
+        Assert.assertTrue(sets.union(0, 1));
+        Assert.assertFalse(sets.union(1, 0));
+
+        Assert.assertEquals(sets.find(0), sets.find(1));
+        Assert.assertFalse(sets.find(0) == sets.find(2));
+        Assert.assertEquals(3, sets.find(3));
+    }
+
+    @Test
+    public void testUnionOfForests() {
+        IntUnionFind sets = new IntUnionFind(6);
+        sets.union(0, 1);
+        sets.union(2, 3);
+
+        // joins {0, 1} and {2, 3} of the first forest
+        IntUnionFind otherSets = new IntUnionFind(6);
+        otherSets.union(1, 2);
+        otherSets.union(4, 5);
+
+        sets.union(otherSets);
+
+        Assert.assertEquals(sets.find(0), sets.find(3));
+        Assert.assertEquals(sets.find(4), sets.find(5));
+        Assert.assertFalse(sets.find(0) == sets.find(4));
+
+        // the merged forest is not changed
+        Assert.assertFalse(otherSets.find(0) == otherSets.find(1));
+    }
+
+}
@@ -0,0 +1,96 @@
+package at.ac.univie.mminf.qskos4j.util.graph;
+
+import at.ac.univie.mminf.qskos4j.util.index.IntAdjacency;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+public class ReachabilityIndexTest {
+
+    @Test
+    public void testComponents() {
+        IntAdjacency graph = createGraph(5, new int[][] {{0, 1}, {1, 2}, {2, 0}, {2, 3}, {4, 4}});
+        StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+
+        Assert.assertEquals(3, components.getComponentCount());
+        Assert.assertEquals(components.getComponent(0), components.getComponent(2));
+        Assert.assertEquals(3, components.getComponentSize(components.getComponent(1)));
+        Assert.assertTrue(components.getComponent(3) < components.getComponent(0));
+    }
+
+    @Test
+    public void testDeepHierarchy() {
+        int depth = 200000;
+        IntAdjacency.Builder builder = new IntAdjacency.Builder();
+        for (int vertex = 0; vertex < depth - 1; vertex++) {
+            builder.addEdge(vertex, vertex + 1);
+        }
+        builder.addEdge(depth - 1, depth - 10);
+        IntAdjacency graph = builder.build(depth);
+
+        StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+        Assert.assertEquals(depth - 9, components.getComponentCount());
+        Assert.assertEquals(10, components.getComponentSize(components.getComponent(depth - 1)));
+
+        ReachabilityIndex reachabilityIndex = new ReachabilityIndex(graph, components, 2);
+        Assert.assertTrue(reachabilityIndex.isReachable(0, depth - 1));
+        Assert.assertFalse(reachabilityIndex.isReachable(depth - 1, 0));
+    }
+
+    @Test
+    public void testMatchesGraphSearch() {
+        Random random = new Random(42);
+
+        for (int run = 0; run < 20; run++) {
+            int vertexCount = 50 + random.nextInt(150);
+            IntAdjacency.Builder builder = new IntAdjacency.Builder();
+            for (int edge = 0; edge < vertexCount * (1 + run % 3); edge++) {
+                int source = random.nextInt(vertexCount);
+                // mostly acyclic, like a concept hierarchy
+                int target = run % 2 == 0 || random.nextInt(20) == 0 ?
+                    random.nextInt(vertexCount) :
+                    random.nextInt(source + 1);
+                builder.addEdge(source, target);
+            }
+            IntAdjacency graph = builder.build(vertexCount);
+            ReachabilityIndex reachabilityIndex = new ReachabilityIndex(graph);
+
+            for (int source = 0; source < vertexCount; source++) {
+                BitSet reachable = findReachable(graph, source);
+                for (int target = 0; target < vertexCount; target++) {
+                    Assert.assertEquals(reachable.get(target), reachabilityIndex.isReachable(source, target));
+                }
+            }
+        }
+    }
+
+    private IntAdjacency createGraph(int vertexCount, int[][] edges) {
+        IntAdjacency.Builder builder = new IntAdjacency.Builder();
+        for (int[] edge : edges) {
+            builder.addEdge(edge[0], edge[1]);
+        }
+        return builder.build(vertexCount);
+    }
+
+    private BitSet findReachable(IntAdjacency graph, int source) {
+        BitSet reachable = new BitSet();
+        reachable.set(source);
+
+        int[] stack = new int[graph.getVertexCount()];
+        int stackSize = 0;
+        stack[stackSize++] = source;
+        while (stackSize > 0) {
+            int vertex = stack[--stackSize];
+            for (int successor : graph.getTargets(vertex)) {
+                if (!reachable.get(successor)) {
+                    reachable.set(successor);
+                    stack[stackSize++] = successor;
+                }
+            }
+        }
+        return reachable;
+    }
+
+}
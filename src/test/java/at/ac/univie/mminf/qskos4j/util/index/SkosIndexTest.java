@@ -0,0 +1,91 @@
+package at.ac.univie.mminf.qskos4j.util.index;
+
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.repository.RepositoryConnection;
+
+public class SkosIndexTest {
+
+    private RepositoryConnection createConnection() throws OpenRDFException {
+        return new RepositoryBuilder().setUpFromTestResource("components.rdf").getConnection();
+    }
+
+    @Test
+    public void testIndexIsSharedPerRepository() throws OpenRDFException {
+        RepositoryConnection repCon = createConnection();
+        SkosIndex skosIndex = SkosIndex.getInstance(repCon);
+        Assert.assertSame(skosIndex, SkosIndex.getInstance(repCon));
+
+        SkosIndex.invalidate(repCon.getRepository());
+        Assert.assertNotSame(skosIndex, SkosIndex.getInstance(repCon));
+    }
+
+    @Test
+    public void testRelations() throws OpenRDFException {
+        SkosIndex skosIndex = SkosIndex.getInstance(createConnection());
+
+        int conceptA = skosIndex.getId(new URIImpl("http://zbw.eu/stw/conceptA"));
+        int conceptC = skosIndex.getId(new URIImpl("http://zbw.eu/stw/conceptC"));
+        Assert.assertTrue(skosIndex.isTypedConcept(conceptA));
+        Assert.assertTrue(skosIndex.getRelation(SkosIndex.Relation.BROADER).hasEdge(conceptA, conceptC));
+        Assert.assertFalse(skosIndex.getRelation(SkosIndex.Relation.BROADER).hasEdge(conceptC, conceptA));
+
+        int label = skosIndex.getId(new LiteralImpl("concept A", "en"));
+        Assert.assertTrue(skosIndex.getRelation(SkosIndex.Relation.PREF_LABEL).hasEdge(conceptA, label));
+        Assert.assertEquals(-1, skosIndex.getId(new URIImpl("http://zbw.eu/stw/unknown")));
+    }
+
+    @Test
+    public void testSemanticRelationsLabeledWithPredicate() throws OpenRDFException {
+        SkosIndex skosIndex = SkosIndex.getInstance(createConnection());
+        IntAdjacency semanticRelations = skosIndex.getRelation(SkosIndex.Relation.SEMANTIC);
+
+        Assert.assertTrue(semanticRelations.isLabeled());
+        for (int edgePosition = 0; edgePosition < semanticRelations.getEdgeCount(); edgePosition++) {
+            Value predicate = skosIndex.getValue(semanticRelations.getLabel(edgePosition));
+            Assert.assertTrue(predicate instanceof URI);
+        }
+    }
+
+    @Test
+    public void testValueDictionary() {
+        ValueDictionary dictionary = new ValueDictionary(1);
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, dictionary.encode(new URIImpl("http://example.org/" +i)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, dictionary.encode(new URIImpl("http://example.org/" +i)));
+            Assert.assertEquals(new URIImpl("http://example.org/" +i), dictionary.getValue(i));
+        }
+        Assert.assertEquals(1000, dictionary.size());
+        Assert.assertEquals(-1, dictionary.getId(new URIImpl("http://example.org/none")));
+    }
+
+    @Test
+    public void testAdjacency() {
+        IntAdjacency.Builder builder = new IntAdjacency.Builder();
+        builder.addEdge(2, 0);
+        builder.addEdge(0, 2);
+        builder.addEdge(0, 1);
+        builder.addEdge(0, 2);
+
+        IntAdjacency adjacency = builder.build(3);
+        Assert.assertEquals(3, adjacency.getEdgeCount());
+        Assert.assertArrayEquals(new int[] {1, 2}, adjacency.getTargets(0));
+        Assert.assertEquals(0, adjacency.getDegree(1));
+
+        IntAdjacency transposed = adjacency.transpose();
+        Assert.assertTrue(transposed.hasEdge(2, 0));
+        Assert.assertTrue(transposed.hasEdge(1, 0));
+        Assert.assertTrue(transposed.hasEdge(0, 2));
+        Assert.assertFalse(transposed.hasEdge(0, 1));
+    }
+
+}
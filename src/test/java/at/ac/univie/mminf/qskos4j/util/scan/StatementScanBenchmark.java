@@ -0,0 +1,78 @@
+package at.ac.univie.mminf.qskos4j.util.scan;
+
+import at.ac.univie.mminf.qskos4j.issues.StatementScanIssue;
+import at.ac.univie.mminf.qskos4j.issues.count.SemanticRelations;
+import at.ac.univie.mminf.qskos4j.issues.outlinks.HttpURIs;
+import at.ac.univie.mminf.qskos4j.issues.outlinks.HttpUriSchemeViolations;
+import at.ac.univie.mminf.qskos4j.issues.skosintegrity.UndefinedSkosResources;
+import at.ac.univie.mminf.qskos4j.util.vocab.RepositoryBuilder;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the time needed to compute all statement scan issues with one scan per issue and with a single fused
+ * scan. Not run as part of the test suite, invoke with an optional vocabulary file and number of runs:
+ *
+ * <pre>StatementScanBenchmark [vocabulary.rdf [runs]]</pre>
+ *
+ * If no file is given, the STW thesaurus from the test resources is used.
+ */
+public class StatementScanBenchmark {
+
+    public static void main(String[] args) throws OpenRDFException {
+        RepositoryBuilder repositoryBuilder = new RepositoryBuilder();
+        Repository repository = args.length > 0 ?
+            repositoryBuilder.setUpFromFile(new File(args[0]), null, null) :
+            repositoryBuilder.setUpFromTestResource("stw.rdf");
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        try {
+            for (int run = 1; run <= runs; run++) {
+                long unfusedMillis = evaluate(repository, false);
+                long fusedMillis = evaluate(repository, true);
+                System.out.println("run " +run+ ": unfused " +unfusedMillis+ " ms, fused " +fusedMillis+ " ms");
+            }
+        }
+        finally {
+            repository.shutDown();
+        }
+    }
+
+    private static long evaluate(Repository repository, boolean fuse) throws OpenRDFException {
+        List<StatementScanIssue<?>> issues = Arrays.<StatementScanIssue<?>>asList(
+            new SemanticRelations(),
+            new HttpURIs(),
+            new HttpUriSchemeViolations(),
+            new UndefinedSkosResources());
+
+        List<RepositoryConnection> connections = new ArrayList<RepositoryConnection>();
+        try {
+            for (StatementScanIssue<?> issue : issues) {
+                RepositoryConnection repCon = repository.getConnection();
+                connections.add(repCon);
+                issue.setRepositoryConnection(repCon);
+            }
+
+            long startTime = System.currentTimeMillis();
+            if (fuse) {
+                StatementScanIssue.fuse(issues);
+            }
+            for (StatementScanIssue<?> issue : issues) {
+                issue.getResult();
+            }
+            return System.currentTimeMillis() - startTime;
+        }
+        finally {
+            for (RepositoryConnection repCon : connections) {
+                repCon.close();
+            }
+        }
+    }
+
+}
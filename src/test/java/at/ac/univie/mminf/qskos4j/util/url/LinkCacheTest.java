@@ -0,0 +1,180 @@
+package at.ac.univie.mminf.qskos4j.util.url;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+public class LinkCacheTest {
+
+    private final static String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private File cacheFile;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/", new StubHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        cacheFile = new File(System.getProperty("java.io.tmpdir"), "qskos-links-" +System.nanoTime()+ ".cache");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        cacheFile.delete();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        LinkCache linkCache = new LinkCache(cacheFile, LinkCache.DEFAULT_TTL_MILLIS, 10);
+        linkCache.put(url("/a"), new LinkCache.Entry(200, "text/html", ETAG, null, 1000));
+        linkCache.put(url("/b"), new LinkCache.Entry(404, null, null, "Tue, 15 Nov 1994 12:45:26 GMT", 2000));
+        linkCache.save();
+
+        LinkCache loadedLinkCache = new LinkCache(cacheFile, LinkCache.DEFAULT_TTL_MILLIS, 10);
+        loadedLinkCache.load();
+        Assert.assertEquals(2, loadedLinkCache.size());
+
+        LinkCache.Entry entry = loadedLinkCache.get(url("/b"));
+        Assert.assertEquals(404, entry.getStatusCode());
+        Assert.assertNull(entry.getContentType());
+        Assert.assertNull(entry.getETag());
+        Assert.assertEquals("Tue, 15 Nov 1994 12:45:26 GMT", entry.getLastModified());
+        Assert.assertEquals(2000, entry.getCheckedMillis());
+        Assert.assertFalse(loadedLinkCache.isFresh(entry));
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        LinkCache linkCache = new LinkCache(cacheFile, LinkCache.DEFAULT_TTL_MILLIS, 2);
+        for (String path : new String[] {"/a", "/b", "/c"}) {
+            linkCache.put(url(path), new LinkCache.Entry(200, "text/html", null, null, 1000));
+        }
+        linkCache.save();
+
+        LinkCache loadedLinkCache = new LinkCache(cacheFile, LinkCache.DEFAULT_TTL_MILLIS, 2);
+        loadedLinkCache.load();
+        Assert.assertEquals(2, loadedLinkCache.size());
+    }
+
+    @Test
+    public void testCorruptFileResultsInEmptyCache() throws IOException {
+        for (int corruptLength : new int[] {-5, Integer.MAX_VALUE}) {
+            LinkCache linkCache = new LinkCache(cacheFile, LinkCache.DEFAULT_TTL_MILLIS, 10);
+            linkCache.put(url("/a"), new LinkCache.Entry(200, "text/html", ETAG, null, 1000));
+            linkCache.save();
+
+            // the length of the first key follows the magic number, format version and entry count
+            RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+            try {
+                file.seek(12);
+                file.writeInt(corruptLength);
+            }
+            finally {
+                file.close();
+            }
+
+            LinkCache loadedLinkCache = new LinkCache(cacheFile, LinkCache.DEFAULT_TTL_MILLIS, 10);
+            loadedLinkCache.load();
+            Assert.assertEquals(0, loadedLinkCache.size());
+        }
+    }
+
+    @Test
+    public void testFreshResultsAreNotChecked() throws Exception {
+        LinkCache linkCache = new LinkCache(cacheFile, LinkCache.DEFAULT_TTL_MILLIS, 10);
+        linkCache.put(url("/ok"), new LinkCache.Entry(200, "text/html", ETAG, null, System.currentTimeMillis()));
+
+        Map<URL, String> availability = check(linkCache, url("/ok"), url("/missing"));
+
+        Assert.assertEquals("text/html", availability.get(url("/ok")));
+        Assert.assertNull(availability.get(url("/missing")));
+        Assert.assertFalse(requests.isEmpty());
+        for (String request : requests) {
+            Assert.assertTrue(request.contains("/missing"));
+        }
+        Assert.assertTrue(cacheFile.isFile());
+    }
+
+    @Test
+    public void testStaleResultsAreRevalidated() throws Exception {
+        LinkCache linkCache = new LinkCache(cacheFile, 0, 10);
+        linkCache.put(url("/ok"), new LinkCache.Entry(200, "text/html", ETAG, null, 0));
+
+        Map<URL, String> availability = check(linkCache, url("/ok"));
+
+        Assert.assertEquals("text/html", availability.get(url("/ok")));
+        Assert.assertEquals(Collections.singletonList("HEAD /ok " +ETAG), requests);
+        Assert.assertTrue(linkCache.get(url("/ok")).getCheckedMillis() > 0);
+    }
+
+    @Test
+    public void testTransientErrorsAreNotCached() throws Exception {
+        LinkCache linkCache = new LinkCache(cacheFile, LinkCache.DEFAULT_TTL_MILLIS, 10);
+
+        Map<URL, String> availability = check(linkCache, url("/unavailable"), url("/missing"));
+
+        Assert.assertNull(availability.get(url("/unavailable")));
+        Assert.assertNull(linkCache.get(url("/unavailable")));
+        Assert.assertEquals(404, linkCache.get(url("/missing")).getStatusCode());
+    }
+
+    private Map<URL, String> check(LinkCache linkCache, URL... urls) throws InterruptedException {
+        LinkChecker linkChecker = new LinkChecker(2, 0);
+        linkChecker.setLinkCache(linkCache);
+        List<URL> urlList = new ArrayList<URL>();
+        Collections.addAll(urlList, urls);
+        return linkChecker.check(urlList);
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://localhost:" +server.getAddress().getPort() + path);
+    }
+
+    private class StubHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            requests.add(exchange.getRequestMethod() + " " + path + (ifNoneMatch != null ? " " +ifNoneMatch : ""));
+
+            if (path.equals("/missing")) {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            else if (path.equals("/unavailable")) {
+                exchange.sendResponseHeaders(503, -1);
+            }
+            else if (ETAG.equals(ifNoneMatch)) {
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.sendResponseHeaders(304, -1);
+            }
+            else {
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.getResponseHeaders().set("Content-Type", "text/html");
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        }
+    }
+
+}
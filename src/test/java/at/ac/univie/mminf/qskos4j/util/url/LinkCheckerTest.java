@@ -0,0 +1,136 @@
+package at.ac.univie.mminf.qskos4j.util.url;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.Executors;
+
+/**
+ * Uses a local server that is reachable by two host names, "localhost" and "127.0.0.1"
+ */
+public class LinkCheckerTest {
+
+    private final static int HOST_DELAY_MILLIS = 300;
+    private final static int SLOW_RESPONSE_MILLIS = 1000;
+
+    private HttpServer server;
+    private final Map<String, List<Long>> requestTimesByHost = new HashMap<String, List<Long>>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/", new StubHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testAvailability() throws Exception {
+        URL ok = url("localhost", "/ok"), missing = url("localhost", "/missing"), noType = url("127.0.0.1", "/notype");
+
+        Map<URL, String> availability = new LinkChecker(2, 0).check(Arrays.asList(ok, missing, noType));
+
+        Assert.assertEquals(3, availability.size());
+        Assert.assertEquals("text/html", availability.get(ok));
+        Assert.assertNull(availability.get(missing));
+        Assert.assertEquals(LinkChecker.NO_CONTENT_TYPE, availability.get(noType));
+    }
+
+    @Test
+    public void testDelayPerHost() throws Exception {
+        List<URL> urls = new ArrayList<URL>();
+        for (int i = 0; i < 3; i++) {
+            urls.add(url("localhost", "/ok?" +i));
+            urls.add(url("127.0.0.1", "/ok?" +i));
+        }
+
+        long startTime = System.currentTimeMillis();
+        new LinkChecker(2, HOST_DELAY_MILLIS).check(urls);
+        long duration = System.currentTimeMillis() - startTime;
+
+        // both hosts are checked in parallel, a global delay would take at least 5 delays
+        Assert.assertTrue(duration < 5 * HOST_DELAY_MILLIS);
+
+        for (List<Long> requestTimes : requestTimesByHost.values()) {
+            Assert.assertEquals(3, requestTimes.size());
+            for (int i = 1; i < requestTimes.size(); i++) {
+                Assert.assertTrue(requestTimes.get(i) - requestTimes.get(i - 1) >= HOST_DELAY_MILLIS);
+            }
+        }
+    }
+
+    @Test
+    public void testSlowHostDoesNotBlockOthers() throws Exception {
+        List<URL> urls = new ArrayList<URL>();
+        urls.add(url("127.0.0.1", "/slow?1"));
+        urls.add(url("127.0.0.1", "/slow?2"));
+        for (int i = 0; i < 4; i++) {
+            urls.add(url("localhost", "/ok?" +i));
+        }
+
+        long startTime = System.currentTimeMillis();
+        Map<URL, String> availability = new LinkChecker(2, 0).check(urls);
+
+        Assert.assertEquals(6, availability.size());
+        // the fast host has been checked while the slow host was still responding
+        for (long requestTime : requestTimesByHost.get("localhost:" +server.getAddress().getPort())) {
+            Assert.assertTrue(requestTime - startTime < SLOW_RESPONSE_MILLIS);
+        }
+    }
+
+    private URL url(String host, String path) throws IOException {
+        return new URL("http://" +host+ ":" +server.getAddress().getPort() + path);
+    }
+
+    private class StubHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String host = exchange.getRequestHeaders().getFirst("Host");
+            synchronized (requestTimesByHost) {
+                List<Long> requestTimes = requestTimesByHost.get(host);
+                if (requestTimes == null) {
+                    requestTimes = new ArrayList<Long>();
+                    requestTimesByHost.put(host, requestTimes);
+                }
+                requestTimes.add(System.currentTimeMillis());
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/missing")) {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            else if (path.equals("/notype")) {
+                exchange.sendResponseHeaders(200, -1);
+            }
+            else {
+                if (path.equals("/slow")) {
+                    try {
+                        Thread.sleep(SLOW_RESPONSE_MILLIS);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.getResponseHeaders().set("Content-Type", "text/html");
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package at.ac.univie.mminf.qskos4j.util.url;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+public class UrlDereferencerTest {
+
+    private HttpServer server;
+    private UrlDereferencer dereferencer;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/", new StubHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        dereferencer = new UrlDereferencer();
+    }
+
+    @After
+    public void tearDown() {
+        dereferencer.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testHeadIsSufficient() throws Exception {
+        Assert.assertEquals("text/html", probe("/ok").getContentType());
+        Assert.assertEquals(Collections.singletonList("HEAD /ok"), requests);
+    }
+
+    @Test
+    public void testFallbackToRangedGet() throws Exception {
+        Assert.assertEquals("text/html", probe("/nohead").getContentType());
+        Assert.assertEquals(2, requests.size());
+        Assert.assertEquals("GET /nohead bytes=0-1023", requests.get(1));
+    }
+
+    @Test
+    public void testRedirects() throws Exception {
+        Assert.assertEquals("text/html", probe("/redirect").getContentType());
+
+        // the last redirect is not followed, but still counts as success
+        dereferencer.setMaxRedirects(2);
+        UrlDereferencer.Probe probe = probe("/loop");
+        Assert.assertTrue(probe.isSuccessful());
+        Assert.assertEquals("text/plain", probe.getContentType());
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        UrlDereferencer.Probe probe = probe("/missing");
+        Assert.assertFalse(probe.isSuccessful());
+        Assert.assertEquals(404, probe.getStatusCode());
+    }
+
+    private UrlDereferencer.Probe probe(String path) throws Exception {
+        return dereferencer.probe(url(path), null, null);
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://localhost:" +server.getAddress().getPort() + path);
+    }
+
+    private class StubHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            requests.add(method + " " + path + (range != null ? " " +range : ""));
+
+            if (path.equals("/missing")) {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            else if (path.equals("/nohead") && method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+            }
+            else if (path.equals("/redirect")) {
+                exchange.getResponseHeaders().set("Location", "/ok");
+                exchange.sendResponseHeaders(302, -1);
+            }
+            else if (path.equals("/loop")) {
+                exchange.getResponseHeaders().set("Location", "/loop");
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(302, -1);
+            }
+            else {
+                exchange.getResponseHeaders().set("Content-Type", "text/html");
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        }
+    }
+
+}
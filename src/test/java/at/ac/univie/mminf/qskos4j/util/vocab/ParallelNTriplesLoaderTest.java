@@ -0,0 +1,64 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ParallelNTriplesLoaderTest {
+
+    private final static int CONCEPT_COUNT = 50000;
+
+    @Test
+    public void testParallelLoad() throws OpenRDFException, IOException {
+        File ntriplesFile = createNTriplesFile();
+
+        RepositoryBuilder repositoryBuilder = new RepositoryBuilder();
+        repositoryBuilder.setInferencerType(RepositoryBuilder.InferencerType.NONE);
+        repositoryBuilder.setLoadParallelism(4);
+        RepositoryConnection repCon = repositoryBuilder.setUpFromFile(ntriplesFile, null, RDFFormat.NTRIPLES).getConnection();
+
+        Assert.assertEquals(2 * CONCEPT_COUNT, repCon.size());
+
+        // the blank node is referenced from all chunks and must be one resource
+        Set<Resource> schemes = new HashSet<Resource>();
+        RepositoryResult<Statement> inScheme = repCon.getStatements(
+            null, new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "inScheme"), null, false);
+        while (inScheme.hasNext()) {
+            schemes.add((Resource) inScheme.next().getObject());
+        }
+        Assert.assertEquals(1, schemes.size());
+
+        repCon.close();
+        ntriplesFile.delete();
+    }
+
+    private File createNTriplesFile() throws IOException {
+        File ntriplesFile = File.createTempFile("qskos", ".nt");
+        Writer writer = new FileWriter(ntriplesFile);
+        try {
+            for (int i = 0; i < CONCEPT_COUNT; i++) {
+                String concept = "<http://example.org/concept/" +i+ ">";
+                writer.write(concept + " <http://www.w3.org/2004/02/skos/core#prefLabel> \"concept number " +i+ "\"@en .\n");
+                writer.write(concept + " <http://www.w3.org/2004/02/skos/core#inScheme> _:scheme .\n");
+            }
+        }
+        finally {
+            writer.close();
+        }
+        return ntriplesFile;
+    }
+
+}
@@ -0,0 +1,92 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.File;
+
+public class RepositoryBuilderTest {
+
+    @Test
+    public void testNativeStoreReuse() throws OpenRDFException {
+        File dataDir = new File(System.getProperty("java.io.tmpdir"), "qskos-native-" +System.currentTimeMillis());
+        File vocabFile = new File(RepositoryBuilder.class.getResource("/components.rdf").getFile());
+
+        Repository repository = new RepositoryBuilder().setUpNative(dataDir, vocabFile, null, RDFFormat.RDFXML);
+        long size = size(repository);
+        repository.shutDown();
+        Assert.assertTrue(size > 0);
+
+        // the vocabulary file must not be read again
+        File missingFile = new File(dataDir, "missing.rdf");
+        repository = new RepositoryBuilder().setUpNative(dataDir, missingFile, null, RDFFormat.RDFXML);
+        Assert.assertEquals(size, size(repository));
+        repository.shutDown();
+    }
+
+    @Test
+    public void testIncompleteNativeStoreIsReloaded() throws OpenRDFException {
+        File dataDir = new File(System.getProperty("java.io.tmpdir"), "qskos-native-" +System.currentTimeMillis());
+
+        // single statement batches are committed before the parse error
+        RepositoryBuilder repositoryBuilder = new RepositoryBuilder();
+        repositoryBuilder.setBatchSize(1);
+        try {
+            repositoryBuilder.setUpNative(dataDir, getTestFile("malformed.rdf"), null, RDFFormat.RDFXML);
+            Assert.fail();
+        }
+        catch (RepositoryException e) {
+            // expected
+        }
+
+        Repository repository = new RepositoryBuilder().setUpNative(dataDir, getTestFile("components.rdf"), null, RDFFormat.RDFXML);
+        Repository expectedRepository = new RepositoryBuilder().setUpFromFile(getTestFile("components.rdf"), null, RDFFormat.RDFXML);
+        Assert.assertEquals(size(expectedRepository), size(repository));
+        repository.shutDown();
+        expectedRepository.shutDown();
+    }
+
+    @Test
+    public void testTemporaryNativeStoreIsDeleted() throws OpenRDFException {
+        Repository repository = new RepositoryBuilder().setUpNative(null, getTestFile("components.rdf"), null, RDFFormat.RDFXML);
+        File dataDir = repository.getDataDir();
+        Assert.assertTrue(dataDir.isDirectory());
+        Assert.assertTrue(size(repository) > 0);
+
+        repository.shutDown();
+        Assert.assertFalse(dataDir.exists());
+    }
+
+    @Test
+    public void testTemporaryNativeStoresAreSeparate() throws OpenRDFException {
+        Repository repository = new RepositoryBuilder().setUpNative(null, getTestFile("components.rdf"), null, RDFFormat.RDFXML);
+        Repository otherRepository = new RepositoryBuilder().setUpNative(null, getTestFile("concepts.rdf"), null, RDFFormat.RDFXML);
+        Assert.assertFalse(repository.getDataDir().equals(otherRepository.getDataDir()));
+
+        long otherSize = size(otherRepository);
+        repository.shutDown();
+        Assert.assertTrue(otherRepository.getDataDir().isDirectory());
+        Assert.assertEquals(otherSize, size(otherRepository));
+        otherRepository.shutDown();
+    }
+
+    private File getTestFile(String fileName) {
+        return new File(RepositoryBuilder.class.getResource("/" +fileName).getFile());
+    }
+
+    private long size(Repository repository) throws OpenRDFException {
+        RepositoryConnection repCon = repository.getConnection();
+        try {
+            return repCon.size();
+        }
+        finally {
+            repCon.close();
+        }
+    }
+
+}
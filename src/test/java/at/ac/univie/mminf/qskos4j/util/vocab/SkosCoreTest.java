@@ -0,0 +1,60 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class SkosCoreTest {
+
+    @Test
+    public void testBundledSkosCore() {
+        SkosCore skosCore = SkosCore.loadBundled();
+
+        Assert.assertEquals(11, skosCore.getSemanticRelationSubProperties().size());
+        Assert.assertTrue(skosCore.getSemanticRelationSubProperties().contains(skosTerm("broadMatch")));
+        Assert.assertFalse(skosCore.getSemanticRelationSubProperties().contains(skosTerm("semanticRelation")));
+
+        Assert.assertEquals(11, skosCore.getTextualProperties().size());
+        Assert.assertTrue(skosCore.getTextualProperties().contains(new URIImpl("http://www.w3.org/2000/01/rdf-schema#label")));
+        Assert.assertTrue(skosCore.getTextualProperties().contains(skosTerm("scopeNote")));
+
+        Assert.assertEquals(33, skosCore.getDefinedTerms().size());
+        Assert.assertTrue(skosCore.getDefinedTerms().contains(skosTerm("OrderedCollection")));
+        Assert.assertFalse(skosCore.getDefinedTerms().contains(skosTerm("broaderGeneric")));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Set<URI> relations = new HashSet<URI>(Arrays.asList(skosTerm("related"), new URIImpl("http://example.org/rel")));
+        SkosCore skosCore = new SkosCore(relations, Collections.<URI>emptySet(), Collections.singleton(skosTerm("Concept")));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        skosCore.write(new DataOutputStream(bytes));
+        SkosCore readSkosCore = SkosCore.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(relations, readSkosCore.getSemanticRelationSubProperties());
+        Assert.assertTrue(readSkosCore.getTextualProperties().isEmpty());
+        Assert.assertEquals(Collections.singleton(skosTerm("Concept")), readSkosCore.getDefinedTerms());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidInput() throws IOException {
+        SkosCore.read(new DataInputStream(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 0, 1})));
+    }
+
+    private URI skosTerm(String localName) {
+        return new URIImpl(SparqlPrefix.SKOS.getNameSpace() + localName);
+    }
+
+}
@@ -0,0 +1,74 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import at.ac.univie.mminf.qskos4j.issues.Issue;
+import at.ac.univie.mminf.qskos4j.issues.concepts.InvolvedConcepts;
+import at.ac.univie.mminf.qskos4j.issues.concepts.OrphanConcepts;
+import at.ac.univie.mminf.qskos4j.issues.conceptscheme.ConceptSchemes;
+import at.ac.univie.mminf.qskos4j.util.TupleQueryResultUtil;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.repository.RepositoryConnection;
+
+public class SkosInferencerTest {
+
+    @Test
+    public void testSameResultsAsRdfsInferencing() throws OpenRDFException {
+        RepositoryConnection rdfsComponents = createConnection("components.rdf", RepositoryBuilder.InferencerType.RDFS);
+        RepositoryConnection skosComponents = createConnection("components.rdf", RepositoryBuilder.InferencerType.SKOS);
+
+        InvolvedConcepts rdfsInvolvedConcepts = new InvolvedConcepts();
+        InvolvedConcepts skosInvolvedConcepts = new InvolvedConcepts();
+        assertSameResult(rdfsComponents, rdfsInvolvedConcepts, skosComponents, skosInvolvedConcepts);
+        assertSameResult(
+            rdfsComponents, new OrphanConcepts(rdfsInvolvedConcepts),
+            skosComponents, new OrphanConcepts(skosInvolvedConcepts));
+
+        assertSameResult(
+            createConnection("aggregations.rdf", RepositoryBuilder.InferencerType.RDFS), new ConceptSchemes(),
+            createConnection("aggregations.rdf", RepositoryBuilder.InferencerType.SKOS), new ConceptSchemes());
+    }
+
+    @Test
+    public void testSubPropertyEntailments() throws OpenRDFException {
+        RepositoryConnection repCon = createConnection("components.rdf", RepositoryBuilder.InferencerType.SKOS);
+        URIImpl broader = new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "broader");
+
+        Assert.assertTrue(repCon.hasStatement(broader, RDFS.SUBPROPERTYOF, broader, true));
+        Assert.assertFalse(repCon.hasStatement(broader, RDFS.SUBPROPERTYOF, broader, false));
+        Assert.assertFalse(repCon.hasStatement(null, null, RDFS.RESOURCE, true));
+    }
+
+    @Test
+    public void testFewerStatementsThanRdfsInferencing() throws OpenRDFException {
+        Assert.assertTrue(
+            countStatements(createConnection("components.rdf", RepositoryBuilder.InferencerType.SKOS)) <
+            countStatements(createConnection("components.rdf", RepositoryBuilder.InferencerType.RDFS)));
+    }
+
+    private RepositoryConnection createConnection(String testFileName, RepositoryBuilder.InferencerType inferencerType)
+        throws OpenRDFException
+    {
+        RepositoryBuilder repositoryBuilder = new RepositoryBuilder();
+        repositoryBuilder.setInferencerType(inferencerType);
+        return repositoryBuilder.setUpFromTestResource(testFileName).getConnection();
+    }
+
+    private <T> void assertSameResult(
+        RepositoryConnection expectedRepCon, Issue<T> expectedIssue,
+        RepositoryConnection actualRepCon, Issue<T> actualIssue) throws OpenRDFException
+    {
+        expectedIssue.setRepositoryConnection(expectedRepCon);
+        actualIssue.setRepositoryConnection(actualRepCon);
+        Assert.assertEquals(expectedIssue.getResult(), actualIssue.getResult());
+    }
+
+    private long countStatements(RepositoryConnection repCon) throws OpenRDFException {
+        return TupleQueryResultUtil.countResults(repCon.prepareTupleQuery(
+            QueryLanguage.SPARQL, "SELECT * WHERE {?s ?p ?o}").evaluate());
+    }
+
+}
@@ -0,0 +1,39 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class SkosVocabularyModelTest {
+
+    @Test
+    public void testSharedInstance() throws OpenRDFException {
+        SkosVocabularyModel vocabularyModel = SkosOntology.getInstance().getVocabularyModel();
+
+        Assert.assertSame(vocabularyModel, SkosOntology.getInstance().getVocabularyModel());
+        Assert.assertTrue(vocabularyModel.isSemanticRelation(new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "exactMatch")));
+        Assert.assertTrue(vocabularyModel.isDefinedTerm(new URIImpl(SparqlPrefix.SKOS.getNameSpace() + "notation")));
+    }
+
+    @Test
+    public void testFilters() {
+        SkosVocabularyModel vocabularyModel = new SkosVocabularyModel(new SkosCore(
+            new HashSet<URI>(Arrays.<URI>asList(new URIImpl("http://example.org/b"), new URIImpl("http://example.org/a"))),
+            Collections.<URI>singleton(new URIImpl("http://example.org/label")),
+            Collections.<URI>emptySet()));
+
+        Assert.assertEquals(
+            "FILTER (?rel IN (<http://example.org/a>,<http://example.org/b>))",
+            vocabularyModel.getSemanticRelationsFilter("rel"));
+        Assert.assertEquals(
+            "FILTER (?p IN (<http://example.org/label>))",
+            vocabularyModel.getTextualPropertiesFilter("p"));
+    }
+
+}
@@ -0,0 +1,65 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.StatementImpl;
+import org.openrdf.model.impl.URIImpl;
+
+import java.util.List;
+
+public class SkosXlLabelJoinTest {
+
+    private final URI concept = new URIImpl("http://example.org/concept");
+    private final URI xLabel = new URIImpl("http://example.org/xlabel");
+    private final Literal literalForm = new LiteralImpl("label", "en");
+
+    @Test
+    public void testLabelBeforeLiteralForm() {
+        SkosXlLabelJoin skosXlLabelJoin = new SkosXlLabelJoin();
+
+        Assert.assertTrue(skosXlLabelJoin.join(labelStatement("altLabel")).isEmpty());
+        List<Statement> lexicalLabels = skosXlLabelJoin.join(literalFormStatement());
+
+        Assert.assertEquals(1, lexicalLabels.size());
+        Assert.assertEquals(new StatementImpl(concept, skosTerm("altLabel"), literalForm), lexicalLabels.get(0));
+    }
+
+    @Test
+    public void testLiteralFormBeforeLabels() {
+        SkosXlLabelJoin skosXlLabelJoin = new SkosXlLabelJoin();
+
+        Assert.assertTrue(skosXlLabelJoin.join(literalFormStatement()).isEmpty());
+        List<Statement> prefLabels = skosXlLabelJoin.join(labelStatement("prefLabel"));
+        List<Statement> hiddenLabels = skosXlLabelJoin.join(labelStatement("hiddenLabel"));
+
+        Assert.assertEquals(1, prefLabels.size());
+        Assert.assertEquals(new StatementImpl(concept, skosTerm("prefLabel"), literalForm), prefLabels.get(0));
+        Assert.assertEquals(1, hiddenLabels.size());
+        Assert.assertEquals(new StatementImpl(concept, skosTerm("hiddenLabel"), literalForm), hiddenLabels.get(0));
+    }
+
+    @Test
+    public void testUnrelatedStatement() {
+        SkosXlLabelJoin skosXlLabelJoin = new SkosXlLabelJoin();
+
+        Assert.assertTrue(skosXlLabelJoin.join(new StatementImpl(concept, skosTerm("prefLabel"), literalForm)).isEmpty());
+        Assert.assertTrue(skosXlLabelJoin.join(literalFormStatement()).isEmpty());
+    }
+
+    private Statement labelStatement(String labelType) {
+        return new StatementImpl(concept, new URIImpl(SparqlPrefix.SKOSXL.getNameSpace() + labelType), xLabel);
+    }
+
+    private Statement literalFormStatement() {
+        return new StatementImpl(xLabel, SkosXlLabelJoin.LITERAL_FORM, literalForm);
+    }
+
+    private URI skosTerm(String localName) {
+        return new URIImpl(SparqlPrefix.SKOS.getNameSpace() + localName);
+    }
+
+}
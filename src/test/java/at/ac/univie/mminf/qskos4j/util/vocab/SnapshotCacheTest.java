@@ -0,0 +1,92 @@
+package at.ac.univie.mminf.qskos4j.util.vocab;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Statement;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.File;
+import java.io.IOException;
+
+public class SnapshotCacheTest {
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() {
+        cacheDir = new File(System.getProperty("java.io.tmpdir"), "qskos-cache-" +System.nanoTime());
+    }
+
+    @Test
+    public void testKeyDependsOnOptions() throws IOException {
+        SnapshotCache snapshotCache = new SnapshotCache(cacheDir, 1);
+        File vocabFile = getTestFile("components.rdf");
+
+        Assert.assertEquals(snapshotCache.createKey(vocabFile, "skos"), snapshotCache.createKey(vocabFile, "skos"));
+        Assert.assertFalse(snapshotCache.createKey(vocabFile, "skos").equals(snapshotCache.createKey(vocabFile, "rdfs")));
+        Assert.assertFalse(snapshotCache.createKey(vocabFile, "skos").equals(
+            snapshotCache.createKey(getTestFile("concepts.rdf"), "skos")));
+    }
+
+    @Test
+    public void testRestoreSnapshot() throws OpenRDFException {
+        File vocabFile = getTestFile("components.rdf");
+
+        Repository loadedRepository = createRepositoryBuilder(2).setUpFromFile(vocabFile, null, RDFFormat.RDFXML);
+        Assert.assertEquals(1, countSnapshots());
+
+        Repository restoredRepository = createRepositoryBuilder(2).setUpFromFile(vocabFile, null, RDFFormat.RDFXML);
+        Assert.assertEquals(countStatements(loadedRepository, false), countStatements(restoredRepository, false));
+        Assert.assertEquals(countStatements(loadedRepository, true), countStatements(restoredRepository, true));
+        Assert.assertEquals(1, countSnapshots());
+    }
+
+    @Test
+    public void testEviction() throws OpenRDFException {
+        createRepositoryBuilder(1).setUpFromFile(getTestFile("components.rdf"), null, RDFFormat.RDFXML);
+        createRepositoryBuilder(1).setUpFromFile(getTestFile("concepts.rdf"), null, RDFFormat.RDFXML);
+
+        Assert.assertEquals(1, countSnapshots());
+    }
+
+    private RepositoryBuilder createRepositoryBuilder(int maxEntries) {
+        RepositoryBuilder repositoryBuilder = new RepositoryBuilder();
+        repositoryBuilder.setSnapshotCache(new SnapshotCache(cacheDir, maxEntries));
+        return repositoryBuilder;
+    }
+
+    private File getTestFile(String fileName) {
+        return new File(RepositoryBuilder.class.getResource("/" +fileName).getFile());
+    }
+
+    private int countSnapshots() {
+        int count = 0;
+        for (File file : cacheDir.listFiles()) {
+            if (file.getName().endsWith(".snapshot")) count++;
+        }
+        return count;
+    }
+
+    private long countStatements(Repository repository, boolean includeInferred) throws OpenRDFException {
+        RepositoryConnection repCon = repository.getConnection();
+        try {
+            long count = 0;
+            RepositoryResult<Statement> result = repCon.getStatements(null, null, null, includeInferred);
+            while (result.hasNext()) {
+                result.next();
+                count++;
+            }
+            result.close();
+            return count;
+        }
+        finally {
+            repCon.close();
+        }
+    }
+
+}